@@ -0,0 +1,45 @@
+package com.barclays.api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.barclays.service.TradeArchiveService;
+
+/** REST API to control the archive job over HTTP.
+ * 
+ * Base URL is "/api/v1/barclays/store/jobs/archive" for all endpoints.
+ * Allows requests from any origin to avoid CORS errors.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ * 
+ */
+@RestController
+@RequestMapping(value="/api/v1/barclays/store/jobs/archive")
+@CrossOrigin
+public class ArchiveJobAPI {
+	
+	@Autowired
+	private TradeArchiveService tradeArchiveService;
+	
+	@Autowired
+	private Environment environment;
+	
+	
+	/** REST endpoint to run the archive job immediately. Runs even if scheduled runs are disabled.
+	 * 
+	 * @return -- returns HTTP response with status code 200 and the number of archived trades.
+	 */
+	@PostMapping(value="/run")
+	public ResponseEntity<String> runArchiveJob() {
+		
+		int archivedTrades=tradeArchiveService.archiveExpiredTrades();
+		String successMessage=String.format(environment.getProperty("API.ARCHIVE_RUN_SUCCESS"), archivedTrades);
+		return new ResponseEntity<>(successMessage, HttpStatus.OK);
+	}
+}
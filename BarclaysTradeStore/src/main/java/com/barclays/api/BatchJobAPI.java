@@ -0,0 +1,87 @@
+package com.barclays.api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.service.TradeStoreBatchScheduler;
+
+
+/** REST API to control the expiry batch job over HTTP.
+ * 
+ * Allows the job to be triggered on demand and scheduled runs to be paused,
+ * for example during peak ingestion windows.
+ * 
+ * Base URL is "/api/v1/barclays/store/jobs/expiry" for all endpoints.
+ * Allows requests from any origin to avoid CORS errors.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ * 
+ */
+@RestController
+@RequestMapping(value="/api/v1/barclays/store/jobs/expiry")
+@CrossOrigin
+public class BatchJobAPI {
+	
+	@Autowired
+	private TradeStoreBatchScheduler tradeStoreBatchScheduler;
+	
+	@Autowired
+	private Environment environment;
+	
+	
+	/** REST endpoint to run the expiry job immediately. Runs even if the job is paused.
+	 * 
+	 * @return -- returns HTTP response with status code 200 and the number of expired trades.
+	 * @throws BarclaysTradeStoreException -- thrown when a run is already in progress.
+	 */
+	@PostMapping(value="/run")
+	public ResponseEntity<String> runExpiryJob() throws BarclaysTradeStoreException {
+		
+		int expiredTrades=tradeStoreBatchScheduler.run();
+		String successMessage=String.format(environment.getProperty("API.EXPIRY_RUN_SUCCESS"), expiredTrades);
+		return new ResponseEntity<>(successMessage, HttpStatus.OK);
+	}
+	
+	/** REST endpoint to run the reconciliation of the expiry job immediately. Looks at
+	 * every past maturity date, so it takes longer than a regular run.
+	 * 
+	 * @return -- returns HTTP response with status code 200 and the number of expired trades.
+	 * @throws BarclaysTradeStoreException -- thrown when a run is already in progress.
+	 */
+	@PostMapping(value="/reconcile")
+	public ResponseEntity<String> reconcileExpiryJob() throws BarclaysTradeStoreException {
+		
+		int expiredTrades=tradeStoreBatchScheduler.reconcile();
+		String successMessage=String.format(environment.getProperty("API.EXPIRY_RUN_SUCCESS"), expiredTrades);
+		return new ResponseEntity<>(successMessage, HttpStatus.OK);
+	}
+	
+	/** REST endpoint to stop scheduled runs of the expiry job until resumed.
+	 * 
+	 * @return -- returns HTTP response with status code 200.
+	 */
+	@PostMapping(value="/pause")
+	public ResponseEntity<String> pauseExpiryJob() {
+		
+		tradeStoreBatchScheduler.pause();
+		return new ResponseEntity<>(environment.getProperty("API.EXPIRY_PAUSED"), HttpStatus.OK);
+	}
+	
+	/** REST endpoint to restart scheduled runs of a paused expiry job.
+	 * 
+	 * @return -- returns HTTP response with status code 200.
+	 */
+	@PostMapping(value="/resume")
+	public ResponseEntity<String> resumeExpiryJob() {
+		
+		tradeStoreBatchScheduler.resume();
+		return new ResponseEntity<>(environment.getProperty("API.EXPIRY_RESUMED"), HttpStatus.OK);
+	}
+}
@@ -0,0 +1,259 @@
+package com.barclays.api;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+
+/** Reads and writes TradeDTO in a compact binary format, as an alternative to JSON.
+ * 
+ * Used for request bodies with content type application/x-barclays-trade. Every trade
+ * is one record, all numbers are big endian:
+ * 
+ * <pre>
+ * u16 length of the rest of the record
+ * str tradeId
+ * i32 version
+ * str counterPartyId
+ * str bookId
+ * i32 maturityDate as epoch day, Integer.MIN_VALUE for null
+ * i32 createdDate as epoch day, Integer.MIN_VALUE for null
+ * u8  expired as 'N' or 'Y', 0 for null
+ * 
+ * str is u8 length followed by that many UTF-8 bytes, 255 for null
+ * </pre>
+ * 
+ * The bulk endpoint accepts any number of records one after the other.
+ * 
+ * Records are decoded straight from a reused buffer. Book ids, counterparty ids and dates
+ * repeat a lot across trades, so recently decoded ones are kept in small tables and
+ * handed out again instead of creating a new String or LocalDate for every trade.
+ * Decoded trades are identical to those parsed from JSON and go through the same
+ * validation in the service layer.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+public class TradeBinaryMessageConverter extends AbstractHttpMessageConverter<TradeDTO> {
+	
+	public static final String MEDIA_TYPE_VALUE="application/x-barclays-trade";
+	public static final MediaType MEDIA_TYPE=MediaType.valueOf(MEDIA_TYPE_VALUE);
+	
+	/** Largest possible record, three strings and four fixed width fields. */
+	public static final int MAX_RECORD_SIZE=3*256+4+4+4+1;
+	
+	private static final int NULL_STRING=255;
+	private static final int NULL_DATE=Integer.MIN_VALUE;
+	private static final int TABLE_SIZE=1024;
+	
+	private final String[] strings=new String[TABLE_SIZE];
+	private final LocalDate[] dates=new LocalDate[TABLE_SIZE];
+	
+	public TradeBinaryMessageConverter() {
+		super(MEDIA_TYPE);
+	}
+	
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return TradeDTO.class.equals(clazz);
+	}
+	
+	@Override
+	protected TradeDTO readInternal(Class<? extends TradeDTO> clazz, HttpInputMessage inputMessage) throws IOException {
+		
+		TradeDTO tradeDto=read(inputMessage.getBody(), new byte[MAX_RECORD_SIZE]);
+		if (tradeDto==null)
+			throw new HttpMessageNotReadableException("Empty trade record", inputMessage);
+		return tradeDto;
+	}
+	
+	@Override
+	protected void writeInternal(TradeDTO tradeDto, HttpOutputMessage outputMessage) throws IOException {
+		write(tradeDto, outputMessage.getBody());
+	}
+	
+	/** Reads the next trade from a stream of records.
+	 * 
+	 * 
+	 * @param inputStream -- stream positioned at the start of a record.
+	 * @param buffer -- buffer of at least MAX_RECORD_SIZE bytes, reused across records.
+	 * @return -- decoded trade, null when the stream ended before a new record.
+	 * @throws IOException -- thrown when the stream ends inside a record or the record is malformed.
+	 */
+	public TradeDTO read(InputStream inputStream, byte[] buffer) throws IOException {
+		
+		int high=inputStream.read();
+		if (high<0)
+			return null;
+		int low=inputStream.read();
+		if (low<0)
+			throw new EOFException("Truncated trade record length");
+		int length=(high<<8) | low;
+		if (length>MAX_RECORD_SIZE)
+			throw new IOException("Trade record of "+length+" bytes exceeds "+MAX_RECORD_SIZE);
+		if (inputStream.readNBytes(buffer, 0, length)<length)
+			throw new EOFException("Truncated trade record");
+		
+		try {
+			return decode(buffer, length);
+		} catch (ArrayIndexOutOfBoundsException exception) {
+			throw new IOException("Malformed trade record", exception);
+		}
+	}
+	
+	/** Writes a trade as one record.
+	 * 
+	 * 
+	 * @param tradeDto -- trade to be written.
+	 * @param outputStream -- stream the record is written to.
+	 * @throws IOException -- thrown when a string is too long or the stream can't be written.
+	 */
+	public static void write(TradeDTO tradeDto, OutputStream outputStream) throws IOException {
+		
+		byte[] buffer=new byte[MAX_RECORD_SIZE+2];
+		int position=2;
+		position=putString(buffer, position, tradeDto.getTradeId());
+		position=putInt(buffer, position, tradeDto.getVersion());
+		position=putString(buffer, position, tradeDto.getCounterPartyId());
+		position=putString(buffer, position, tradeDto.getBookId());
+		position=putInt(buffer, position, toEpochDay(tradeDto.getMaturityDate()));
+		position=putInt(buffer, position, toEpochDay(tradeDto.getCreatedDate()));
+		buffer[position++]=tradeDto.getExpired()==null ? 0 : (byte)tradeDto.getExpired().name().charAt(0);
+		
+		buffer[0]=(byte)((position-2)>>>8);
+		buffer[1]=(byte)(position-2);
+		outputStream.write(buffer, 0, position);
+	}
+	
+	private TradeDTO decode(byte[] buffer, int length) throws IOException {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		int position=0;
+		
+		int size=buffer[position++] & 0xFF;
+		if (size!=NULL_STRING) {
+			tradeDto.setTradeId(new String(buffer, position, size, StandardCharsets.UTF_8));
+			position+=size;
+		}
+		tradeDto.setVersion(getInt(buffer, position));
+		position+=4;
+		
+		size=buffer[position++] & 0xFF;
+		if (size!=NULL_STRING) {
+			tradeDto.setCounterPartyId(getString(buffer, position, size));
+			position+=size;
+		}
+		size=buffer[position++] & 0xFF;
+		if (size!=NULL_STRING) {
+			tradeDto.setBookId(getString(buffer, position, size));
+			position+=size;
+		}
+		
+		tradeDto.setMaturityDate(getDate(getInt(buffer, position)));
+		tradeDto.setCreatedDate(getDate(getInt(buffer, position+4)));
+		position+=8;
+		
+		switch (buffer[position++]) {
+		case 0:
+			break;
+		case 'N':
+			tradeDto.setExpired(Expired.N);
+			break;
+		case 'Y':
+			tradeDto.setExpired(Expired.Y);
+			break;
+		default:
+			throw new IOException("Unknown expired flag "+buffer[position-1]);
+		}
+		
+		if (position!=length)
+			throw new IOException("Trade record length "+length+" doesn't match its fields");
+		return tradeDto;
+	}
+	
+	/** Returns a previously decoded string with the same bytes, or decodes and remembers it.
+	 * Table entries are overwritten freely, a stale entry only costs a new String.
+	 */
+	private String getString(byte[] buffer, int offset, int size) {
+		
+		int hash=size;
+		for (int i=0; i<size; i++)
+			hash=31*hash+buffer[offset+i];
+		int slot=(hash ^ (hash>>>16)) & (TABLE_SIZE-1);
+		
+		String cached=strings[slot];
+		if (cached!=null && matches(cached, buffer, offset, size))
+			return cached;
+		String decoded=new String(buffer, offset, size, StandardCharsets.UTF_8);
+		strings[slot]=decoded;
+		return decoded;
+	}
+	
+	private static boolean matches(String cached, byte[] buffer, int offset, int size) {
+		
+		if (cached.length()!=size)
+			return false;
+		for (int i=0; i<size; i++)
+			if (buffer[offset+i]<0 || cached.charAt(i)!=buffer[offset+i])
+				return false;
+		return true;
+	}
+	
+	private LocalDate getDate(int epochDay) {
+		
+		if (epochDay==NULL_DATE)
+			return null;
+		int slot=epochDay & (TABLE_SIZE-1);
+		LocalDate cached=dates[slot];
+		if (cached!=null && cached.toEpochDay()==epochDay)
+			return cached;
+		LocalDate decoded=LocalDate.ofEpochDay(epochDay);
+		dates[slot]=decoded;
+		return decoded;
+	}
+	
+	private static int getInt(byte[] buffer, int position) {
+		return (buffer[position]<<24) | ((buffer[position+1] & 0xFF)<<16)
+				| ((buffer[position+2] & 0xFF)<<8) | (buffer[position+3] & 0xFF);
+	}
+	
+	private static int putInt(byte[] buffer, int position, int value) {
+		buffer[position]=(byte)(value>>>24);
+		buffer[position+1]=(byte)(value>>>16);
+		buffer[position+2]=(byte)(value>>>8);
+		buffer[position+3]=(byte)value;
+		return position+4;
+	}
+	
+	private static int putString(byte[] buffer, int position, String value) throws IOException {
+		
+		if (value==null) {
+			buffer[position]=(byte)NULL_STRING;
+			return position+1;
+		}
+		byte[] bytes=value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length>=NULL_STRING)
+			throw new IOException("String of "+bytes.length+" bytes is too long for a trade record");
+		buffer[position]=(byte)bytes.length;
+		System.arraycopy(bytes, 0, buffer, position+1, bytes.length);
+		return position+1+bytes.length;
+	}
+	
+	private static int toEpochDay(LocalDate date) {
+		return date==null ? NULL_DATE : (int)date.toEpochDay();
+	}
+}
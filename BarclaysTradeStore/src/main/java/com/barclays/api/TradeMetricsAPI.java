@@ -0,0 +1,67 @@
+package com.barclays.api;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.barclays.dto.ConnectionPoolDTO;
+import com.barclays.dto.LatencyDTO;
+import com.barclays.utility.ConnectionPoolMetrics;
+import com.barclays.utility.TradeMetrics;
+
+
+/** REST API to read trade processing metrics over HTTP.
+ * 
+ * Complements /actuator/metrics with a single view of the latency percentiles of
+ * every stage of every trade processor, and of the saturation of the DB connection pool.
+ * 
+ * Base URL is "/api/v1/barclays/store/metrics" for all endpoints.
+ * Allows requests from any origin to avoid CORS errors.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@RestController
+@RequestMapping(value="/api/v1/barclays/store/metrics")
+@CrossOrigin
+public class TradeMetricsAPI {
+	
+	@Autowired
+	private TradeMetrics tradeMetrics;
+	
+	@Autowired
+	private ConnectionPoolMetrics connectionPoolMetrics;
+	
+	
+	/** REST endpoint to get count, mean, max and p50, p90, p99, p999 latency in
+	 * milliseconds of every trade processing stage.
+	 * 
+	 * @return -- returns HTTP response with status code 200 and latency of every stage.
+	 */
+	@GetMapping(value="/latency")
+	public ResponseEntity<List<LatencyDTO>> getLatencies() {
+		return new ResponseEntity<>(tradeMetrics.getLatencies(), HttpStatus.OK);
+	}
+	
+	/** REST endpoint to get active, idle and pending connections of the DB connection pool,
+	 * along with count, mean, max and p50, p90, p99, p999 time in milliseconds taken to
+	 * acquire a connection.
+	 * 
+	 * @return -- returns HTTP response with status code 200 and saturation of the pool,
+	 * or status code 404 when the data source isn't a connection pool.
+	 */
+	@GetMapping(value="/pool")
+	public ResponseEntity<ConnectionPoolDTO> getConnectionPool() {
+		
+		ConnectionPoolDTO connectionPool=connectionPoolMetrics.getConnectionPool();
+		if (connectionPool==null)
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		return new ResponseEntity<>(connectionPool, HttpStatus.OK);
+	}
+}
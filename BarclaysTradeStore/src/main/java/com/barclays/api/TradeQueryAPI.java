@@ -0,0 +1,179 @@
+package com.barclays.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeCountDTO;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.service.TradeQueryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/** REST API to read trades from the store over HTTP.
+ * 
+ * Trades matching a book, a counter party or an expired flag are streamed as newline
+ * delimited JSON (NDJSON) in ascending id order, reading API.QUERY_PAGE_SIZE trades from
+ * the database at a time. A client can resume a stream, or read it in pages, by passing
+ * the id of the last trade it received as afterId.
+ * 
+ * Counts of live and expired trades per book, counter party and maturity month, and the
+ * trade ids of a book or counter party, are answered from in-memory indexes.
+ * 
+ * Base URL is "/api/v1/barclays/store" for all endpoints.
+ * Allows requests from any origin to avoid CORS errors.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@RestController
+@RequestMapping(value="/api/v1/barclays/store")
+@CrossOrigin
+public class TradeQueryAPI {
+	
+	@Autowired
+	private TradeQueryService tradeQueryService;
+	
+	@Autowired
+	private Environment environment;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	
+	/** REST endpoint to get the latest version of a trade.
+	 * 
+	 * @param tradeId -- trade id to look up.
+	 * @return -- returns HTTP response with status code 200 and the trade.
+	 * @throws BarclaysTradeStoreException -- thrown when the trade id isn't stored.
+	 */
+	@GetMapping(value="/trades/{tradeId}")
+	public ResponseEntity<Trade> getLatestTrade(@PathVariable String tradeId) throws BarclaysTradeStoreException {
+		return new ResponseEntity<>(tradeQueryService.getLatestTrade(tradeId), HttpStatus.OK);
+	}
+	
+	/** REST endpoint to get every stored version of a trade, lowest version first.
+	 * 
+	 * @param tradeId -- trade id to look up.
+	 * @return -- returns HTTP response with status code 200 and the trades.
+	 * @throws BarclaysTradeStoreException -- thrown when the trade id isn't stored.
+	 */
+	@GetMapping(value="/trades/{tradeId}/versions")
+	public ResponseEntity<List<Trade>> getTradeVersions(@PathVariable String tradeId) throws BarclaysTradeStoreException {
+		return new ResponseEntity<>(tradeQueryService.getTradeVersions(tradeId), HttpStatus.OK);
+	}
+	
+	/** REST endpoint to get a specific version of a trade.
+	 * 
+	 * @param tradeId -- trade id to look up.
+	 * @param version -- version to look up.
+	 * @return -- returns HTTP response with status code 200 and the trade.
+	 * @throws BarclaysTradeStoreException -- thrown when the version isn't stored.
+	 */
+	@GetMapping(value="/trades/{tradeId}/versions/{version}")
+	public ResponseEntity<Trade> getTrade(@PathVariable String tradeId, @PathVariable int version) throws BarclaysTradeStoreException {
+		return new ResponseEntity<>(tradeQueryService.getTrade(tradeId, version), HttpStatus.OK);
+	}
+	
+	/** REST endpoint to stream trades matching every given criteria.
+	 * 
+	 * @param bookId -- optional book id. Like "B1".
+	 * @param counterPartyId -- optional counter party id. Like "CP-1".
+	 * @param expired -- optional expired flag, Y for expired trades and N for active ones.
+	 * @param afterId -- id of the last trade already received, trades after it are streamed.
+	 * @param limit -- optional largest number of trades to stream, all matching trades by default.
+	 * @return -- returns HTTP response with status code 200 and one trade per line.
+	 */
+	@GetMapping(value="/trades", produces=MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> findTrades(@RequestParam(required=false) String bookId, 
+			@RequestParam(required=false) String counterPartyId, @RequestParam(required=false) Expired expired,
+			@RequestParam(defaultValue="0") int afterId, @RequestParam(defaultValue="0") int limit) {
+		
+		int pageSize=environment.getProperty("API.QUERY_PAGE_SIZE", Integer.class, 1000);
+		StreamingResponseBody body=outputStream -> {
+			int lastId=afterId;
+			long remaining=limit>0 ? limit : Long.MAX_VALUE;
+			while (remaining>0) {
+				int size=(int)Math.min(pageSize, remaining);
+				List<Trade> page=tradeQueryService.findTrades(bookId, counterPartyId, expired, lastId, size);
+				for (Trade trade: page) {
+					outputStream.write(objectMapper.writeValueAsBytes(trade));
+					outputStream.write('\n');
+				}
+				outputStream.flush();
+				if (page.size()<size)
+					break;
+				lastId=page.get(page.size()-1).getId();
+				remaining-=page.size();
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+	}
+	
+	/** REST endpoint to count live and expired trades of a book.
+	 * 
+	 * @param bookId -- book id to look up.
+	 * @return -- returns HTTP response with status code 200 and the counts.
+	 */
+	@GetMapping(value="/books/{bookId}/counts")
+	public ResponseEntity<TradeCountDTO> getBookCount(@PathVariable String bookId) {
+		return new ResponseEntity<>(tradeQueryService.getBookCount(bookId), HttpStatus.OK);
+	}
+	
+	/** REST endpoint to get trade ids of a book.
+	 * 
+	 * @param bookId -- book id to look up.
+	 * @param expired -- optional expired flag, Y for expired trades and N for active ones.
+	 * @return -- returns HTTP response with status code 200 and the trade ids in ascending order.
+	 */
+	@GetMapping(value="/books/{bookId}/trades")
+	public ResponseEntity<SortedSet<String>> getBookTradeIds(@PathVariable String bookId, @RequestParam(required=false) Expired expired) {
+		return new ResponseEntity<>(tradeQueryService.getBookTradeIds(bookId, expired), HttpStatus.OK);
+	}
+	
+	/** REST endpoint to count live and expired trades of a counter party.
+	 * 
+	 * @param counterPartyId -- counter party id to look up.
+	 * @return -- returns HTTP response with status code 200 and the counts.
+	 */
+	@GetMapping(value="/counterparties/{counterPartyId}/counts")
+	public ResponseEntity<TradeCountDTO> getCounterPartyCount(@PathVariable String counterPartyId) {
+		return new ResponseEntity<>(tradeQueryService.getCounterPartyCount(counterPartyId), HttpStatus.OK);
+	}
+	
+	/** REST endpoint to get trade ids of a counter party.
+	 * 
+	 * @param counterPartyId -- counter party id to look up.
+	 * @param expired -- optional expired flag, Y for expired trades and N for active ones.
+	 * @return -- returns HTTP response with status code 200 and the trade ids in ascending order.
+	 */
+	@GetMapping(value="/counterparties/{counterPartyId}/trades")
+	public ResponseEntity<SortedSet<String>> getCounterPartyTradeIds(@PathVariable String counterPartyId, 
+			@RequestParam(required=false) Expired expired) {
+		return new ResponseEntity<>(tradeQueryService.getCounterPartyTradeIds(counterPartyId, expired), HttpStatus.OK);
+	}
+	
+	/** REST endpoint to count live and expired trades of every maturity month.
+	 * 
+	 * @return -- returns HTTP response with status code 200 and the counts keyed by month, earliest first.
+	 */
+	@GetMapping(value="/maturities/counts")
+	public ResponseEntity<Map<String, TradeCountDTO>> getMaturityMonthCounts() {
+		return new ResponseEntity<>(tradeQueryService.getMaturityMonthCounts(), HttpStatus.OK);
+	}
+}
@@ -1,18 +1,36 @@
 package com.barclays.api;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.entity.Trade;
 import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.service.TradeIngestionService;
 import com.barclays.service.TradeStoreService;
+import com.barclays.service.TradeStrategyRegistry;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 
 /** REST API to serve store services over HTTP.
@@ -22,6 +40,7 @@ import com.barclays.service.TradeStoreService;
  * This is done on purpose keeping the problem statement in mind.
  * Transmission medium could be anything, hence writing business logic 
  * here doesn't make any sense.
+ * Trades can also be consumed from a message log, see TradeSource.
  * 
  * Base URL is "/api/v1/barclays/store" for all endpoints.
  * Allows requests from any origin to avoid CORS errors.
@@ -37,23 +56,148 @@ public class TradeStoreAPI {
 	@Autowired
 	private TradeStoreService tradeStoreService;
 	
+	@Autowired
+	private TradeStrategyRegistry tradeStrategyRegistry;
+	
+	@Autowired
+	private TradeIngestionService tradeIngestionService;
+	
 	@Autowired
 	private Environment environment;
 	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private TradeBinaryMessageConverter tradeBinaryMessageConverter;
+	
 	
 	/** REST endpoint to receive trade information over HTTP POST.
 	 * Trade information received here is passed to the service layer.
 	 * 
+	 * Trade can be sent as JSON, or as a binary record described in TradeBinaryMessageConverter
+	 * with content type application/x-barclays-trade.
+	 * 
+	 * Processing strategy can be chosen per request using the strategy parameter, like
+	 * inMemory, lessMemory or adaptive. Deployment default is used when it is missing.
+	 * 
 	 * @param receivedTrade -- payload containing trade information.
-	 * @return -- returns HTTP response with status code 200 when a trade is successful.
+	 * @param strategy -- optional name of the processing strategy.
+	 * @return -- returns HTTP response with status code 200 when a trade is successful,
+	 * or when it is identical to the latest stored version.
 	 * @throws BarclaysTradeStoreException -- thrown from the service class for bad requests.
 	 */
 	@PostMapping(value="/trades")
-	public ResponseEntity<String> processTrade(@RequestBody TradeDTO receivedTrade) throws BarclaysTradeStoreException {
+	public ResponseEntity<String> processTrade(@RequestBody TradeDTO receivedTrade, 
+			@RequestParam(required=false) String strategy) throws BarclaysTradeStoreException {
 		
-		//tradeStoreService.processTradeWithLessMemory(receivedTrade);
-		tradeStoreService.processTrade(receivedTrade);
-		String successMessage = environment.getProperty("API.TRADE_SUCCESS");
+		Trade trade=tradeStrategyRegistry.processTrade(receivedTrade, strategy);
+		String successMessage = environment.getProperty(trade==null ? "API.TRADE_DUPLICATE" : "API.TRADE_SUCCESS");
 		return new ResponseEntity<>(successMessage, HttpStatus.OK);
 	}
+	
+	/** REST endpoint to receive many trades in one HTTP POST.
+	 * Accepts either a JSON array of trades or newline delimited JSON (NDJSON),
+	 * one trade per line.
+	 * 
+	 * Trades are read as a stream and passed to the service layer in chunks. Chunk size 
+	 * is defined in application.properties using API.BULK_CHUNK_SIZE key.
+	 * 
+	 * Outcome of every trade is streamed back as NDJSON in the order trades were received.
+	 * 
+	 * @param inputStream -- request payload containing trade information.
+	 * @return -- returns HTTP response with status code 200 and one result per trade.
+	 */
+	@PostMapping(value="/trades/bulk", consumes={MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE}, produces=MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> processTrades(InputStream inputStream) {
+		
+		int chunkSize=environment.getProperty("API.BULK_CHUNK_SIZE", Integer.class, 500);
+		StreamingResponseBody body=outputStream -> {
+			try (MappingIterator<TradeDTO> receivedTrades=objectMapper.readerFor(TradeDTO.class).readValues(inputStream)) {
+				List<TradeDTO> chunk=new ArrayList<>(chunkSize);
+				while (receivedTrades.hasNextValue()) {
+					chunk.add(receivedTrades.nextValue());
+					if (chunk.size()==chunkSize) {
+						writeResults(tradeStoreService.processTrades(chunk), outputStream);
+						chunk.clear();
+					}
+				}
+				if (!chunk.isEmpty())
+					writeResults(tradeStoreService.processTrades(chunk), outputStream);
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+	}
+	
+	/** REST endpoint to receive many trades in one HTTP POST as binary records.
+	 * Records are laid out one after the other as described in TradeBinaryMessageConverter.
+	 * 
+	 * Works the same way as the JSON bulk endpoint, trades are passed to the service layer 
+	 * in chunks and the outcome of every trade is streamed back as NDJSON.
+	 * 
+	 * @param inputStream -- request payload containing trade records.
+	 * @return -- returns HTTP response with status code 200 and one result per trade.
+	 */
+	@PostMapping(value="/trades/bulk", consumes=TradeBinaryMessageConverter.MEDIA_TYPE_VALUE, produces=MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> processBinaryTrades(InputStream inputStream) {
+		
+		int chunkSize=environment.getProperty("API.BULK_CHUNK_SIZE", Integer.class, 500);
+		StreamingResponseBody body=outputStream -> {
+			byte[] buffer=new byte[TradeBinaryMessageConverter.MAX_RECORD_SIZE];
+			List<TradeDTO> chunk=new ArrayList<>(chunkSize);
+			TradeDTO receivedTrade;
+			while ((receivedTrade=tradeBinaryMessageConverter.read(inputStream, buffer))!=null) {
+				chunk.add(receivedTrade);
+				if (chunk.size()==chunkSize) {
+					writeResults(tradeStoreService.processTrades(chunk), outputStream);
+					chunk.clear();
+				}
+			}
+			if (!chunk.isEmpty())
+				writeResults(tradeStoreService.processTrades(chunk), outputStream);
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+	}
+	
+	/** REST endpoint to receive trade information over HTTP POST for asynchronous processing.
+	 * Trade is queued by the ingestion service and processed in the background.
+	 * 
+	 * @param receivedTrade -- payload containing trade information.
+	 * @return -- returns HTTP response with status code 202 and the tracking id of the trade.
+	 * Location header points to the endpoint for looking up the outcome.
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests, or when the queue is full.
+	 */
+	@PostMapping(value="/trades/async")
+	public ResponseEntity<TradeResultDTO> submitTrade(@RequestBody TradeDTO receivedTrade) throws BarclaysTradeStoreException {
+		
+		TradeResultDTO result=tradeIngestionService.submitTrade(receivedTrade);
+		URI location=URI.create("/api/v1/barclays/store/trades/async/"+result.getTrackingId());
+		return ResponseEntity.accepted().location(location).body(result);
+	}
+	
+	/** REST endpoint to look up the outcome of a trade submitted for asynchronous processing.
+	 * 
+	 * @param trackingId -- tracking id returned when the trade was submitted.
+	 * @return -- returns HTTP response with status code 200 and the outcome of the trade.
+	 * @throws BarclaysTradeStoreException -- thrown when tracking id is unknown.
+	 */
+	@GetMapping(value="/trades/async/{trackingId}")
+	public ResponseEntity<TradeResultDTO> getTradeResult(@PathVariable String trackingId) throws BarclaysTradeStoreException {
+		
+		TradeResultDTO result=tradeIngestionService.getTradeResult(trackingId);
+		TradeResultDTO response=new TradeResultDTO(result.getTradeId(), result.getVersion(), result.getStatus(), 
+				result.getMessage()==null ? null : environment.getProperty(result.getMessage()));
+		response.setTrackingId(result.getTrackingId());
+		return new ResponseEntity<>(response, HttpStatus.OK);
+	}
+	
+	private void writeResults(List<TradeResultDTO> results, OutputStream outputStream) throws IOException {
+		for (TradeResultDTO result: results) {
+			if (result.getMessage()!=null)
+				result.setMessage(environment.getProperty(result.getMessage()));
+			outputStream.write(objectMapper.writeValueAsBytes(result));
+			outputStream.write('\n');
+		}
+		outputStream.flush();
+	}
 }
@@ -0,0 +1,56 @@
+package com.barclays.dto;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/** Data Transfer Object (DTO) class for a trade acknowledged before it is written, as kept
+ * in the write-ahead log.
+ * 
+ * Trade fields are written at the top level, so that a record holding only a trade is
+ * still read back. Accepted on is then null.
+ * 
+ * Message holds the property key of the rejection reason, set only for trades that were
+ * rejected when written.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public class AcceptedTradeDTO {
+	
+	@JsonUnwrapped
+	private TradeDTO trade;
+	private LocalDate acceptedOn;
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String message;
+	
+	public AcceptedTradeDTO() {
+	}
+	
+	public AcceptedTradeDTO(TradeDTO trade, LocalDate acceptedOn) {
+		this.trade = trade;
+		this.acceptedOn = acceptedOn;
+	}
+	
+	public TradeDTO getTrade() {
+		return trade;
+	}
+	public void setTrade(TradeDTO trade) {
+		this.trade = trade;
+	}
+	
+	public LocalDate getAcceptedOn() {
+		return acceptedOn;
+	}
+	public void setAcceptedOn(LocalDate acceptedOn) {
+		this.acceptedOn = acceptedOn;
+	}
+	
+	public String getMessage() {
+		return message;
+	}
+	public void setMessage(String message) {
+		this.message = message;
+	}
+}
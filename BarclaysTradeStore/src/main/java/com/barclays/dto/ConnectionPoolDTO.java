@@ -0,0 +1,96 @@
+package com.barclays.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Data Transfer Object (DTO) class holding the saturation of the DB connection pool.
+ * 
+ * Connection counts are taken at the time of the request. Acquire times are in
+ * milliseconds and percentiles are keyed by their value, like "0.99".
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public class ConnectionPoolDTO {
+	
+	private String poolName;
+	private int active;
+	private int idle;
+	private int pending;
+	private int total;
+	private int maximum;
+	private long acquireCount;
+	private double acquireMean;
+	private double acquireMax;
+	private Map<String, Double> acquirePercentiles=new LinkedHashMap<>();
+	
+	public String getPoolName() {
+		return poolName;
+	}
+	public void setPoolName(String poolName) {
+		this.poolName = poolName;
+	}
+	
+	public int getActive() {
+		return active;
+	}
+	public void setActive(int active) {
+		this.active = active;
+	}
+	
+	public int getIdle() {
+		return idle;
+	}
+	public void setIdle(int idle) {
+		this.idle = idle;
+	}
+	
+	public int getPending() {
+		return pending;
+	}
+	public void setPending(int pending) {
+		this.pending = pending;
+	}
+	
+	public int getTotal() {
+		return total;
+	}
+	public void setTotal(int total) {
+		this.total = total;
+	}
+	
+	public int getMaximum() {
+		return maximum;
+	}
+	public void setMaximum(int maximum) {
+		this.maximum = maximum;
+	}
+	
+	public long getAcquireCount() {
+		return acquireCount;
+	}
+	public void setAcquireCount(long acquireCount) {
+		this.acquireCount = acquireCount;
+	}
+	
+	public double getAcquireMean() {
+		return acquireMean;
+	}
+	public void setAcquireMean(double acquireMean) {
+		this.acquireMean = acquireMean;
+	}
+	
+	public double getAcquireMax() {
+		return acquireMax;
+	}
+	public void setAcquireMax(double acquireMax) {
+		this.acquireMax = acquireMax;
+	}
+	
+	public Map<String, Double> getAcquirePercentiles() {
+		return acquirePercentiles;
+	}
+	public void setAcquirePercentiles(Map<String, Double> acquirePercentiles) {
+		this.acquirePercentiles = acquirePercentiles;
+	}
+}
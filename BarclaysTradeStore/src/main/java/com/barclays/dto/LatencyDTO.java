@@ -0,0 +1,63 @@
+package com.barclays.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Data Transfer Object (DTO) class holding the latency of one stage of a trade processor.
+ * 
+ * All times are in milliseconds. Percentiles are keyed by their value, like "0.99".
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public class LatencyDTO {
+	
+	private String method;
+	private String stage;
+	private long count;
+	private double mean;
+	private double max;
+	private Map<String, Double> percentiles=new LinkedHashMap<>();
+	
+	public String getMethod() {
+		return method;
+	}
+	public void setMethod(String method) {
+		this.method = method;
+	}
+	
+	public String getStage() {
+		return stage;
+	}
+	public void setStage(String stage) {
+		this.stage = stage;
+	}
+	
+	public long getCount() {
+		return count;
+	}
+	public void setCount(long count) {
+		this.count = count;
+	}
+	
+	public double getMean() {
+		return mean;
+	}
+	public void setMean(double mean) {
+		this.mean = mean;
+	}
+	
+	public double getMax() {
+		return max;
+	}
+	public void setMax(double max) {
+		this.max = max;
+	}
+	
+	public Map<String, Double> getPercentiles() {
+		return percentiles;
+	}
+	public void setPercentiles(Map<String, Double> percentiles) {
+		this.percentiles = percentiles;
+	}
+}
@@ -0,0 +1,38 @@
+package com.barclays.dto;
+
+/** Data Transfer Object (DTO) class holding the number of stored trades in a group,
+ * like a book or a counter party.
+ * 
+ * Live trades have expired flag N, expired trades have expired flag Y.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public class TradeCountDTO {
+	
+	private long live;
+	private long expired;
+	
+	public TradeCountDTO() {
+		super();
+	}
+	
+	public TradeCountDTO(long live, long expired) {
+		this.live = live;
+		this.expired = expired;
+	}
+	
+	public long getLive() {
+		return live;
+	}
+	public void setLive(long live) {
+		this.live = live;
+	}
+	
+	public long getExpired() {
+		return expired;
+	}
+	public void setExpired(long expired) {
+		this.expired = expired;
+	}
+}
@@ -0,0 +1,17 @@
+package com.barclays.dto;
+
+/** Projection holding the keys of a stored trade.
+ * 
+ * Used by the archive job to find trades to move without materializing Trade entities.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public interface TradeKey {
+	
+	public int getId();
+	
+	public String getTradeId();
+	
+	public int getVersion();
+}
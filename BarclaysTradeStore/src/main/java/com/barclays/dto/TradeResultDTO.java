@@ -0,0 +1,68 @@
+package com.barclays.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/** Data Transfer Object (DTO) class holding the outcome of one trade of a bulk request.
+ * 
+ * Message holds the property key of the rejection reason. It is resolved to a readable
+ * message by the API before being sent back.
+ * 
+ * Tracking id is set only for trades submitted for asynchronous processing.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public class TradeResultDTO {
+	
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String trackingId;
+	private String tradeId;
+	private int version;
+	private TradeStatus status;
+	private String message;
+	
+	public TradeResultDTO() {
+	}
+	
+	public TradeResultDTO(String tradeId, int version, TradeStatus status, String message) {
+		this.tradeId = tradeId;
+		this.version = version;
+		this.status = status;
+		this.message = message;
+	}
+	
+	public String getTrackingId() {
+		return trackingId;
+	}
+	public void setTrackingId(String trackingId) {
+		this.trackingId = trackingId;
+	}
+	
+	public String getTradeId() {
+		return tradeId;
+	}
+	public void setTradeId(String tradeId) {
+		this.tradeId = tradeId;
+	}
+	
+	public int getVersion() {
+		return version;
+	}
+	public void setVersion(int version) {
+		this.version = version;
+	}
+	
+	public TradeStatus getStatus() {
+		return status;
+	}
+	public void setStatus(TradeStatus status) {
+		this.status = status;
+	}
+	
+	public String getMessage() {
+		return message;
+	}
+	public void setMessage(String message) {
+		this.message = message;
+	}
+}
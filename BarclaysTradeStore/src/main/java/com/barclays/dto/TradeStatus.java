@@ -0,0 +1,15 @@
+package com.barclays.dto;
+
+/** Enum describing the outcome of processing a single trade.
+ * PENDING for trades waiting to be processed.
+ * ACCEPTED for trades that were added to the store.
+ * REJECTED for trades that failed validation.
+ * DUPLICATE for trades identical to the latest stored version, acknowledged without a write.
+ * FAILED for trades that couldn't be processed due to some issue.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public enum TradeStatus {
+	PENDING, ACCEPTED, REJECTED, DUPLICATE, FAILED;
+}
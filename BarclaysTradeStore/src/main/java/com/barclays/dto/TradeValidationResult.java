@@ -0,0 +1,43 @@
+package com.barclays.dto;
+
+import com.barclays.exception.BarclaysTradeStoreException;
+
+/** Enum describing the outcome of validating a single trade before it is stored.
+ * VALID for trades that can be stored.
+ * DUPLICATE for trades identical to the latest stored version.
+ * INVALID_TRADE, INVALID_MATURITY_DATE and LOWER_VERSION_TRADE for rejected trades.
+ * 
+ * Message holds the property key of the rejection reason. Every rejection also has a
+ * single exception without a stack trace, thrown by methods that report rejections
+ * as BarclaysTradeStoreException. Neither is allocated per trade.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public enum TradeValidationResult {
+	VALID(null),
+	DUPLICATE(null),
+	INVALID_TRADE("TradeIngestionService.INVALID_TRADE"),
+	INVALID_MATURITY_DATE("TradeStoreService.INVALID_MATURITY_DATE"),
+	LOWER_VERSION_TRADE("TradeStoreService.LOWER_VERSION_TRADE");
+	
+	private final String message;
+	private final BarclaysTradeStoreException exception;
+	
+	private TradeValidationResult(String message) {
+		this.message = message;
+		this.exception = message==null ? null : new BarclaysTradeStoreException(message, false);
+	}
+	
+	public String getMessage() {
+		return message;
+	}
+	
+	public BarclaysTradeStoreException getException() {
+		return exception;
+	}
+	
+	public boolean isRejected() {
+		return exception!=null;
+	}
+}
@@ -0,0 +1,15 @@
+package com.barclays.dto;
+
+/** Projection holding the latest version stored for a trade id.
+ * 
+ * Used to load the version index without materializing Trade entities.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public interface TradeVersion {
+	
+	public String getTradeId();
+	
+	public int getVersion();
+}
@@ -8,6 +8,7 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 
 import com.barclays.dto.Expired;
 
@@ -16,8 +17,13 @@ import com.barclays.dto.Expired;
  * Created to simplify DB operations by handling them programmatically
  * instead of writing and executing queries.
  * 
- * Primary Key generation strategy used here is IDENTITY.
- * It increases the value by 1 for every entry in the database.
+ * Primary Key generation strategy used here is a pooled SEQUENCE.
+ * A block of 50 ids is reserved from the trade_sequence with a single DB call and
+ * handed out from memory. On databases without sequences (like MySQL) trade_sequence
+ * is a single row table.
+ * 
+ * Unlike IDENTITY, ids are known before the INSERT is executed. This lets Hibernate
+ * send inserts to the database in JDBC batches.
  * 
  * Two Trade entity objects (or DB rows) are considered equal when their 
  * trade id and version are same.
@@ -29,7 +35,8 @@ import com.barclays.dto.Expired;
 public class Trade {
 	
 	@Id
-	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@GeneratedValue(strategy=GenerationType.SEQUENCE, generator="trade_sequence")
+	@SequenceGenerator(name="trade_sequence", sequenceName="trade_sequence", allocationSize=50)
 	private int id;
 	private String tradeId;
 	private int version;
@@ -0,0 +1,119 @@
+package com.barclays.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+
+import com.barclays.dto.Expired;
+
+/** Entity class for rows of the append-only trade history table.
+ * 
+ * Used when the store keeps only the latest version of every trade. Each row is a
+ * copy of a trade version taken at the moment it was superseded by a higher version.
+ * 
+ * Primary Key generation strategy used here is a pooled SEQUENCE, same as Trade.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Entity
+public class TradeHistory {
+	
+	@Id
+	@GeneratedValue(strategy=GenerationType.SEQUENCE, generator="trade_history_sequence")
+	@SequenceGenerator(name="trade_history_sequence", sequenceName="trade_history_sequence", allocationSize=50)
+	private int id;
+	private String tradeId;
+	private int version;
+	private String counterPartyId;
+	private String bookId;
+	private LocalDate maturityDate;
+	private LocalDate createdDate;
+	@Enumerated(EnumType.STRING)
+	private Expired expired;
+	private LocalDateTime supersededAt;
+	
+	public TradeHistory() {
+	}
+	
+	public TradeHistory(Trade trade, LocalDateTime supersededAt) {
+		this.tradeId = trade.getTradeId();
+		this.version = trade.getVersion();
+		this.counterPartyId = trade.getCounterPartyId();
+		this.bookId = trade.getBookId();
+		this.maturityDate = trade.getMaturityDate();
+		this.createdDate = trade.getCreatedDate();
+		this.expired = trade.getExpired();
+		this.supersededAt = supersededAt;
+	}
+	
+	public int getId() {
+		return id;
+	}
+	public void setId(int id) {
+		this.id = id;
+	}
+	
+	public String getTradeId() {
+		return tradeId;
+	}
+	public void setTradeId(String tradeId) {
+		this.tradeId = tradeId;
+	}
+	
+	public int getVersion() {
+		return version;
+	}
+	public void setVersion(int version) {
+		this.version = version;
+	}
+	
+	public String getCounterPartyId() {
+		return counterPartyId;
+	}
+	public void setCounterPartyId(String counterPartyId) {
+		this.counterPartyId = counterPartyId;
+	}
+	
+	public String getBookId() {
+		return bookId;
+	}
+	public void setBookId(String bookId) {
+		this.bookId = bookId;
+	}
+	
+	public LocalDate getMaturityDate() {
+		return maturityDate;
+	}
+	public void setMaturityDate(LocalDate maturityDate) {
+		this.maturityDate = maturityDate;
+	}
+	
+	public LocalDate getCreatedDate() {
+		return createdDate;
+	}
+	public void setCreatedDate(LocalDate createdDate) {
+		this.createdDate = createdDate;
+	}
+	
+	public Expired getExpired() {
+		return expired;
+	}
+	public void setExpired(Expired expired) {
+		this.expired = expired;
+	}
+	
+	public LocalDateTime getSupersededAt() {
+		return supersededAt;
+	}
+	public void setSupersededAt(LocalDateTime supersededAt) {
+		this.supersededAt = supersededAt;
+	}
+}
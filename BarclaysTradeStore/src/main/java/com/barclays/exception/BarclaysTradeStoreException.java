@@ -15,5 +15,15 @@ public class BarclaysTradeStoreException extends Exception {
 	public BarclaysTradeStoreException(String message) {
 		super(message);
 	}
+	
+	/** Creates an exception that can be thrown any number of times, as it records no
+	 * stack trace and no suppressed exceptions.
+	 * 
+	 * @param message -- property key of the rejection reason.
+	 * @param writableStackTrace -- false to leave out the stack trace.
+	 */
+	public BarclaysTradeStoreException(String message, boolean writableStackTrace) {
+		super(message, null, false, writableStackTrace);
+	}
 
 }
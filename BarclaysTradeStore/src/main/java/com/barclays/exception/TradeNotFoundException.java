@@ -0,0 +1,16 @@
+package com.barclays.exception;
+
+/** Custom exception class for look ups of trades that are not in the store.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public class TradeNotFoundException extends BarclaysTradeStoreException {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public TradeNotFoundException(String message) {
+		super(message);
+	}
+	
+}
@@ -0,0 +1,19 @@
+package com.barclays.exception;
+
+/** Custom exception class for trades that can't be accepted right now because the
+ * store is overloaded, like when the ingestion queue is full.
+ * 
+ * Clients are expected to retry the same trade later.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public class TradeStoreBusyException extends BarclaysTradeStoreException {
+
+	private static final long serialVersionUID = 1L;
+
+	public TradeStoreBusyException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.barclays.messaging;
+
+import java.util.List;
+
+/** Client of a partitioned, log-based message broker carrying trades.
+ * 
+ * Records are appended to a partition chosen by their trade id, see partitionOf, so all
+ * versions of a trade are read from one partition in the order they were sent. Every record
+ * has an offset in its partition and a consumer commits the offset of the next record it
+ * wants, after the records before it are stored.
+ * 
+ * Implementations adapt the client library of a broker and are provided as a bean when
+ * TradeLogConsumer is enabled. Each partition is only read by one thread at a time.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ * 
+ */
+public interface TradeLog {
+	
+	/** Number of partitions of the log.
+	 * 
+	 * @return -- number of partitions.
+	 */
+	public int getPartitionCount();
+	
+	/** Reads records of a partition starting at an offset, waiting for one to arrive when
+	 * there are none.
+	 * 
+	 * 
+	 * @param partition -- partition to be read.
+	 * @param offset -- offset of the first record to be read.
+	 * @param maxRecords -- maximum number of records returned.
+	 * @param timeout -- time in ms to wait for a record.
+	 * @return -- records in offset order, empty when none arrived within the timeout.
+	 * @throws InterruptedException -- thrown if interrupted while waiting.
+	 */
+	public List<TradeLogRecord> poll(int partition, long offset, int maxRecords, long timeout) throws InterruptedException;
+	
+	/** Offset reading of a partition is resumed from.
+	 * 
+	 * @param partition -- partition of the log.
+	 * @return -- last committed offset, 0 if nothing was committed.
+	 */
+	public long getCommittedOffset(int partition);
+	
+	/** Commits the offset reading of a partition is resumed from.
+	 * 
+	 * @param partition -- partition of the log.
+	 * @param offset -- offset of the next record to be read.
+	 */
+	public void commit(int partition, long offset);
+	
+	/** Offset the next record sent to a partition will get.
+	 * 
+	 * @param partition -- partition of the log.
+	 * @return -- end offset of the partition.
+	 */
+	public long getEndOffset(int partition);
+	
+	/** Partition a trade is sent to, to be used by producers.
+	 * 
+	 * 
+	 * @param tradeId -- trade id of the trade.
+	 * @param partitionCount -- number of partitions of the log.
+	 * @return -- partition of the trade.
+	 */
+	public static int partitionOf(String tradeId, int partitionCount) {
+		return Math.floorMod(tradeId.hashCode(), partitionCount);
+	}
+}
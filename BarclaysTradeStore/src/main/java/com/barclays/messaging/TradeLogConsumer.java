@@ -0,0 +1,218 @@
+package com.barclays.messaging;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.dto.TradeStatus;
+import com.barclays.service.TradeStoreService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/** Source of trades read from a partitioned TradeLog.
+ * 
+ * Enabled by setting TradeLogConsumer.ENABLED key to true in application.properties. A
+ * TradeLog bean for the broker in use must then be provided.
+ * 
+ * Every partition is read by its own thread. Records are partitioned by trade id, so
+ * versions of a trade are processed in the order they were sent and partitions never
+ * wait on each other. Up to TradeLogConsumer.BATCH_SIZE records are read at a time and
+ * passed to TradeStoreService.processTrades as one group. The offset after the group is
+ * committed once the group is stored, so a crash only ever replays trades. Writing a
+ * trade twice has no effect, as an identical version is acknowledged without a write.
+ * 
+ * A group that can't be stored isn't committed, it is read again from the committed offset
+ * after TradeLogConsumer.POLL_TIMEOUT ms. Rejected trades and records that aren't a valid
+ * trade are logged and committed, as sending them again wouldn't change the outcome.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ * 
+ */
+@Service(value="tradeLogConsumer")
+@ConditionalOnProperty(name="TradeLogConsumer.ENABLED", havingValue="true")
+public class TradeLogConsumer implements TradeSource, MeterBinder {
+	
+	private static final Log LOGGER = LogFactory.getLog(TradeLogConsumer.class);
+	
+	@Autowired
+	private TradeLog tradeLog;
+	
+	// Lazy since the service depends on the meter registry this bean is bound to
+	@Autowired
+	@Lazy
+	private TradeStoreService tradeStoreService;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	private final int batchSize;
+	private final long pollTimeout;
+	private ExecutorService consumers;
+	private volatile boolean running;
+	
+	public TradeLogConsumer(@Value("${TradeLogConsumer.BATCH_SIZE:500}") int batchSize,
+			@Value("${TradeLogConsumer.POLL_TIMEOUT:100}") long pollTimeout) {
+		
+		this.batchSize=batchSize;
+		this.pollTimeout=pollTimeout;
+	}
+	
+	@Override
+	public String getName() {
+		return "tradeLog";
+	}
+	
+	/** Starts one consumer thread per partition of the log.
+	 */
+	@PostConstruct
+	@Override
+	public void start() {
+		
+		running=true;
+		int partitionCount=tradeLog.getPartitionCount();
+		consumers=Executors.newFixedThreadPool(partitionCount, new CustomizableThreadFactory("trade-log-consumer-"));
+		for (int i=0; i<partitionCount; i++) {
+			int partition=i;
+			consumers.execute(() -> consume(partition));
+		}
+	}
+	
+	/** Stops the consumers once the groups being processed are stored and committed.
+	 * 
+	 * @throws InterruptedException -- thrown if interrupted while waiting for the consumers.
+	 */
+	@PreDestroy
+	@Override
+	public void stop() throws InterruptedException {
+		
+		running=false;
+		if (consumers==null)
+			return;
+		consumers.shutdown();
+		consumers.awaitTermination(30, TimeUnit.SECONDS);
+	}
+	
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+	
+	private void consume(int partition) {
+		
+		long offset=tradeLog.getCommittedOffset(partition);
+		List<TradeDTO> trades=new ArrayList<>(batchSize);
+		while (running) {
+			try {
+				offset=consumeBatch(partition, offset, trades);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException exception) {
+				offset=tradeLog.getCommittedOffset(partition);
+				LOGGER.error("Trades of partition "+partition+" could not be processed, retrying from offset "+offset, exception);
+				try {
+					TimeUnit.MILLISECONDS.sleep(pollTimeout);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			} finally {
+				trades.clear();
+			}
+		}
+	}
+	
+	/** Reads a group of records from a partition, stores its trades and commits the offset after it.
+	 * 
+	 * 
+	 * @param partition -- partition to be read.
+	 * @param offset -- offset of the first record to be read.
+	 * @param trades -- empty list reused by the consumer to hold the trades of the group.
+	 * @return -- offset of the next record to be read.
+	 * @throws InterruptedException -- thrown if interrupted while waiting for records.
+	 */
+	private long consumeBatch(int partition, long offset, List<TradeDTO> trades) throws InterruptedException {
+		
+		List<TradeLogRecord> records=tradeLog.poll(partition, offset, batchSize, pollTimeout);
+		if (records.isEmpty())
+			return offset;
+		
+		for (TradeLogRecord record: records) {
+			TradeDTO trade=decode(record);
+			if (trade!=null)
+				trades.add(trade);
+			else
+				LOGGER.warn("Skipped record at offset "+record.getOffset()+" of partition "+partition+" as it isn't a valid trade");
+		}
+		
+		if (!trades.isEmpty()) {
+			for (TradeResultDTO result: tradeStoreService.processTrades(trades)) {
+				if (result.getStatus()==TradeStatus.REJECTED)
+					LOGGER.warn("Trade "+result.getTradeId()+" version "+result.getVersion()+" was rejected: "+result.getMessage());
+			}
+		}
+		
+		long next=records.get(records.size()-1).getOffset()+1;
+		tradeLog.commit(partition, next);
+		return next;
+	}
+	
+	/** Reads the trade of a record, null when it isn't a trade that can be processed.
+	 */
+	private TradeDTO decode(TradeLogRecord record) {
+		
+		try {
+			TradeDTO trade=objectMapper.readValue(record.getValue(), TradeDTO.class);
+			if (trade.getTradeId()==null || trade.getMaturityDate()==null)
+				return null;
+			return trade;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
+	/** Number of records sent to the log and not yet committed.
+	 * 
+	 * @return -- sum of the lag of every partition.
+	 */
+	public long getLag() {
+		
+		long lag=0;
+		for (int i=0; i<tradeLog.getPartitionCount(); i++)
+			lag+=tradeLog.getEndOffset(i)-tradeLog.getCommittedOffset(i);
+		return lag;
+	}
+	
+	/** Publishes the consumer lag to the metrics registry.
+	 * 
+	 * 
+	 * @param registry -- registry the meters are bound to.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("trade.consumer.lag", this, TradeLogConsumer::getLag)
+				.description("Number of trades in the log waiting to be processed")
+				.register(registry);
+	}
+}
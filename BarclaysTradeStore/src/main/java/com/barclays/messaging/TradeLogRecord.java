@@ -0,0 +1,34 @@
+package com.barclays.messaging;
+
+/** Single record read from a partition of a TradeLog.
+ * 
+ * Key is the trade id the record was partitioned by and value holds the trade as JSON.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ * 
+ */
+public class TradeLogRecord {
+	
+	private final long offset;
+	private final String key;
+	private final byte[] value;
+	
+	public TradeLogRecord(long offset, String key, byte[] value) {
+		this.offset = offset;
+		this.key = key;
+		this.value = value;
+	}
+	
+	public long getOffset() {
+		return offset;
+	}
+	
+	public String getKey() {
+		return key;
+	}
+	
+	public byte[] getValue() {
+		return value;
+	}
+}
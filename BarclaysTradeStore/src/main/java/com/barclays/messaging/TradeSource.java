@@ -0,0 +1,36 @@
+package com.barclays.messaging;
+
+/** Interface for a source of trades other than the REST API.
+ * 
+ * A source receives trades from its transmission medium and passes them to
+ * TradeStoreService. Like the REST API it doesn't have any logic for validation
+ * or processing of its own.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ * 
+ */
+public interface TradeSource {
+	
+	/** Name of the source, used in logs.
+	 * 
+	 * @return -- name of the source.
+	 */
+	public String getName();
+	
+	/** Starts receiving trades.
+	 */
+	public void start();
+	
+	/** Stops receiving trades once the trades already received are processed.
+	 * 
+	 * @throws InterruptedException -- thrown if interrupted while waiting for processing to finish.
+	 */
+	public void stop() throws InterruptedException;
+	
+	/** Tells if the source is receiving trades.
+	 * 
+	 * @return -- true between start and stop.
+	 */
+	public boolean isRunning();
+}
@@ -0,0 +1,644 @@
+package com.barclays.repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeKey;
+import com.barclays.dto.TradeVersion;
+import com.barclays.entity.Trade;
+import com.barclays.store.OffHeapTradeTable;
+
+/** Implementation of TradeStoreRepository keeping trades off the Java heap.
+ * 
+ * Enabled by setting TradeStore.ENGINE key to offHeap in application.properties. Takes
+ * the place of the Spring Data JPA repository for the service layer, which runs on it
+ * unchanged. The trade history and archive tables stay in the database.
+ * 
+ * Trades are held in an OffHeapTradeTable, so tens of millions of them add nothing for
+ * the garbage collector to trace. Trade entities are created only for the trades returned
+ * by a query. Looking up the latest version of a trade id reads a single record.
+ * 
+ * The table is written to TradeStore.SNAPSHOT_PATH every TradeStore.SNAPSHOT_INTERVAL
+ * milliseconds when it has changed, and on shutdown. It is read back from there on
+ * startup. Trades stored after the last snapshot are lost by a crash.
+ * 
+ * Saved trades are applied as soon as they are saved and aren't undone when the
+ * surrounding DB transaction rolls back. Trade processors only save a trade once it has
+ * been validated, so there a rollback can only come from the commit itself.
+ * 
+ * Queries are answered under a read lock and changes are made under a write lock.
+ * copyToArchive reads the expired records and writes them to the archive table with a
+ * JDBC batch insert in the surrounding DB transaction, keeping their record ids.
+ * deleteExpiredTrades removes the records only once that transaction commits, so that
+ * archived trades are never lost from both the table and the archive.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name="TradeStore.ENGINE", havingValue="offHeap")
+public class OffHeapTradeStoreRepository implements TradeStoreRepository {
+	
+	private static final Log LOGGER = LogFactory.getLog(OffHeapTradeStoreRepository.class);
+	
+	private final Lock readLock;
+	private final Lock writeLock;
+	private OffHeapTradeTable table=new OffHeapTradeTable();
+	private volatile boolean changed;
+	
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	@Value("${TradeStore.SNAPSHOT_PATH:trade-store.snapshot}")
+	private String snapshotPath;
+	
+	public OffHeapTradeStoreRepository() {
+		ReentrantReadWriteLock lock=new ReentrantReadWriteLock();
+		readLock=lock.readLock();
+		writeLock=lock.writeLock();
+	}
+	
+	/** Reads the table back from the snapshot file, when there is one.
+	 * 
+	 * @throws IOException -- thrown when the snapshot can't be read.
+	 */
+	@PostConstruct
+	public void load() throws IOException {
+		
+		Path path=Paths.get(snapshotPath);
+		if (!Files.exists(path))
+			return;
+		writeLock.lock();
+		try {
+			table=OffHeapTradeTable.readFrom(path);
+		} finally {
+			writeLock.unlock();
+		}
+		LOGGER.info("Loaded "+table.getCount()+" trades from "+path);
+	}
+	
+	/** Writes the table to the snapshot file when it has changed since the last snapshot.
+	 * Changes wait until the snapshot is written.
+	 * 
+	 * @throws IOException -- thrown when the snapshot can't be written.
+	 */
+	@PreDestroy
+	public void snapshot() throws IOException {
+		
+		readLock.lock();
+		try {
+			if (!changed)
+				return;
+			changed=false;
+			table.writeTo(Paths.get(snapshotPath));
+		} catch (IOException exception) {
+			changed=true;
+			throw exception;
+		} finally {
+			readLock.unlock();
+		}
+	}
+	
+	/** Scheduled execution of snapshot. A failed snapshot is logged and tried again on the next run.
+	 */
+	@Scheduled(fixedDelayString="${TradeStore.SNAPSHOT_INTERVAL:60000}", initialDelayString="${TradeStore.SNAPSHOT_INTERVAL:60000}")
+	public void runScheduledSnapshot() {
+		
+		try {
+			snapshot();
+		} catch (IOException exception) {
+			LOGGER.error("Trade store snapshot failed", exception);
+		}
+	}
+	
+	@Override
+	public List<Trade> findByTradeId(String tradeId) {
+		return findVersions(tradeId, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+	
+	@Override
+	public List<Trade> findByTradeIdOrderByVersion(String tradeId) {
+		
+		List<Trade> trades=findByTradeId(tradeId);
+		Collections.reverse(trades);
+		return trades;
+	}
+	
+	@Override
+	public Optional<Trade> findFirstByTradeIdOrderByVersionDesc(String tradeId) {
+		
+		readLock.lock();
+		try {
+			int id=table.getHead(tradeId);
+			return id==0 ? Optional.empty() : Optional.of(toTrade(id));
+		} finally {
+			readLock.unlock();
+		}
+	}
+	
+	@Override
+	public List<Trade> findByTradeIdIn(Collection<String> tradeIds) {
+		
+		List<Trade> trades=new ArrayList<>();
+		for (String tradeId: tradeIds)
+			trades.addAll(findByTradeId(tradeId));
+		return trades;
+	}
+	
+	@Override
+	public List<Trade> findByTradeIdAndVersionGreaterThan(String tradeId, int version) {
+		return version==Integer.MAX_VALUE ? new ArrayList<>() : findVersions(tradeId, version+1, Integer.MAX_VALUE);
+	}
+	
+	@Override
+	public List<Trade> findByTradeIdAndVersionLessThan(String tradeId, int version) {
+		return version==Integer.MIN_VALUE ? new ArrayList<>() : findVersions(tradeId, Integer.MIN_VALUE, version-1);
+	}
+	
+	@Override
+	public Optional<Trade> findOneByTradeIdAndVersion(String tradeId, int version) {
+		
+		List<Trade> trades=findVersions(tradeId, version, version);
+		return trades.isEmpty() ? Optional.empty() : Optional.of(trades.get(0));
+	}
+	
+	@Override
+	public List<TradeVersion> findLatestVersions() {
+		
+		readLock.lock();
+		try {
+			List<TradeVersion> versions=new ArrayList<>();
+			for (int tradeIdRef=1; tradeIdRef<=table.getTradeIdCount(); tradeIdRef++) {
+				int id=table.getHead(tradeIdRef);
+				if (id!=0)
+					versions.add(new LatestVersion(table.getTradeId(id), table.getVersion(id)));
+			}
+			return versions;
+		} finally {
+			readLock.unlock();
+		}
+	}
+	
+	@Override
+	public List<TradeVersion> findLatestArchivedVersions() {
+		return jdbcTemplate.query("select trade_id, max(version) from trade_archive group by trade_id", 
+				(resultSet, row) -> new LatestVersion(resultSet.getString(1), resultSet.getInt(2)));
+	}
+	
+	@Override
+	public List<Integer> findMaturedTradeIds(LocalDate from, LocalDate today, Expired expired, int afterId, Pageable pageable) {
+		
+		int fromDay=(int)from.toEpochDay();
+		int todayDay=(int)today.toEpochDay();
+		byte expiredCode=toCode(expired);
+		int limit=limit(pageable);
+		
+		readLock.lock();
+		try {
+			List<Integer> ids=new ArrayList<>();
+			for (int id=afterId+1; id<=table.getLastId() && ids.size()<limit; id++) {
+				if (table.isLive(id) && isMatured(id, fromDay, todayDay) && table.getExpired(id)==expiredCode)
+					ids.add(id);
+			}
+			return ids;
+		} finally {
+			readLock.unlock();
+		}
+	}
+	
+	@Override
+	public List<Trade> findTradesAfter(String bookId, String counterPartyId, Expired expired, int afterId, Pageable pageable) {
+		
+		int limit=limit(pageable);
+		readLock.lock();
+		try {
+			int bookRef=table.findName(bookId);
+			int counterPartyRef=table.findName(counterPartyId);
+			List<Trade> trades=new ArrayList<>();
+			if ((bookId!=null && bookRef==0) || (counterPartyId!=null && counterPartyRef==0))
+				return trades;
+			
+			for (int id=afterId+1; id<=table.getLastId() && trades.size()<limit; id++) {
+				if (table.isLive(id) && (bookId==null || table.getBookRef(id)==bookRef)
+						&& (counterPartyId==null || table.getCounterPartyRef(id)==counterPartyRef)
+						&& (expired==null || table.getExpired(id)==toCode(expired)))
+					trades.add(toTrade(id));
+			}
+			return trades;
+		} finally {
+			readLock.unlock();
+		}
+	}
+	
+	@Override
+	public int expireMaturedTrades(LocalDate from, LocalDate today, int fromId, int toId) {
+		
+		int fromDay=(int)from.toEpochDay();
+		int todayDay=(int)today.toEpochDay();
+		writeLock.lock();
+		try {
+			int updated=0;
+			for (int id=fromId+1; id<=Math.min(toId, table.getLastId()); id++) {
+				if (table.isLive(id) && isMatured(id, fromDay, todayDay) && table.getExpired(id)==toCode(Expired.N)) {
+					table.setExpired(id, toCode(Expired.Y));
+					updated++;
+				}
+			}
+			changed|=updated>0;
+			return updated;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	@Override
+	public int expireTrades(Collection<Integer> ids, LocalDate today) {
+		
+		int todayDay=(int)today.toEpochDay();
+		writeLock.lock();
+		try {
+			int updated=0;
+			for (int id: ids) {
+				if (table.isLive(id) && isMatured(id, OffHeapTradeTable.NULL_DATE+1, todayDay) && table.getExpired(id)==toCode(Expired.N)) {
+					table.setExpired(id, toCode(Expired.Y));
+					updated++;
+				}
+			}
+			changed|=updated>0;
+			return updated;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	@Override
+	public List<TradeKey> findExpiredTradeKeys(LocalDate before, int afterId, Pageable pageable) {
+		
+		int beforeDay=(int)before.toEpochDay();
+		int limit=limit(pageable);
+		readLock.lock();
+		try {
+			List<TradeKey> keys=new ArrayList<>();
+			for (int id=afterId+1; id<=table.getLastId() && keys.size()<limit; id++) {
+				if (table.isLive(id) && isMatured(id, OffHeapTradeTable.NULL_DATE+1, beforeDay) && table.getExpired(id)==toCode(Expired.Y))
+					keys.add(new Key(id, table.getTradeId(id), table.getVersion(id)));
+			}
+			return keys;
+		} finally {
+			readLock.unlock();
+		}
+	}
+	
+	@Override
+	public int copyToArchive(Collection<Integer> ids, LocalDateTime archivedAt) {
+		
+		List<Trade> trades=new ArrayList<>(ids.size());
+		readLock.lock();
+		try {
+			for (int id: ids) {
+				if (table.isLive(id) && table.getExpired(id)==toCode(Expired.Y))
+					trades.add(toTrade(id));
+			}
+		} finally {
+			readLock.unlock();
+		}
+		
+		if (trades.isEmpty())
+			return 0;
+		jdbcTemplate.batchUpdate("insert into trade_archive (id, trade_id, version, counter_party_id, book_id, "
+				+ "maturity_date, created_date, expired, archived_at) values (?, ?, ?, ?, ?, ?, ?, ?, ?)", 
+				trades, trades.size(), (statement, trade) -> {
+					statement.setInt(1, trade.getId());
+					statement.setString(2, trade.getTradeId());
+					statement.setInt(3, trade.getVersion());
+					statement.setString(4, trade.getCounterPartyId());
+					statement.setString(5, trade.getBookId());
+					statement.setObject(6, trade.getMaturityDate());
+					statement.setObject(7, trade.getCreatedDate());
+					statement.setString(8, trade.getExpired().name());
+					statement.setObject(9, archivedAt);
+				});
+		return trades.size();
+	}
+	
+	/** Deletes the expired trades among the ids once the surrounding transaction commits.
+	 * Deleted immediately when no transaction is active.
+	 */
+	@Override
+	public int deleteExpiredTrades(Collection<Integer> ids) {
+		
+		List<Integer> expiredIds=new ArrayList<>(ids.size());
+		readLock.lock();
+		try {
+			for (int id: ids) {
+				if (table.isLive(id) && table.getExpired(id)==toCode(Expired.Y))
+					expiredIds.add(id);
+			}
+		} finally {
+			readLock.unlock();
+		}
+		
+		if (!expiredIds.isEmpty())
+			afterCommit(() -> removeExpired(expiredIds));
+		return expiredIds.size();
+	}
+	
+	private void removeExpired(List<Integer> ids) {
+		
+		writeLock.lock();
+		try {
+			// Checked again, as the table isn't locked until the commit
+			for (int id: ids) {
+				if (table.isLive(id) && table.getExpired(id)==toCode(Expired.Y))
+					table.remove(id);
+			}
+			changed=true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/** Saves a trade, adding a record when the trade has no id yet or its record was removed.
+	 * New records get their id set on the trade, like a generated primary key.
+	 */
+	@Override
+	public <S extends Trade> S save(S trade) {
+		
+		writeLock.lock();
+		try {
+			write(trade);
+			return trade;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	@Override
+	public <S extends Trade> Iterable<S> saveAll(Iterable<S> trades) {
+		
+		List<S> saved=new ArrayList<>();
+		writeLock.lock();
+		try {
+			for (S trade: trades) {
+				write(trade);
+				saved.add(trade);
+			}
+			return saved;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	@Override
+	public Optional<Trade> findById(Integer id) {
+		
+		readLock.lock();
+		try {
+			return table.isLive(id) ? Optional.of(toTrade(id)) : Optional.empty();
+		} finally {
+			readLock.unlock();
+		}
+	}
+	
+	@Override
+	public boolean existsById(Integer id) {
+		
+		readLock.lock();
+		try {
+			return table.isLive(id);
+		} finally {
+			readLock.unlock();
+		}
+	}
+	
+	@Override
+	public Iterable<Trade> findAll() {
+		return findTradesAfter(null, null, null, 0, Pageable.unpaged());
+	}
+	
+	@Override
+	public Iterable<Trade> findAllById(Iterable<Integer> ids) {
+		
+		List<Trade> trades=new ArrayList<>();
+		for (Integer id: ids)
+			findById(id).ifPresent(trades::add);
+		return trades;
+	}
+	
+	@Override
+	public long count() {
+		
+		readLock.lock();
+		try {
+			return table.getCount();
+		} finally {
+			readLock.unlock();
+		}
+	}
+	
+	@Override
+	public void deleteById(Integer id) {
+		
+		writeLock.lock();
+		try {
+			if (table.isLive(id)) {
+				table.remove(id);
+				changed=true;
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	@Override
+	public void delete(Trade trade) {
+		deleteById(trade.getId());
+	}
+	
+	@Override
+	public void deleteAllById(Iterable<? extends Integer> ids) {
+		for (Integer id: ids)
+			deleteById(id);
+	}
+	
+	@Override
+	public void deleteAll(Iterable<? extends Trade> trades) {
+		for (Trade trade: trades)
+			delete(trade);
+	}
+	
+	@Override
+	public void deleteAll() {
+		
+		writeLock.lock();
+		try {
+			table=new OffHeapTradeTable();
+			changed=true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/** Finds versions of a trade id within a range, highest version first.
+	 */
+	private List<Trade> findVersions(String tradeId, int lowest, int highest) {
+		
+		readLock.lock();
+		try {
+			List<Trade> trades=new ArrayList<>();
+			for (int id=table.getHead(tradeId); id!=0; id=table.getPrevious(id)) {
+				int version=table.getVersion(id);
+				if (version<lowest)
+					break;
+				if (version<=highest)
+					trades.add(toTrade(id));
+			}
+			return trades;
+		} finally {
+			readLock.unlock();
+		}
+	}
+	
+	private void write(Trade trade) {
+		
+		int maturityDate=toEpochDay(trade.getMaturityDate());
+		int createdDate=toEpochDay(trade.getCreatedDate());
+		if (table.isLive(trade.getId())) {
+			table.update(trade.getId(), trade.getTradeId(), trade.getVersion(), trade.getCounterPartyId(), trade.getBookId(),
+					maturityDate, createdDate, toCode(trade.getExpired()));
+		} else {
+			trade.setId(table.insert(trade.getTradeId(), trade.getVersion(), trade.getCounterPartyId(), trade.getBookId(),
+					maturityDate, createdDate, toCode(trade.getExpired())));
+		}
+		changed=true;
+	}
+	
+	private Trade toTrade(int id) {
+		
+		Trade trade=new Trade();
+		trade.setId(id);
+		trade.setTradeId(table.getTradeId(id));
+		trade.setVersion(table.getVersion(id));
+		trade.setCounterPartyId(table.getCounterPartyId(id));
+		trade.setBookId(table.getBookId(id));
+		trade.setMaturityDate(toDate(table.getMaturityDate(id)));
+		trade.setCreatedDate(toDate(table.getCreatedDate(id)));
+		byte expired=table.getExpired(id);
+		trade.setExpired(expired==OffHeapTradeTable.NULL_EXPIRED ? null : Expired.valueOf(String.valueOf((char)expired)));
+		return trade;
+	}
+	
+	private boolean isMatured(int id, int fromDay, int todayDay) {
+		int maturityDate=table.getMaturityDate(id);
+		return maturityDate!=OffHeapTradeTable.NULL_DATE && maturityDate>=fromDay && maturityDate<todayDay;
+	}
+	
+	private static int limit(Pageable pageable) {
+		return pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+	}
+	
+	private static byte toCode(Expired expired) {
+		return expired==null ? OffHeapTradeTable.NULL_EXPIRED : (byte)expired.name().charAt(0);
+	}
+	
+	private static int toEpochDay(LocalDate date) {
+		return date==null ? OffHeapTradeTable.NULL_DATE : (int)date.toEpochDay();
+	}
+	
+	private static LocalDate toDate(int epochDay) {
+		return epochDay==OffHeapTradeTable.NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+	}
+	
+	private static void afterCommit(Runnable action) {
+		
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+	
+	private static class LatestVersion implements TradeVersion {
+		
+		private final String tradeId;
+		private final int version;
+		
+		LatestVersion(String tradeId, int version) {
+			this.tradeId=tradeId;
+			this.version=version;
+		}
+		
+		@Override
+		public String getTradeId() {
+			return tradeId;
+		}
+		
+		@Override
+		public int getVersion() {
+			return version;
+		}
+	}
+	
+	private static class Key implements TradeKey {
+		
+		private final int id;
+		private final String tradeId;
+		private final int version;
+		
+		Key(int id, String tradeId, int version) {
+			this.id=id;
+			this.tradeId=tradeId;
+			this.version=version;
+		}
+		
+		@Override
+		public int getId() {
+			return id;
+		}
+		
+		@Override
+		public String getTradeId() {
+			return tradeId;
+		}
+		
+		@Override
+		public int getVersion() {
+			return version;
+		}
+	}
+}
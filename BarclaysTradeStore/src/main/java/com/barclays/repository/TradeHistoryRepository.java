@@ -0,0 +1,28 @@
+package com.barclays.repository;
+
+import java.util.List;
+
+import org.springframework.data.repository.CrudRepository;
+
+import com.barclays.entity.TradeHistory;
+
+
+/** Data Access Object (DAO)/Repository interface for the trade history table.
+ * 
+ * This is automatically implemented by Spring via Hibernate.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public interface TradeHistoryRepository extends CrudRepository<TradeHistory, Integer> {
+	
+	
+	/** Finds all the superseded versions of a specific trade id.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @return -- List of TradeHistory entities that match the mentioned criteria.
+	 */
+	public List<TradeHistory> findByTradeId(String tradeId);
+}
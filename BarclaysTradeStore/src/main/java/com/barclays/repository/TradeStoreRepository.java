@@ -1,12 +1,20 @@
 package com.barclays.repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import com.barclays.dto.Expired;
+import com.barclays.dto.TradeKey;
+import com.barclays.dto.TradeVersion;
 import com.barclays.entity.Trade;
 
 
@@ -32,6 +40,30 @@ public interface TradeStoreRepository extends CrudRepository<Trade, Integer> {
 	 */
 	public List<Trade> findByTradeId(String tradeId);
 	
+	/** Finds all the trades that match a specific trade id, lowest version first.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @return -- List of Trade entities that match the mentioned criteria.
+	 */
+	public List<Trade> findByTradeIdOrderByVersion(String tradeId);
+	
+	/** Finds the trade with the highest version for a specific trade id.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @return -- Trade entity that matches the mentioned criteria.
+	 */
+	public Optional<Trade> findFirstByTradeIdOrderByVersionDesc(String tradeId);
+	
+	/** Finds all the trades that match any of the given trade ids.
+	 * 
+	 * 
+	 * @param tradeIds -- collection of trade ids. Like "T1", "T2".
+	 * @return -- List of Trade entities that match the mentioned criteria.
+	 */
+	public List<Trade> findByTradeIdIn(Collection<String> tradeIds);
+	
 	/** Finds all the trades that match a specific trade id and have
 	 * version greater than the one passed to this method.
 	 * 
@@ -42,6 +74,16 @@ public interface TradeStoreRepository extends CrudRepository<Trade, Integer> {
 	 */
 	public List<Trade> findByTradeIdAndVersionGreaterThan(String tradeId, int version);
 	
+	/** Finds all the trades that match a specific trade id and have
+	 * version less than the one passed to this method.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @param version -- integer value for trade version. Like 1.
+	 * @return -- List of Trade entities that match the mentioned criteria.
+	 */
+	public List<Trade> findByTradeIdAndVersionLessThan(String tradeId, int version);
+	
 	/** Finds all the trades that match a specific trade id and version.
 	 * 
 	 * 
@@ -51,13 +93,126 @@ public interface TradeStoreRepository extends CrudRepository<Trade, Integer> {
 	 */
 	public Optional<Trade> findOneByTradeIdAndVersion(String tradeId, int version);
 	
-	/** Finds all the trades that have maturity date of past and expired flag
-	 * set to 'N'.
+	/** Finds the highest version stored for every trade id.
+	 * 
+	 * 
+	 * @return -- List of trade id and latest version pairs.
+	 */
+	@Query("select t.tradeId as tradeId, max(t.version) as version from Trade t group by t.tradeId")
+	public List<TradeVersion> findLatestVersions();
+	
+	/** Finds the highest version moved to the trade archive table for every trade id.
+	 * 
+	 * 
+	 * @return -- List of trade id and latest archived version pairs.
+	 */
+	@Query(nativeQuery=true, value="select trade_id as tradeId, max(version) as version from trade_archive group by trade_id")
+	public List<TradeVersion> findLatestArchivedVersions();
+	
+	/** Finds ids of trades that have maturity date in a range of past dates and expired 
+	 * flag set to 'N', starting after a given id in ascending id order.
+	 * 
+	 * Used for keyset pagination over matured trades. Only ids are loaded, no entities.
+	 * The maturity date range lets a table partitioned by maturity month skip every
+	 * partition outside of it.
 	 * 
 	 * 
+	 * @param from -- earliest maturity date looked at.
 	 * @param today -- present day date.
 	 * @param expired -- N value of Expired enum.
-	 * @return -- List of Trade entities that match the mentioned criteria.
+	 * @param afterId -- id of the last trade of the previous page. 0 for the first page.
+	 * @param pageable -- holds the number of ids to find.
+	 * @return -- List of trade ids in ascending order.
+	 */
+	@Query("select t.id from Trade t where t.maturityDate >= :from and t.maturityDate < :today "
+			+ "and t.expired = :expired and t.id > :afterId order by t.id")
+	public List<Integer> findMaturedTradeIds(@Param("from") LocalDate from, @Param("today") LocalDate today, 
+			@Param("expired") Expired expired, @Param("afterId") int afterId, Pageable pageable);
+	
+	/** Finds trades matching optional book id, counter party id and expired flag,
+	 * starting after a given id in ascending id order.
+	 * 
+	 * Used for keyset pagination by the read API. A null criteria matches every trade.
+	 * 
+	 * 
+	 * @param bookId -- string value for book id, or null. Like "B1".
+	 * @param counterPartyId -- string value for counter party id, or null. Like "CP-1".
+	 * @param expired -- value of Expired enum, or null.
+	 * @param afterId -- id of the last trade of the previous page. 0 for the first page.
+	 * @param pageable -- holds the number of trades to find.
+	 * @return -- List of Trade entities in ascending id order.
+	 */
+	@Query("select t from Trade t where (:bookId is null or t.bookId = :bookId) "
+			+ "and (:counterPartyId is null or t.counterPartyId = :counterPartyId) "
+			+ "and (:expired is null or t.expired = :expired) and t.id > :afterId order by t.id")
+	public List<Trade> findTradesAfter(@Param("bookId") String bookId, @Param("counterPartyId") String counterPartyId,
+			@Param("expired") Expired expired, @Param("afterId") int afterId, Pageable pageable);
+	
+	/** Sets expired flag to 'Y' on trades in an id range that have maturity date in a range
+	 * of past dates and expired flag set to 'N'. Executed as a single UPDATE statement.
+	 * 
+	 * 
+	 * @param from -- earliest maturity date looked at.
+	 * @param today -- present day date.
+	 * @param fromId -- ids greater than this are updated.
+	 * @param toId -- ids up to and including this are updated.
+	 * @return -- number of trades updated.
+	 */
+	@Modifying
+	@Query("update Trade t set t.expired = com.barclays.dto.Expired.Y where t.maturityDate >= :from "
+			+ "and t.maturityDate < :today and t.expired = com.barclays.dto.Expired.N and t.id > :fromId and t.id <= :toId")
+	public int expireMaturedTrades(@Param("from") LocalDate from, @Param("today") LocalDate today, 
+			@Param("fromId") int fromId, @Param("toId") int toId);
+	
+	/** Sets expired flag to 'Y' on trades with the given ids that have a past maturity date
+	 * and expired flag set to 'N'. Executed as a single UPDATE statement.
+	 * 
+	 * 
+	 * @param ids -- ids of the trades to expire.
+	 * @param today -- present day date.
+	 * @return -- number of trades updated.
+	 */
+	@Modifying
+	@Query("update Trade t set t.expired = com.barclays.dto.Expired.Y where t.id in :ids "
+			+ "and t.maturityDate < :today and t.expired = com.barclays.dto.Expired.N")
+	public int expireTrades(@Param("ids") Collection<Integer> ids, @Param("today") LocalDate today);
+	
+	/** Finds keys of expired trades that matured before a given date, starting after a
+	 * given id in ascending id order.
+	 * 
+	 * Used for keyset pagination by the archive job.
+	 * 
+	 * 
+	 * @param before -- trades maturing before this date are found.
+	 * @param afterId -- id of the last trade of the previous page. 0 for the first page.
+	 * @param pageable -- holds the number of trades to find.
+	 * @return -- List of trade keys in ascending id order.
+	 */
+	@Query("select t.id as id, t.tradeId as tradeId, t.version as version from Trade t "
+			+ "where t.maturityDate < :before and t.expired = com.barclays.dto.Expired.Y and t.id > :afterId order by t.id")
+	public List<TradeKey> findExpiredTradeKeys(@Param("before") LocalDate before, @Param("afterId") int afterId, Pageable pageable);
+	
+	/** Copies expired trades with the given ids to the trade archive table.
+	 * Executed as a single INSERT ... SELECT statement.
+	 * 
+	 * 
+	 * @param ids -- ids of the trades to copy.
+	 * @param archivedAt -- time recorded against the copies.
+	 * @return -- number of trades copied.
+	 */
+	@Modifying
+	@Query(nativeQuery=true, value="insert into trade_archive (id, trade_id, version, counter_party_id, book_id, "
+			+ "maturity_date, created_date, expired, archived_at) select id, trade_id, version, counter_party_id, book_id, "
+			+ "maturity_date, created_date, expired, :archivedAt from trade where id in (:ids) and expired = 'Y'")
+	public int copyToArchive(@Param("ids") Collection<Integer> ids, @Param("archivedAt") LocalDateTime archivedAt);
+	
+	/** Deletes expired trades with the given ids. Executed as a single DELETE statement.
+	 * 
+	 * 
+	 * @param ids -- ids of the trades to delete.
+	 * @return -- number of trades deleted.
 	 */
-	public List<Trade> findByMaturityDateLessThanAndExpiredEquals(LocalDate today, Expired expired);
+	@Modifying
+	@Query("delete from Trade t where t.id in :ids and t.expired = com.barclays.dto.Expired.Y")
+	public int deleteExpiredTrades(@Param("ids") Collection<Integer> ids);
 }
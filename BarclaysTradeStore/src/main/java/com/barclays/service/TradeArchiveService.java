@@ -0,0 +1,21 @@
+package com.barclays.service;
+
+/** Interface for the archive job.
+ * 
+ * One method must be implemented to move expired trades past the retention window
+ * out of the trade table. It is invoked periodically when the job is enabled and
+ * on demand through the REST API.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public interface TradeArchiveService {
+	
+	/** Method to move expired trades past the retention window to the archive once.
+	 * 
+	 * 
+	 * @return -- number of trades that were archived.
+	 */
+	public int archiveExpiredTrades();
+}
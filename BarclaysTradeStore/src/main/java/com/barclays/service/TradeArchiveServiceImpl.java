@@ -0,0 +1,159 @@
+package com.barclays.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.barclays.dto.TradeKey;
+import com.barclays.repository.TradeStoreRepository;
+import com.barclays.store.TradeCache;
+import com.barclays.store.TradeSecondaryIndex;
+import com.barclays.utility.TradeLockManager;
+
+/** Implementation of the TradeArchiveService interface.
+ * Moves expired trades that matured more than TradeArchive.RETENTION_DAYS days ago
+ * from the trade table to the trade_archive table.
+ * 
+ * Trades are moved in chunks of TradeArchive.CHUNK_SIZE ids. Every chunk is copied with
+ * one INSERT ... SELECT and deleted with one DELETE in the same DB transaction, under the
+ * locks of only the trade ids in the chunk. The job sleeps for TradeArchive.CHUNK_PAUSE
+ * ms between chunks so that ingestion keeps most of the DB and lock capacity.
+ * 
+ * A chunk is either moved completely or not at all. A run that is interrupted, by a
+ * failure or a shutdown, leaves the remaining trades in the trade table and the next
+ * run carries on with them.
+ * 
+ * Scheduled runs happen every TradeArchive.INTERVAL ms when TradeArchive.ENABLED is true.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Service(value="tradeArchiveService")
+public class TradeArchiveServiceImpl implements TradeArchiveService {
+	
+	private static final Log LOGGER = LogFactory.getLog(TradeArchiveServiceImpl.class);
+	
+	@Autowired
+	private TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired
+	private TradeLockManager tradeLockManager;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private TradeCache tradeCache;
+	
+	@Autowired
+	private TradeSecondaryIndex tradeSecondaryIndex;
+	
+	@Value("${TradeArchive.ENABLED:false}")
+	private boolean enabled;
+	
+	@Value("${TradeArchive.RETENTION_DAYS:90}")
+	private int retentionDays;
+	
+	@Value("${TradeArchive.CHUNK_SIZE:500}")
+	private int chunkSize;
+	
+	@Value("${TradeArchive.CHUNK_PAUSE:100}")
+	private long chunkPause;
+	
+	private volatile boolean stopping;
+	
+	/** Scheduled execution of the archive job. Does nothing unless the job is enabled.
+	 */
+	@Scheduled(fixedDelayString="${TradeArchive.INTERVAL:3600000}", initialDelayString="${TradeArchive.INTERVAL:3600000}")
+	public void runScheduled() {
+		if (enabled)
+			archiveExpiredTrades();
+	}
+	
+	/** Stops a run in progress after its current chunk.
+	 */
+	@PreDestroy
+	public void stop() {
+		stopping=true;
+	}
+	
+	@Override
+	public synchronized int archiveExpiredTrades() {
+		
+		LocalDate before=LocalDate.now().minusDays(retentionDays);
+		int archivedTrades=0;
+		int lastId=0;
+		
+		while (!stopping) {
+			List<TradeKey> keys=tradeStoreRepository.findExpiredTradeKeys(before, lastId, PageRequest.of(0, chunkSize));
+			if (keys.isEmpty())
+				break;
+			
+			archivedTrades+=archive(keys);
+			lastId=keys.get(keys.size()-1).getId();
+			
+			if (keys.size()<chunkSize || !pause())
+				break;
+		}
+		
+		LOGGER.info("Archived "+archivedTrades+" expired trades maturing before "+before);
+		return archivedTrades;
+	}
+	
+	private int archive(List<TradeKey> keys) {
+		
+		List<Integer> ids=new ArrayList<>(keys.size());
+		Set<String> tradeIds=new HashSet<>();
+		for (TradeKey key: keys) {
+			ids.add(key.getId());
+			tradeIds.add(key.getTradeId());
+		}
+		
+		int archived;
+		int[] locks=tradeLockManager.lock(tradeIds);
+		try {
+			archived=transactionTemplate.execute(status -> {
+				int copied=tradeStoreRepository.copyToArchive(ids, LocalDateTime.now());
+				int deleted=tradeStoreRepository.deleteExpiredTrades(ids);
+				if (copied!=deleted)
+					throw new IllegalStateException("Copied "+copied+" trades to the archive but deleted "+deleted);
+				return deleted;
+			});
+		} finally {
+			tradeLockManager.unlock(locks);
+		}
+		
+		for (TradeKey key: keys)
+			tradeCache.invalidate(key.getTradeId(), key.getVersion());
+		tradeSecondaryIndex.remove(ids);
+		return archived;
+	}
+	
+	private boolean pause() {
+		
+		if (chunkPause<=0)
+			return true;
+		try {
+			Thread.sleep(chunkPause);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
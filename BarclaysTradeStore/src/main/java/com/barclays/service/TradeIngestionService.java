@@ -0,0 +1,36 @@
+package com.barclays.service;
+
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.exception.BarclaysTradeStoreException;
+
+/** Interface for asynchronous ingestion of trades.
+ * 
+ * Trades are accepted into a bounded queue and processed later by background workers.
+ * Callers get a tracking id which can be used to look up the outcome.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public interface TradeIngestionService {
+	
+	/** Queues a trade for processing after checks that don't need the store.
+	 * 
+	 * 
+	 * @param trade -- Trade DTO object containing trade information.
+	 * @return -- PENDING result holding the tracking id of the trade.
+	 * @throws BarclaysTradeStoreException -- thrown when trade request is bad, or as
+	 * TradeStoreBusyException when the queue is full.
+	 */
+	public TradeResultDTO submitTrade(TradeDTO trade) throws BarclaysTradeStoreException;
+	
+	/** Finds the outcome of a trade submitted earlier.
+	 * 
+	 * 
+	 * @param trackingId -- tracking id returned when the trade was submitted.
+	 * @return -- result of the trade, PENDING until it is processed.
+	 * @throws BarclaysTradeStoreException -- thrown when tracking id is unknown or has expired.
+	 */
+	public TradeResultDTO getTradeResult(String trackingId) throws BarclaysTradeStoreException;
+}
@@ -0,0 +1,243 @@
+package com.barclays.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.dto.TradeStatus;
+import com.barclays.dto.TradeValidationResult;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.exception.TradeStoreBusyException;
+import com.barclays.utility.TradeValidator;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/** Implementation of the TradeIngestionService interface.
+ * 
+ * Received trades are spread over a fixed number of partitions by trade id. Each partition
+ * is a bounded queue drained by its own worker thread, so versions of a trade are always
+ * processed in the order they were received, without workers waiting on each other.
+ * 
+ * Workers take up to TradeIngestion.BATCH_SIZE trades at a time from their queue and pass
+ * them to TradeStoreService.processTrades as one group.
+ * 
+ * Number of workers and total queue capacity are defined in application.properties using
+ * TradeIngestion.WORKERS and TradeIngestion.QUEUE_CAPACITY keys. A trade is refused with
+ * TradeStoreBusyException when its partition is full.
+ * 
+ * Outcomes of the latest TradeIngestion.RESULT_CAPACITY trades are kept for lookup.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Service(value="tradeIngestionService")
+public class TradeIngestionServiceImpl implements TradeIngestionService, MeterBinder {
+	
+	private static final Log LOGGER = LogFactory.getLog(TradeIngestionServiceImpl.class);
+	
+	// Lazy since the service depends on the meter registry this bean is bound to
+	@Autowired
+	@Lazy
+	private TradeStoreService tradeStoreService;
+	
+	@Autowired
+	private TradeValidator tradeValidator;
+	
+	private final int batchSize;
+	private final List<BlockingQueue<QueuedTrade>> partitions;
+	private final Map<String, TradeResultDTO> results;
+	private ExecutorService workers;
+	private volatile boolean running;
+	
+	public TradeIngestionServiceImpl(@Value("${TradeIngestion.WORKERS:4}") int workerCount,
+			@Value("${TradeIngestion.QUEUE_CAPACITY:10000}") int queueCapacity,
+			@Value("${TradeIngestion.BATCH_SIZE:100}") int batchSize,
+			@Value("${TradeIngestion.RESULT_CAPACITY:100000}") int resultCapacity) {
+		
+		this.batchSize=batchSize;
+		partitions=new ArrayList<>(workerCount);
+		for (int i=0; i<workerCount; i++)
+			partitions.add(new ArrayBlockingQueue<>(Math.max(1, queueCapacity/workerCount)));
+		results=Collections.synchronizedMap(new LinkedHashMap<String, TradeResultDTO>() {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, TradeResultDTO> eldest) {
+				return size()>resultCapacity;
+			}
+		});
+	}
+	
+	/** Starts one worker thread per partition.
+	 */
+	@PostConstruct
+	public void start() {
+		
+		running=true;
+		workers=Executors.newFixedThreadPool(partitions.size(), new CustomizableThreadFactory("trade-ingestion-"));
+		for (BlockingQueue<QueuedTrade> partition: partitions)
+			workers.execute(() -> drain(partition));
+	}
+	
+	/** Stops the workers once every queued trade has been processed.
+	 * 
+	 * @throws InterruptedException -- thrown if interrupted while waiting for the workers.
+	 */
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		
+		running=false;
+		workers.shutdown();
+		workers.awaitTermination(30, TimeUnit.SECONDS);
+	}
+	
+	/** Queues a trade for processing.
+	 * 
+	 * Trade with missing trade id or maturity date, or a maturity date of past, is rejected
+	 * right away. Version of the trade is validated later by the worker.
+	 * 
+	 * 
+	 * @param receivedTrade -- Trade DTO for the received trade information.
+	 * @return -- PENDING result holding the tracking id of the trade.
+	 * @throws BarclaysTradeStoreException -- thrown when a trade is rejected or the queue is full.
+	 */
+	@Override
+	public TradeResultDTO submitTrade(TradeDTO receivedTrade) throws BarclaysTradeStoreException {
+		
+		TradeValidationResult validation=tradeValidator.validateRequest(receivedTrade);
+		if (validation.isRejected())
+			throw validation.getException();
+		
+		String trackingId=UUID.randomUUID().toString();
+		TradeResultDTO result=new TradeResultDTO(receivedTrade.getTradeId(), receivedTrade.getVersion(), TradeStatus.PENDING, null);
+		result.setTrackingId(trackingId);
+		results.put(trackingId, result);
+		
+		if (!partitionOf(receivedTrade.getTradeId()).offer(new QueuedTrade(trackingId, receivedTrade))) {
+			results.remove(trackingId);
+			throw new TradeStoreBusyException("TradeIngestionService.QUEUE_FULL");
+		}
+		return result;
+	}
+	
+	/** Finds the outcome of a trade submitted earlier.
+	 * 
+	 * 
+	 * @param trackingId -- tracking id returned when the trade was submitted.
+	 * @return -- result of the trade, PENDING until it is processed.
+	 * @throws BarclaysTradeStoreException -- thrown when tracking id is unknown or has expired.
+	 */
+	@Override
+	public TradeResultDTO getTradeResult(String trackingId) throws BarclaysTradeStoreException {
+		
+		TradeResultDTO result=results.get(trackingId);
+		if (result==null)
+			throw new BarclaysTradeStoreException("TradeIngestionService.UNKNOWN_TRACKING_ID");
+		return result;
+	}
+	
+	private BlockingQueue<QueuedTrade> partitionOf(String tradeId) {
+		return partitions.get(Math.floorMod(tradeId.hashCode(), partitions.size()));
+	}
+	
+	private void drain(BlockingQueue<QueuedTrade> partition) {
+		
+		List<QueuedTrade> batch=new ArrayList<>(batchSize);
+		List<TradeDTO> trades=new ArrayList<>(batchSize);
+		while (running || !partition.isEmpty()) {
+			try {
+				QueuedTrade first=partition.poll(100, TimeUnit.MILLISECONDS);
+				if (first==null)
+					continue;
+				batch.add(first);
+				partition.drainTo(batch, batchSize-1);
+				process(batch, trades);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+				trades.clear();
+			}
+		}
+	}
+	
+	/** Passes a batch of queued trades to the trade store service and records their outcome.
+	 * 
+	 * 
+	 * @param batch -- trades taken from the queue.
+	 * @param trades -- empty list reused by the worker to hold the trades of the batch.
+	 */
+	private void process(List<QueuedTrade> batch, List<TradeDTO> trades) {
+		
+		for (QueuedTrade queuedTrade: batch)
+			trades.add(queuedTrade.trade);
+		
+		List<TradeResultDTO> processed;
+		try {
+			processed=tradeStoreService.processTrades(trades);
+		} catch (RuntimeException exception) {
+			LOGGER.error(exception.getMessage(), exception);
+			processed=new ArrayList<>(batch.size());
+			for (TradeDTO trade: trades)
+				processed.add(new TradeResultDTO(trade.getTradeId(), trade.getVersion(), TradeStatus.FAILED, "General.EXCEPTION_MESSAGE"));
+		}
+		
+		for (int i=0; i<batch.size(); i++) {
+			TradeResultDTO result=processed.get(i);
+			result.setTrackingId(batch.get(i).trackingId);
+			results.replace(result.getTrackingId(), result);
+		}
+	}
+	
+	public int getQueuedCount() {
+		return partitions.stream().mapToInt(BlockingQueue::size).sum();
+	}
+	
+	/** Publishes the number of queued trades to the metrics registry.
+	 * 
+	 * 
+	 * @param registry -- registry the meters are bound to.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("trade.ingestion.queued", this, TradeIngestionServiceImpl::getQueuedCount)
+				.description("Number of trades waiting to be processed")
+				.register(registry);
+	}
+	
+	private static class QueuedTrade {
+		
+		private final String trackingId;
+		private final TradeDTO trade;
+		
+		private QueuedTrade(String trackingId, TradeDTO trade) {
+			this.trackingId=trackingId;
+			this.trade=trade;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.barclays.service;
+
+import com.barclays.dto.TradeDTO;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+
+/** A way of processing a single trade, selectable through TradeStrategyRegistry.
+ * 
+ * Beans implementing this interface are registered under their bean name, next to the
+ * strategies offered by TradeStoreService.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@FunctionalInterface
+public interface TradeProcessingStrategy {
+	
+	/** Validates the trade and adds it to the store if successful.
+	 * 
+	 * 
+	 * @param trade -- Trade DTO object containing trade information.
+	 * @return -- Trade entity that is saved to the database.
+	 * @throws BarclaysTradeStoreException -- thrown when trade request is bad.
+	 */
+	public Trade processTrade(TradeDTO trade) throws BarclaysTradeStoreException;
+}
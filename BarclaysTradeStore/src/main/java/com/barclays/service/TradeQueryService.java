@@ -0,0 +1,106 @@
+package com.barclays.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeCountDTO;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+
+/** Interface defining how trades are read from the store.
+ * 
+ * Queries that can match many trades return one page at a time using keyset pagination,
+ * so that callers never hold more than a page in memory.
+ * 
+ * Counts and trade ids by book, counter party and maturity month come from in-memory
+ * indexes and don't access the database.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public interface TradeQueryService {
+	
+	/** Finds the latest version of a trade.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @return -- Trade entity with the highest version.
+	 * @throws BarclaysTradeStoreException -- thrown as TradeNotFoundException when the trade id isn't stored.
+	 */
+	public Trade getLatestTrade(String tradeId) throws BarclaysTradeStoreException;
+	
+	/** Finds a specific version of a trade.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @param version -- integer value for trade version. Like 1.
+	 * @return -- Trade entity with the version.
+	 * @throws BarclaysTradeStoreException -- thrown as TradeNotFoundException when the version isn't stored.
+	 */
+	public Trade getTrade(String tradeId, int version) throws BarclaysTradeStoreException;
+	
+	/** Finds every stored version of a trade.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @return -- Trade entities, lowest version first.
+	 * @throws BarclaysTradeStoreException -- thrown as TradeNotFoundException when the trade id isn't stored.
+	 */
+	public List<Trade> getTradeVersions(String tradeId) throws BarclaysTradeStoreException;
+	
+	/** Finds one page of trades matching the criteria, in ascending id order.
+	 * 
+	 * 
+	 * @param bookId -- string value for book id, or null for any book.
+	 * @param counterPartyId -- string value for counter party id, or null for any counter party.
+	 * @param expired -- Y for expired trades, N for active ones, or null for both.
+	 * @param afterId -- id of the last trade of the previous page. 0 for the first page.
+	 * @param pageSize -- largest number of trades in the page.
+	 * @return -- Trade entities of the page. Fewer than pageSize when there are no more trades.
+	 */
+	public List<Trade> findTrades(String bookId, String counterPartyId, Expired expired, int afterId, int pageSize);
+	
+	/** Counts trades of a book, by the latest version of every trade id.
+	 * 
+	 * 
+	 * @param bookId -- string value for book id. Like "B1".
+	 * @return -- number of live and expired trades, both 0 for an unknown book.
+	 */
+	public TradeCountDTO getBookCount(String bookId);
+	
+	/** Counts trades of a counter party, by the latest version of every trade id.
+	 * 
+	 * 
+	 * @param counterPartyId -- string value for counter party id. Like "CP-1".
+	 * @return -- number of live and expired trades, both 0 for an unknown counter party.
+	 */
+	public TradeCountDTO getCounterPartyCount(String counterPartyId);
+	
+	/** Counts trades of every maturity month, by the latest version of every trade id.
+	 * 
+	 * 
+	 * @return -- number of live and expired trades keyed by maturity month, earliest first. Like "2024-05".
+	 */
+	public Map<String, TradeCountDTO> getMaturityMonthCounts();
+	
+	/** Finds trade ids whose latest version is in a book.
+	 * 
+	 * 
+	 * @param bookId -- string value for book id. Like "B1".
+	 * @param expired -- Y for expired trades, N for active ones, or null for both.
+	 * @return -- distinct trade ids in ascending order.
+	 */
+	public SortedSet<String> getBookTradeIds(String bookId, Expired expired);
+	
+	/** Finds trade ids whose latest version is for a counter party.
+	 * 
+	 * 
+	 * @param counterPartyId -- string value for counter party id. Like "CP-1".
+	 * @param expired -- Y for expired trades, N for active ones, or null for both.
+	 * @return -- distinct trade ids in ascending order.
+	 */
+	public SortedSet<String> getCounterPartyTradeIds(String counterPartyId, Expired expired);
+}
@@ -0,0 +1,102 @@
+package com.barclays.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeCountDTO;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.exception.TradeNotFoundException;
+import com.barclays.repository.TradeStoreRepository;
+import com.barclays.store.TradeCache;
+import com.barclays.store.TradeSecondaryIndex;
+
+/** Implementation of TradeQueryService interface.
+ * 
+ * Pages are read by id greater than the last id of the previous page instead of an
+ * offset, so every page costs the same however deep into the result it is.
+ * 
+ * Look ups of a single trade are served through TradeCache. Counts and trade ids by
+ * book, counter party and maturity month are served by TradeSecondaryIndex.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Service(value="tradeQueryService")
+public class TradeQueryServiceImpl implements TradeQueryService {
+	
+	@Autowired
+	private TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired
+	private TradeCache tradeCache;
+	
+	@Autowired
+	private TradeSecondaryIndex tradeSecondaryIndex;
+	
+	@Override
+	public Trade getLatestTrade(String tradeId) throws BarclaysTradeStoreException {
+		
+		Trade trade=tradeCache.getLatest(tradeId,
+				key -> tradeStoreRepository.findFirstByTradeIdOrderByVersionDesc(key).orElse(null));
+		if (trade==null)
+			throw new TradeNotFoundException("TradeQueryService.TRADE_NOT_FOUND");
+		return trade;
+	}
+	
+	@Override
+	public Trade getTrade(String tradeId, int version) throws BarclaysTradeStoreException {
+		
+		Trade trade=tradeCache.getVersion(tradeId, version,
+				key -> tradeStoreRepository.findOneByTradeIdAndVersion(tradeId, version).orElse(null));
+		if (trade==null)
+			throw new TradeNotFoundException("TradeQueryService.TRADE_NOT_FOUND");
+		return trade;
+	}
+	
+	@Override
+	public List<Trade> getTradeVersions(String tradeId) throws BarclaysTradeStoreException {
+		
+		List<Trade> trades=tradeStoreRepository.findByTradeIdOrderByVersion(tradeId);
+		if (trades.isEmpty())
+			throw new TradeNotFoundException("TradeQueryService.TRADE_NOT_FOUND");
+		return trades;
+	}
+	
+	@Override
+	public List<Trade> findTrades(String bookId, String counterPartyId, Expired expired, int afterId, int pageSize) {
+		return tradeStoreRepository.findTradesAfter(bookId, counterPartyId, expired, afterId, PageRequest.of(0, pageSize));
+	}
+	
+	@Override
+	public TradeCountDTO getBookCount(String bookId) {
+		return tradeSecondaryIndex.getBookCount(bookId);
+	}
+	
+	@Override
+	public TradeCountDTO getCounterPartyCount(String counterPartyId) {
+		return tradeSecondaryIndex.getCounterPartyCount(counterPartyId);
+	}
+	
+	@Override
+	public Map<String, TradeCountDTO> getMaturityMonthCounts() {
+		return tradeSecondaryIndex.getMaturityMonthCounts();
+	}
+	
+	@Override
+	public SortedSet<String> getBookTradeIds(String bookId, Expired expired) {
+		return tradeSecondaryIndex.getBookTradeIds(bookId, expired);
+	}
+	
+	@Override
+	public SortedSet<String> getCounterPartyTradeIds(String counterPartyId, Expired expired) {
+		return tradeSecondaryIndex.getCounterPartyTradeIds(counterPartyId, expired);
+	}
+}
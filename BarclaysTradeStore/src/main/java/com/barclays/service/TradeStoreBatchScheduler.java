@@ -0,0 +1,233 @@
+package com.barclays.service;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.stereotype.Component;
+
+import com.barclays.exception.BarclaysTradeStoreException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/** Schedules the expiry batch job on the Spring managed task scheduler.
+ * 
+ * Job runs on a cron expression when BatchService.CRON key is set in application.properties.
+ * Otherwise it runs with a fixed delay of BatchService.SLEEP_TIME milliseconds between the
+ * end of a run and the start of the next one. Default delay is 24 hours or 86400000 ms.
+ * 
+ * A random delay of up to BatchService.JITTER milliseconds is added to every run so that
+ * multiple instances of the store don't sweep the database at the same moment.
+ * 
+ * Trades that matured are also expired at every day boundary, on the cron expression of
+ * BatchService.DAY_BOUNDARY_CRON which defaults to midnight. These runs only touch the
+ * trades that matured, so the full scan above can run far less often.
+ * 
+ * The reconciliation run, which looks at every past maturity date, is only triggered on
+ * demand. It counts as a run of the job.
+ * 
+ * Only one run is allowed at a time. Scheduled runs are skipped while the job is paused,
+ * runs triggered on demand are not.
+ * 
+ * Every scheduled task of the store, including the @Scheduled flushes, snapshots and the
+ * archive job, runs on a pool of TaskScheduler.POOL_SIZE threads set up here. A long expiry
+ * or archive run then doesn't hold up the write-behind flush.
+ * 
+ * Duration and number of expired trades of the last run are published as metrics.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+public class TradeStoreBatchScheduler implements SchedulingConfigurer, MeterBinder {
+	
+	private static final Log LOGGER = LogFactory.getLog(TradeStoreBatchScheduler.class);
+	
+	@Autowired
+	private TradeStoreBatchService tradeStoreBatchService;
+	
+	@Autowired
+	private Environment environment;
+	
+	private final AtomicBoolean running=new AtomicBoolean();
+	private final AtomicBoolean paused=new AtomicBoolean();
+	private volatile long lastRunDuration;
+	private volatile int lastRunExpiredTrades;
+	private volatile Timer runTimer;
+	private ThreadPoolTaskScheduler taskScheduler;
+	
+	/** Sets up the thread pool of the task scheduler and registers the expiry job with it
+	 * using the configured trigger.
+	 * 
+	 * 
+	 * @param taskRegistrar -- registrar of scheduled tasks.
+	 */
+	@Override
+	public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+		
+		taskScheduler=new ThreadPoolTaskScheduler();
+		taskScheduler.setPoolSize(environment.getProperty("TaskScheduler.POOL_SIZE", Integer.class, 8));
+		taskScheduler.setThreadNamePrefix("trade-scheduler-");
+		taskScheduler.initialize();
+		taskRegistrar.setScheduler(taskScheduler);
+		
+		String cron=environment.getProperty("BatchService.CRON", "");
+		long sleepTime=environment.getProperty("BatchService.SLEEP_TIME", Long.class, 86400000L);
+		long jitter=environment.getProperty("BatchService.JITTER", Long.class, 0L);
+		
+		Trigger trigger=cron.isBlank() ? new PeriodicTrigger(sleepTime) : new CronTrigger(cron);
+		taskRegistrar.addTriggerTask(this::runScheduled, triggerContext -> withJitter(trigger, triggerContext, jitter));
+		taskRegistrar.addCronTask(this::runDayBoundary, environment.getProperty("BatchService.DAY_BOUNDARY_CRON", "0 0 0 * * *"));
+	}
+	
+	/** Stops the thread pool of the task scheduler.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		if (taskScheduler!=null)
+			taskScheduler.shutdown();
+	}
+	
+	private Date withJitter(Trigger trigger, TriggerContext triggerContext, long jitter) {
+		
+		Date next=trigger.nextExecutionTime(triggerContext);
+		if (next==null || jitter<=0)
+			return next;
+		return new Date(next.getTime()+ThreadLocalRandom.current().nextLong(jitter+1));
+	}
+	
+	/** Scheduled execution of the expiry job.
+	 * 
+	 * Failures are logged and don't stop the next scheduled run.
+	 */
+	public void runScheduled() {
+		
+		if (paused.get())
+			return;
+		try {
+			run();
+		} catch (BarclaysTradeStoreException exception) {
+			LOGGER.info("Skipping scheduled expiry run, previous run is still in progress");
+		} catch (RuntimeException exception) {
+			LOGGER.error("Expiry run failed", exception);
+		}
+	}
+	
+	/** Scheduled expiry of the trades that matured as the day changed.
+	 * 
+	 * Skipped while the job is paused. Failures are logged, trades left behind are expired
+	 * by the next run.
+	 */
+	public void runDayBoundary() {
+		
+		if (paused.get())
+			return;
+		try {
+			tradeStoreBatchService.expireMaturedTrades(LocalDate.now());
+		} catch (RuntimeException exception) {
+			LOGGER.error("Day boundary expiry run failed", exception);
+		}
+	}
+	
+	/** Runs the expiry job immediately in the calling thread.
+	 * 
+	 * 
+	 * @return -- number of trades that were marked as expired.
+	 * @throws BarclaysTradeStoreException -- thrown when a run is already in progress.
+	 */
+	public int run() throws BarclaysTradeStoreException {
+		return run(tradeStoreBatchService::expireMaturedTrades);
+	}
+	
+	/** Runs the reconciliation of the expiry job immediately in the calling thread.
+	 * 
+	 * 
+	 * @return -- number of trades that were marked as expired.
+	 * @throws BarclaysTradeStoreException -- thrown when a run is already in progress.
+	 */
+	public int reconcile() throws BarclaysTradeStoreException {
+		return run(tradeStoreBatchService::reconcileMaturedTrades);
+	}
+	
+	private int run(IntSupplier job) throws BarclaysTradeStoreException {
+		
+		if (!running.compareAndSet(false, true))
+			throw new BarclaysTradeStoreException("BatchService.ALREADY_RUNNING");
+		
+		long start=System.nanoTime();
+		try {
+			lastRunExpiredTrades=job.getAsInt();
+			return lastRunExpiredTrades;
+		} finally {
+			lastRunDuration=System.nanoTime()-start;
+			Timer timer=runTimer;
+			if (timer!=null)
+				timer.record(lastRunDuration, TimeUnit.NANOSECONDS);
+			running.set(false);
+		}
+	}
+	
+	public void pause() {
+		paused.set(true);
+	}
+	
+	public void resume() {
+		paused.set(false);
+	}
+	
+	public boolean isPaused() {
+		return paused.get();
+	}
+	
+	public boolean isRunning() {
+		return running.get();
+	}
+	
+	public int getLastRunExpiredTrades() {
+		return lastRunExpiredTrades;
+	}
+	
+	public long getLastRunDurationMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(lastRunDuration);
+	}
+	
+	/** Publishes expiry job statistics to the metrics registry.
+	 * 
+	 * 
+	 * @param registry -- registry the meters are bound to.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		
+		runTimer=Timer.builder("trade.expiry.runs")
+				.description("Duration of expiry job runs")
+				.register(registry);
+		Gauge.builder("trade.expiry.last.duration", this, scheduler -> scheduler.lastRunDuration/(double)TimeUnit.MILLISECONDS.toNanos(1))
+				.baseUnit("milliseconds")
+				.description("Duration of the last expiry job run")
+				.register(registry);
+		Gauge.builder("trade.expiry.last.trades", this, TradeStoreBatchScheduler::getLastRunExpiredTrades)
+				.description("Number of trades marked as expired by the last expiry job run")
+				.register(registry);
+	}
+}
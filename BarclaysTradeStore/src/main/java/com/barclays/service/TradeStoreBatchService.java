@@ -1,23 +1,45 @@
 package com.barclays.service;
 
-/** Interface for Batch Services. Extends the Runnable interface
- * to support multi-threading needed during app startup.
+import java.time.LocalDate;
+
+/** Interface for Batch Services.
+ * 
+ * One method must be implemented to scan and update the expired flag
+ * on matured trades. It is invoked periodically by TradeStoreBatchScheduler
+ * and on demand through the REST API.
+ * 
+ * Another one expires only the trades known to have matured, without a scan. It is
+ * invoked by TradeStoreBatchScheduler at every day boundary.
  * 
- * One method must be implemented to periodically scan and update
- * the expired flag on matured trades.
+ * The last one scans every past maturity date, to catch trades written to the store by
+ * other means. It is invoked on demand through the REST API.
  * 
  * 
  * @author Shashank Singh (shashank9830@gmail.com)
  *
  */
-public interface TradeStoreBatchService extends Runnable {
+public interface TradeStoreBatchService {
+	
+	/** Method to update the expired flag on matured trades once.
+	 * 
+	 * 
+	 * @return -- number of trades that were marked as expired.
+	 */
+	public int expireMaturedTrades();
+	
+	/** Method to update the expired flag on trades that matured before a given day,
+	 * found in memory instead of by scanning the store.
+	 * 
+	 * 
+	 * @param today -- present day date.
+	 * @return -- number of trades that were marked as expired.
+	 */
+	public int expireMaturedTrades(LocalDate today);
 	
-	/** Method to update the expired flag on matured trades periodically.
+	/** Method to update the expired flag on matured trades of any past maturity date once.
 	 * 
 	 * 
-	 * @param sleepTime -- Defines the sleep time till next run.
-	 * @throws InterruptedException -- thrown by the Thread if it is interrupted()
+	 * @return -- number of trades that were marked as expired.
 	 */
-	public void updateExpiredFlagOnMaturedTrades(long sleepTime) throws InterruptedException;
+	public int reconcileMaturedTrades();
 }
-
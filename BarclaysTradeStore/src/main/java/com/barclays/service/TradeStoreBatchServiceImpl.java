@@ -3,25 +3,48 @@ package com.barclays.service;
 import java.time.LocalDate;
 import java.util.List;
 
-import javax.transaction.Transactional;
-
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.barclays.dto.Expired;
-import com.barclays.entity.Trade;
 import com.barclays.repository.TradeStoreRepository;
+import com.barclays.store.TradeCache;
+import com.barclays.store.TradePartitionManager;
+import com.barclays.store.TradeSecondaryIndex;
+import com.barclays.utility.TradeLockManager;
 
 /** Implementation of the TradeStoreBatchService interface.
  * Finds trades inside the store for which maturity date is a 
  * past date. Updates their expired flag to Y if they're marked as N.
  * 
- * Performs this task after fixed intervals. Interval size is defined
- * in application.properties using BatchService.SLEEP_TIME key.
+ * Scheduling of this task is handled by TradeStoreBatchScheduler.
+ * 
+ * Matured trades are updated in chunks of ids with one UPDATE statement per chunk.
+ * Chunk size is defined in application.properties using BatchService.CHUNK_SIZE key.
+ * Default chunk size is 1000 trades.
+ * 
+ * At every day boundary, trades that just matured are taken from the maturity dates
+ * kept by TradeSecondaryIndex and expired by id, in chunks of the same size. This costs
+ * as much as the number of matured trades and leaves no window in which a matured trade
+ * is still marked N. The scan runs less often and catches trades written to the table
+ * by other means.
  * 
- * Time is defined in milliseconds. Default sleep time is 24 hours or
- * 86400000 ms.
+ * Trades are accepted only with a maturity date of today or later, so a trade can only
+ * mature between two runs. Every run after the first looks at maturity dates from the
+ * day before the previous run onwards, which keeps it to the matching partitions when the
+ * trade table is partitioned. When TradePartitionManager is enabled, partitions are also
+ * maintained after every run.
+ * 
+ * Trades written to the table by other means can carry any past maturity date. They are
+ * expired by the reconciliation run, which looks at every maturity date before today. It
+ * scans the whole table, so it only runs on demand. The first scheduled run after startup
+ * looks at every maturity date as well.
  * 
  * 
  * @author Shashank Singh (shashank9830@gmail.com)
@@ -29,60 +52,141 @@ import com.barclays.repository.TradeStoreRepository;
  */
 @Service(value="tradeStoreBatchService")
 public class TradeStoreBatchServiceImpl implements TradeStoreBatchService {
-
+	
+	private static final Log LOGGER = LogFactory.getLog(TradeStoreBatchServiceImpl.class);
+	
+	private static final LocalDate EARLIEST_MATURITY_DATE=LocalDate.of(1000, 1, 1);
+	
 	@Autowired
 	private TradeStoreRepository tradeStoreRepository;
 	
+	@Autowired
+	private TradeLockManager tradeLockManager;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private TradeCache tradeCache;
+	
+	// Lazy since the index loads trades through the data source bound to the meter registry this service is bound to
+	@Autowired
+	@Lazy
+	private TradeSecondaryIndex tradeSecondaryIndex;
+	
+	@Autowired(required=false)
+	private TradePartitionManager tradePartitionManager;
+	
 	@Autowired
 	Environment environment;
 	
-	/** Thread execution starts from this method.
-	 * Reads the sleep time property from application property and
-	 * calls appropriate method to update the expired flag.
-	 */
-	@Override
-	public void run() {
-		long sleepTime=Long.parseLong(
-				environment.getProperty("BatchService.SLEEP_TIME", String.class, "86400000"));
-		try {
-			updateExpiredFlagOnMaturedTrades(sleepTime);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-	}
+	/** Maturity dates before this were expired by a previous run. */
+	private volatile LocalDate expiredBefore=EARLIEST_MATURITY_DATE;
 	
 	/** Method to perform the actual updation in DB.
-	 * Method is marked with Transactional annotation to enable
-	 * DB transactions. 
 	 * 
-	 * It gains a lock on the repository object before performing DB related operations.
+	 * Walks over matured trades with expired flag set to N in ascending id order,
+	 * one chunk at a time. Only the ids are read from the database.
 	 * 
-	 * Finds all the trades with maturity date of past and expired flag set to N.
+	 * Every chunk is updated with a single UPDATE statement in its own DB transaction.
+	 * It gains every trade lock from TradeLockManager for the duration of a chunk and
+	 * releases them before moving on, so that trade processing isn't blocked for the
+	 * whole run. TradeCache is cleared and TradeSecondaryIndex is updated after every chunk
+	 * that changed a trade.
 	 * 
-	 * It then updates the expired flag to Y for all of them.
+	 * @return -- number of trades that were marked as expired.
+	 */
+	@Override
+	public synchronized int expireMaturedTrades() {
+		return expire(expiredBefore, LocalDate.now());
+	}
+	
+	/** Expires matured trades like expireMaturedTrades, looking at every maturity date
+	 * before today instead of the ones since the previous run.
 	 * 
-	 * Releases the lock after completion.
+	 * @return -- number of trades that were marked as expired.
 	 */
-	@Transactional
-	private void updateRecordsInDB () {
-		synchronized (tradeStoreRepository) {
-			List<Trade> trades=tradeStoreRepository
-					.findByMaturityDateLessThanAndExpiredEquals(LocalDate.now(), Expired.N);
-			for (Trade trade: trades)
-				trade.setExpired(Expired.Y);
-			tradeStoreRepository.saveAll(trades);
-			tradeStoreRepository.notifyAll();
+	@Override
+	public synchronized int reconcileMaturedTrades() {
+		return expire(EARLIEST_MATURITY_DATE, LocalDate.now());
+	}
+	
+	private int expire(LocalDate from, LocalDate today) {
+		
+		int chunkSize=environment.getProperty("BatchService.CHUNK_SIZE", Integer.class, 1000);
+		int expiredTrades=0;
+		int lastId=0;
+		
+		while (true) {
+			List<Integer> ids=tradeStoreRepository
+					.findMaturedTradeIds(from, today, Expired.N, lastId, PageRequest.of(0, chunkSize));
+			if (ids.isEmpty())
+				break;
+			
+			int fromId=lastId;
+			int toId=ids.get(ids.size()-1);
+			tradeLockManager.lockAll();
+			try {
+				int updatedTrades=transactionTemplate.execute(
+						status->tradeStoreRepository.expireMaturedTrades(from, today, fromId, toId));
+				if (updatedTrades>0) {
+					tradeCache.invalidateAll();
+					tradeSecondaryIndex.expire(ids, today);
+				}
+				expiredTrades+=updatedTrades;
+			} finally {
+				tradeLockManager.unlockAll();
+			}
+			lastId=toId;
+		}
+		
+		// A day of overlap covers trades validated before midnight and committed after this run
+		expiredBefore=today.minusDays(1);
+		LOGGER.info("Expired flag set on "+expiredTrades+" trades maturing from "+from+" to "+today);
+		
+		if (tradePartitionManager!=null) {
+			tradePartitionManager.addPartitions(today);
+			if (tradePartitionManager.archivePartitions(today)>0) {
+				tradeCache.invalidateAll();
+				tradeSecondaryIndex.reload();
+			}
 		}
+		return expiredTrades;
 	}
 	
-	/** Keeps the process alive and runs update after defined interval.
+	/** Expires the trades TradeSecondaryIndex holds as live with a maturity date before today.
+	 * 
+	 * Every chunk is updated by id with a single UPDATE statement in its own DB transaction,
+	 * under every trade lock. A trade committed before the chunk is in the index by then,
+	 * one committed after it was marked as expired when it was saved.
+	 * 
+	 * @param today -- present day date.
+	 * @return -- number of trades that were marked as expired.
 	 */
 	@Override
-	public void updateExpiredFlagOnMaturedTrades(long sleepTime) throws InterruptedException {
+	public synchronized int expireMaturedTrades(LocalDate today) {
+		
+		int chunkSize=environment.getProperty("BatchService.CHUNK_SIZE", Integer.class, 1000);
+		int expiredTrades=0;
 		
 		while (true) {
-			updateRecordsInDB();
-			Thread.sleep(sleepTime);
+			int updatedTrades;
+			tradeLockManager.lockAll();
+			try {
+				List<Integer> ids=tradeSecondaryIndex.getMaturedLiveIds(today, chunkSize);
+				if (ids.isEmpty())
+					break;
+				updatedTrades=transactionTemplate.execute(status->tradeStoreRepository.expireTrades(ids, today));
+				tradeSecondaryIndex.expire(ids, today);
+				if (updatedTrades>0)
+					tradeCache.invalidateAll();
+			} finally {
+				tradeLockManager.unlockAll();
+			}
+			expiredTrades+=updatedTrades;
 		}
+		
+		LOGGER.info("Expired flag set on "+expiredTrades+" trades maturing before "+today);
+		return expiredTrades;
 	}
 }
@@ -1,6 +1,10 @@
 package com.barclays.service;
 
+import java.time.LocalDate;
+import java.util.List;
+
 import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
 import com.barclays.entity.Trade;
 import com.barclays.exception.BarclaysTradeStoreException;
 
@@ -11,6 +15,8 @@ import com.barclays.exception.BarclaysTradeStoreException;
  * First one should have minimal DB access.
  * Second one should have less memory usage allowing for frequent DB access.
  * 
+ * A third method processes a group of trades together for bulk ingestion.
+ * 
  * 
  * @author Shashank Singh (shashank9830@gmail.com)
  *
@@ -23,7 +29,8 @@ public interface TradeStoreService {
 	 * 
 	 * 
 	 * @param trade -- Trade DTO object containing trade information.
-	 * @return -- Trade entity that is saved to the database.
+	 * @return -- Trade entity that is saved to the database, null when the trade is identical
+	 * to the latest stored version and nothing was written.
 	 * @throws BarclaysTradeStoreException -- thrown when trade request is bad.
 	 */
 	public Trade processTrade(TradeDTO trade) throws BarclaysTradeStoreException;
@@ -34,8 +41,29 @@ public interface TradeStoreService {
 	 * 
 	 * 
 	 * @param trade -- Trade DTO object containing trade information.
-	 * @return -- Trade entity that is saved to the database.
+	 * @return -- Trade entity that is saved to the database, null when the trade is identical
+	 * to the latest stored version and nothing was written.
 	 * @throws BarclaysTradeStoreException -- thrown when trade request is bad.
 	 */
 	public Trade processTradeWithLessMemory(TradeDTO trade) throws BarclaysTradeStoreException;
+	
+	/** Processes a group of trades in one pass with batched DB writes.
+	 * Invalid trades are reported in the result instead of being thrown.
+	 * 
+	 * 
+	 * @param trades -- Trade DTO objects containing trade information.
+	 * @return -- outcome of every trade, in the order received.
+	 */
+	public List<TradeResultDTO> processTrades(List<TradeDTO> trades);
+	
+	/** Processes a group of trades like processTrades, with maturity dates checked against
+	 * the date on which the trades were accepted instead of today's date. Used to store
+	 * trades that were validated and acknowledged earlier.
+	 * 
+	 * 
+	 * @param trades -- Trade DTO objects containing trade information.
+	 * @param acceptedOn -- date on which the trades were accepted.
+	 * @return -- outcome of every trade, in the order received.
+	 */
+	public List<TradeResultDTO> processTrades(List<TradeDTO> trades, LocalDate acceptedOn);
 }
@@ -1,40 +1,110 @@
 package com.barclays.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
-import javax.transaction.Transactional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.barclays.dto.Expired;
 import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.dto.TradeStatus;
+import com.barclays.dto.TradeValidationResult;
 import com.barclays.entity.Trade;
 import com.barclays.exception.BarclaysTradeStoreException;
 import com.barclays.repository.TradeStoreRepository;
+import com.barclays.store.TradeCache;
+import com.barclays.store.TradeHistoryWriter;
+import com.barclays.store.TradeSecondaryIndex;
+import com.barclays.store.TradeVersionIndex;
+import com.barclays.utility.TradeLockManager;
+import com.barclays.utility.TradeMetrics;
+import com.barclays.utility.TradeValidator;
 
 /** Implementation of TradeStoreService interface.
  * 
  * Implements both high and low memory usage versions of trade processing.
  * 
+ * Trades with the same trade id are processed one at a time under a lock obtained
+ * from TradeLockManager. Trades with different trade ids are processed in parallel.
+ * 
+ * Locks are taken before the DB transaction starts and released after it commits. A
+ * trade waiting for a lock doesn't hold a pooled connection, and the next trade with the
+ * same trade id always reads the committed row. Validation done without the DB happens
+ * before either of them.
+ * 
+ * When TradeStoreService.LATEST_VERSION_ONLY key is set to true in application.properties,
+ * the trade table holds a single row per trade id. A higher version overwrites that row
+ * and the superseded version is written to the trade history table by TradeHistoryWriter
+ * in the same transaction.
+ * 
+ * Validation done without the DB is left to TradeValidator, which reports rejections as
+ * preallocated result codes. Single trade methods throw the exception of the code, which
+ * has no stack trace.
+ * 
+ * Time taken by every stage of a trade is recorded by TradeMetrics. Cached copies of a
+ * saved or superseded trade are dropped from TradeCache once its transaction completes,
+ * and TradeSecondaryIndex is updated once it commits.
+ * 
  * 
  * @author Shashank Singh (shashank9830@gmail.com)
  *
  */
 @Service(value="tradeStoreService")
-@Transactional
 public class TradeStoreServiceImpl implements TradeStoreService {
 
 	@Autowired
 	private TradeStoreRepository tradeStoreRepository;
 	
+	@Autowired
+	private TradeLockManager tradeLockManager;
+	
+	@Autowired
+	private TradeVersionIndex tradeVersionIndex;
+	
+	@Autowired
+	private TradeValidator tradeValidator;
+	
+	@Autowired
+	private TradeHistoryWriter tradeHistoryWriter;
+	
+	@Autowired
+	private TradeMetrics tradeMetrics;
+	
+	@Autowired
+	private TradeCache tradeCache;
+	
+	@Autowired
+	private TradeSecondaryIndex tradeSecondaryIndex;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Value("${TradeStoreService.LATEST_VERSION_ONLY:false}")
+	private boolean latestVersionOnly;
+	
 	
 	/** Performs validation on the incoming trade and adds it to the store if successful.
 	 * 
 	 * Trade with a maturity date of past is rejected.
 	 * 
+	 * Trade is rejected without accessing the DB when TradeVersionIndex already holds
+	 * a higher version for its trade id. Trade identical to the latest stored version is
+	 * acknowledged without taking the lock or accessing the DB.
+	 * 
 	 * All trades with the same trade id as the request are fetched from the database.
 	 * The trade list is then iterated to find a higher version trade, presence of which 
 	 * would invalidate the current requested trade.
@@ -52,46 +122,65 @@ public class TradeStoreServiceImpl implements TradeStoreService {
 	 * 
 	 * 
 	 * @param receivedTrade -- Trade DTO for the received trade information.
-	 * @return -- Trade entity of the entry that was saved in the database.
+	 * @return -- Trade entity of the entry that was saved in the database, null for a duplicate.
 	 * @throws BarclaysTradeStoreException -- thrown when a trade is rejected.
 	 */
 	@Override
 	public Trade processTrade(TradeDTO receivedTrade) throws BarclaysTradeStoreException {
 		
-		if (receivedTrade.getMaturityDate().isBefore(LocalDate.now()))
-			throw new BarclaysTradeStoreException("TradeStoreService.INVALID_MATURITY_DATE");
+		long start=System.nanoTime();
+		long contentHash=TradeVersionIndex.contentHash(receivedTrade);
+		TradeValidationResult validation=tradeValidator.validate(receivedTrade, contentHash);
+		if (validation.isRejected())
+			throw validation.getException();
 		
-		Trade trade=null;
-		synchronized (tradeStoreRepository) {
-			
-			List<Trade> trades=tradeStoreRepository.findByTradeId(receivedTrade.getTradeId());
-			
-			for (Trade tmpTrade: trades) {
-				if (tmpTrade.getVersion()>receivedTrade.getVersion())
-					throw new BarclaysTradeStoreException("TradeStoreService.LOWER_VERSION_TRADE");
-				if (tmpTrade.getVersion()==receivedTrade.getVersion())
-					trade=tmpTrade;
-			}
-			
-			if (trade==null)
-				trade=new Trade();
-			
-			trade.setTradeId(receivedTrade.getTradeId());
-			trade.setVersion(receivedTrade.getVersion());
-			trade.setCounterPartyId(receivedTrade.getCounterPartyId());
-			trade.setBookId(receivedTrade.getBookId());
-			trade.setMaturityDate(receivedTrade.getMaturityDate());
-			trade.setCreatedDate(receivedTrade.getCreatedDate());
-			//trade.setCreatedDate(LocalDate.now());
-			trade.setExpired(receivedTrade.getExpired());
-			
-			if (trade.getMaturityDate().isBefore(LocalDate.now()))
-				trade.setExpired(Expired.Y);
+		start=tradeMetrics.record("processTrade", TradeMetrics.VALIDATION, start);
+		if (validation==TradeValidationResult.DUPLICATE)
+			return null;
+		
+		Lock lock=tradeLockManager.lock(receivedTrade.getTradeId());
+		try {
 			
-			trade=tradeStoreRepository.save(trade);
-			tradeStoreRepository.notifyAll();
+			long lockedAt=tradeMetrics.record("processTrade", TradeMetrics.LOCK_WAIT, start);
+			return inTransaction(() -> saveTrade(receivedTrade, contentHash, lockedAt));
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/** DB work of processTrade, run in a transaction under the lock of the trade id.
+	 * 
+	 * 
+	 * @param receivedTrade -- Trade DTO for the received trade information.
+	 * @param contentHash -- content hash of the received trade.
+	 * @param start -- System.nanoTime() when the lock was obtained.
+	 * @return -- Trade entity of the entry that was saved in the database.
+	 * @throws BarclaysTradeStoreException -- thrown when a higher version is stored.
+	 */
+	private Trade saveTrade(TradeDTO receivedTrade, long contentHash, long start) throws BarclaysTradeStoreException {
+		
+		Trade trade=null;
+		List<Trade> trades=tradeStoreRepository.findByTradeId(receivedTrade.getTradeId());
+		start=tradeMetrics.record("processTrade", TradeMetrics.VERSION_LOOKUP, start);
+		
+		for (Trade tmpTrade: trades) {
+			if (tmpTrade.getVersion()>receivedTrade.getVersion())
+				throw TradeValidationResult.LOWER_VERSION_TRADE.getException();
+			if (tmpTrade.getVersion()==receivedTrade.getVersion())
+				trade=tmpTrade;
 		}
 		
+		if (trade==null)
+			trade=latestVersionOnly ? supersede(trades, Collections.emptySet()) : new Trade();
+		
+		copyTrade(receivedTrade, trade);
+		
+		trade=tradeStoreRepository.save(trade);
+		tradeVersionIndex.recordAfterCommit(trade.getTradeId(), trade.getVersion(), contentHash);
+		tradeCache.invalidateAfterCommit(trade.getTradeId(), trade.getVersion());
+		tradeSecondaryIndex.putAfterCommit(trade);
+		tradeMetrics.record("processTrade", TradeMetrics.SAVE, start);
+		tradeMetrics.recordCommit("processTrade");
 		return trade;
 	}
 
@@ -99,6 +188,10 @@ public class TradeStoreServiceImpl implements TradeStoreService {
 	 * 
 	 * Trade with a maturity date of past is rejected.
 	 * 
+	 * Trade is rejected without accessing the DB when TradeVersionIndex already holds
+	 * a higher version for its trade id. Trade identical to the latest stored version is
+	 * acknowledged without taking the lock or accessing the DB.
+	 * 
 	 * All trades with the same trade id and a greater version as the request are fetched
 	 * from the database. If the query results in a non-empty list then trade is rejected.
 	 * 
@@ -115,41 +208,294 @@ public class TradeStoreServiceImpl implements TradeStoreService {
 	 * 
 	 * 
 	 * @param receivedTrade -- Trade DTO for the received trade information.
-	 * @return -- Trade entity of the trade entry that was saved in the database.
+	 * @return -- Trade entity of the trade entry that was saved in the database, null for a duplicate.
 	 * @throws BarclaysTradeStoreException -- thrown when a trade is rejected.
 	 */
 	@Override
 	public Trade processTradeWithLessMemory(TradeDTO receivedTrade) throws BarclaysTradeStoreException {
 		
-		if (receivedTrade.getMaturityDate().isBefore(LocalDate.now()))
-			throw new BarclaysTradeStoreException("TradeStoreService.INVALID_MATURITY_DATE");
+		long start=System.nanoTime();
+		long contentHash=TradeVersionIndex.contentHash(receivedTrade);
+		TradeValidationResult validation=tradeValidator.validate(receivedTrade, contentHash);
+		if (validation.isRejected())
+			throw validation.getException();
 		
-		Trade trade=null;
-		synchronized (tradeStoreRepository) {
-			
-			List<Trade> trades=tradeStoreRepository.findByTradeIdAndVersionGreaterThan(receivedTrade.getTradeId(), receivedTrade.getVersion());
-			if (!trades.isEmpty())
-				throw new BarclaysTradeStoreException("TradeStoreService.LOWER_VERSION_TRADE");
+		start=tradeMetrics.record("processTradeWithLessMemory", TradeMetrics.VALIDATION, start);
+		if (validation==TradeValidationResult.DUPLICATE)
+			return null;
+		
+		Lock lock=tradeLockManager.lock(receivedTrade.getTradeId());
+		try {
 			
-			Optional<Trade> optional=tradeStoreRepository.findOneByTradeIdAndVersion(receivedTrade.getTradeId(), receivedTrade.getVersion());
-			trade=optional.orElse(new Trade());
+			long lockedAt=tradeMetrics.record("processTradeWithLessMemory", TradeMetrics.LOCK_WAIT, start);
+			return inTransaction(() -> saveTradeWithLessMemory(receivedTrade, contentHash, lockedAt));
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/** DB work of processTradeWithLessMemory, run in a transaction under the lock of the trade id.
+	 * 
+	 * 
+	 * @param receivedTrade -- Trade DTO for the received trade information.
+	 * @param contentHash -- content hash of the received trade.
+	 * @param start -- System.nanoTime() when the lock was obtained.
+	 * @return -- Trade entity of the entry that was saved in the database.
+	 * @throws BarclaysTradeStoreException -- thrown when a higher version is stored.
+	 */
+	private Trade saveTradeWithLessMemory(TradeDTO receivedTrade, long contentHash, long start) throws BarclaysTradeStoreException {
+		
+		Trade trade;
+		List<Trade> trades=tradeStoreRepository.findByTradeIdAndVersionGreaterThan(receivedTrade.getTradeId(), receivedTrade.getVersion());
+		if (!trades.isEmpty())
+			throw TradeValidationResult.LOWER_VERSION_TRADE.getException();
+		
+		Optional<Trade> optional=tradeStoreRepository.findOneByTradeIdAndVersion(receivedTrade.getTradeId(), receivedTrade.getVersion());
+		if (optional.isPresent())
+			trade=optional.get();
+		else if (latestVersionOnly)
+			trade=supersede(tradeStoreRepository.findByTradeIdAndVersionLessThan(receivedTrade.getTradeId(), receivedTrade.getVersion()), Collections.emptySet());
+		else
+			trade=new Trade();
+		start=tradeMetrics.record("processTradeWithLessMemory", TradeMetrics.VERSION_LOOKUP, start);
+		
+		copyTrade(receivedTrade, trade);
+		
+		trade=tradeStoreRepository.save(trade);
+		tradeVersionIndex.recordAfterCommit(trade.getTradeId(), trade.getVersion(), contentHash);
+		tradeCache.invalidateAfterCommit(trade.getTradeId(), trade.getVersion());
+		tradeSecondaryIndex.putAfterCommit(trade);
+		tradeMetrics.record("processTradeWithLessMemory", TradeMetrics.SAVE, start);
+		tradeMetrics.recordCommit("processTradeWithLessMemory");
+		return trade;
+	}
+
+	/** Performs validation on a group of incoming trades and adds the valid ones to the store.
+	 * 
+	 * Trades are validated in the order they are received, using the same rules as processTrade.
+	 * A trade is validated against the stored trades as well as the trades received before it
+	 * in the same group. Trades identical to the latest stored version are reported as
+	 * DUPLICATE and left out of the DB work.
+	 * 
+	 * All trades with the same trade ids as the group are fetched from the database with a 
+	 * single query, under the locks of all those trade ids. Accepted trades are then saved 
+	 * together so that they can be written in JDBC batches.
+	 * 
+	 * 
+	 * @param receivedTrades -- Trade DTOs for the received trade information.
+	 * @return -- outcome of every received trade, in the order received.
+	 */
+	@Override
+	public List<TradeResultDTO> processTrades(List<TradeDTO> receivedTrades) {
+		return processTrades(receivedTrades, tradeValidator.today());
+	}
+	
+	/** Performs validation on a group of trades accepted earlier and adds the valid ones to
+	 * the store. Same as processTrades, except that maturity dates are checked against the
+	 * date on which the trades were accepted.
+	 * 
+	 * 
+	 * @param receivedTrades -- Trade DTOs for the received trade information.
+	 * @param acceptedOn -- date on which the trades were accepted.
+	 * @return -- outcome of every received trade, in the order received.
+	 */
+	@Override
+	public List<TradeResultDTO> processTrades(List<TradeDTO> receivedTrades, LocalDate acceptedOn) {
+		
+		long start=System.nanoTime();
+		List<TradeResultDTO> results=new ArrayList<>(receivedTrades.size());
+		long[] contentHashes=new long[receivedTrades.size()];
+		Set<String> tradeIds=new LinkedHashSet<>();
+		
+		for (int i=0; i<receivedTrades.size(); i++) {
+			TradeDTO receivedTrade=receivedTrades.get(i);
+			TradeResultDTO result=new TradeResultDTO(receivedTrade.getTradeId(), receivedTrade.getVersion(), TradeStatus.ACCEPTED, null);
+			contentHashes[i]=TradeVersionIndex.contentHash(receivedTrade);
+			TradeValidationResult validation=tradeValidator.validate(receivedTrade, contentHashes[i], acceptedOn);
+			if (validation.isRejected())
+				reject(result, validation.getMessage());
+			else if (validation==TradeValidationResult.DUPLICATE)
+				result.setStatus(TradeStatus.DUPLICATE);
+			else
+				tradeIds.add(receivedTrade.getTradeId());
+			results.add(result);
+		}
+		
+		start=tradeMetrics.record("processTrades", TradeMetrics.VALIDATION, start);
+		
+		if (tradeIds.isEmpty())
+			return results;
+		
+		int[] locks=tradeLockManager.lock(tradeIds);
+		try {
 			
-			trade.setTradeId(receivedTrade.getTradeId());
-			trade.setVersion(receivedTrade.getVersion());
-			trade.setCounterPartyId(receivedTrade.getCounterPartyId());
-			trade.setBookId(receivedTrade.getBookId());
-			trade.setMaturityDate(receivedTrade.getMaturityDate());
-			trade.setCreatedDate(receivedTrade.getCreatedDate());
-			//trade.setCreatedDate(LocalDate.now());
-			trade.setExpired(receivedTrade.getExpired());
+			long lockedAt=tradeMetrics.record("processTrades", TradeMetrics.LOCK_WAIT, start);
+			transactionTemplate.executeWithoutResult(status -> saveTrades(receivedTrades, results, contentHashes, tradeIds, lockedAt));
+		} finally {
+			tradeLockManager.unlock(locks);
+		}
+		
+		return results;
+	}
+	
+	/** DB work of processTrades, run in a transaction under the locks of all trade ids.
+	 * 
+	 * 
+	 * @param receivedTrades -- Trade DTOs for the received trade information.
+	 * @param results -- outcome of every received trade, rejected ones are updated.
+	 * @param contentHashes -- content hash of every received trade.
+	 * @param tradeIds -- trade ids of the trades that passed validation.
+	 * @param start -- System.nanoTime() when the locks were obtained.
+	 */
+	private void saveTrades(List<TradeDTO> receivedTrades, List<TradeResultDTO> results, long[] contentHashes, Set<String> tradeIds, long start) {
+		
+		Map<String, Map<Integer, Trade>> storedTrades=new HashMap<>();
+		Map<String, Integer> latestVersions=new HashMap<>();
+		for (Trade storedTrade: tradeStoreRepository.findByTradeIdIn(tradeIds)) {
+			storedTrades.computeIfAbsent(storedTrade.getTradeId(), tradeId->new HashMap<>())
+					.put(storedTrade.getVersion(), storedTrade);
+			latestVersions.merge(storedTrade.getTradeId(), storedTrade.getVersion(), Math::max);
+		}
+		start=tradeMetrics.record("processTrades", TradeMetrics.VERSION_LOOKUP, start);
+		
+		Set<Trade> tradesToSave=Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int i=0; i<receivedTrades.size(); i++) {
+			TradeDTO receivedTrade=receivedTrades.get(i);
+			TradeResultDTO result=results.get(i);
+			if (result.getStatus()!=TradeStatus.ACCEPTED)
+				continue;
 			
-			if (trade.getMaturityDate().isBefore(LocalDate.now()))
-				trade.setExpired(Expired.Y);
+			Integer latestVersion=latestVersions.get(receivedTrade.getTradeId());
+			if (latestVersion!=null && latestVersion>receivedTrade.getVersion()) {
+				reject(result, TradeValidationResult.LOWER_VERSION_TRADE.getMessage());
+				continue;
+			}
 			
-			trade=tradeStoreRepository.save(trade);
-			tradeStoreRepository.notifyAll();
+			Map<Integer, Trade> versions=storedTrades.computeIfAbsent(receivedTrade.getTradeId(), tradeId->new HashMap<>());
+			Trade trade=versions.get(receivedTrade.getVersion());
+			if (trade==null && latestVersionOnly) {
+				trade=supersede(new ArrayList<>(versions.values()), tradesToSave);
+				versions.clear();
+			} else if (trade==null) {
+				trade=new Trade();
+			}
+			versions.put(receivedTrade.getVersion(), trade);
+			copyTrade(receivedTrade, trade);
+			latestVersions.put(receivedTrade.getTradeId(), receivedTrade.getVersion());
+			tradeVersionIndex.recordAfterCommit(receivedTrade.getTradeId(), receivedTrade.getVersion(), contentHashes[i]);
+			tradesToSave.add(trade);
 		}
 		
-		return trade;
+		for (Trade trade: tradeStoreRepository.saveAll(tradesToSave)) {
+			tradeCache.invalidateAfterCommit(trade.getTradeId(), trade.getVersion());
+			tradeSecondaryIndex.putAfterCommit(trade);
+		}
+		tradeMetrics.record("processTrades", TradeMetrics.SAVE, start);
+		tradeMetrics.recordCommit("processTrades");
+	}
+	
+	/** Runs DB work of a trade processor in a transaction, rolled back when the trade is rejected.
+	 * 
+	 * 
+	 * @param work -- DB work to be done.
+	 * @return -- result of the DB work.
+	 * @throws BarclaysTradeStoreException -- thrown when the trade is rejected.
+	 */
+	private <T> T inTransaction(TradeWork<T> work) throws BarclaysTradeStoreException {
+		
+		try {
+			return transactionTemplate.execute(status -> {
+				try {
+					return work.execute();
+				} catch (BarclaysTradeStoreException exception) {
+					throw new RejectedTradeException(exception);
+				}
+			});
+		} catch (RejectedTradeException exception) {
+			throw exception.getCause();
+		}
+	}
+	
+	/** Prepares the row of a trade id to be overwritten by a higher version, when only
+	 * the latest version of every trade is kept.
+	 * 
+	 * Every older version is handed over to TradeHistoryWriter. The latest of them is
+	 * returned to be overwritten, others are left over from storing all versions and are
+	 * deleted so that a single row remains.
+	 * 
+	 * 
+	 * @param olderTrades -- stored versions of the trade id, all lower than the received version.
+	 * @param tradesToSave -- trades waiting to be saved, older trades are removed from it.
+	 * @return -- Trade entity to be overwritten, or a new one if the trade id isn't stored.
+	 */
+	private Trade supersede(Collection<Trade> olderTrades, Set<Trade> tradesToSave) {
+		
+		Trade latest=null;
+		for (Trade olderTrade: olderTrades) {
+			tradeHistoryWriter.archive(olderTrade);
+			tradeCache.invalidateAfterCommit(olderTrade.getTradeId(), olderTrade.getVersion());
+			if (latest==null || olderTrade.getVersion()>latest.getVersion())
+				latest=olderTrade;
+		}
+		
+		for (Trade olderTrade: olderTrades) {
+			if (olderTrade!=latest) {
+				tradesToSave.remove(olderTrade);
+				tradeStoreRepository.delete(olderTrade);
+				tradeSecondaryIndex.removeAfterCommit(olderTrade.getId());
+			}
+		}
+		
+		return latest==null ? new Trade() : latest;
+	}
+	
+	/** Copies the received trade information on to a trade entity.
+	 * 
+	 * If the trade has matured, expired flag is changed to Y.
+	 * 
+	 * 
+	 * @param receivedTrade -- Trade DTO for the received trade information.
+	 * @param trade -- Trade entity to be saved in the database.
+	 */
+	private void copyTrade(TradeDTO receivedTrade, Trade trade) {
+		
+		trade.setTradeId(receivedTrade.getTradeId());
+		trade.setVersion(receivedTrade.getVersion());
+		trade.setCounterPartyId(receivedTrade.getCounterPartyId());
+		trade.setBookId(receivedTrade.getBookId());
+		trade.setMaturityDate(receivedTrade.getMaturityDate());
+		trade.setCreatedDate(receivedTrade.getCreatedDate());
+		//trade.setCreatedDate(LocalDate.now());
+		trade.setExpired(receivedTrade.getExpired());
+		
+		if (trade.getMaturityDate().isBefore(tradeValidator.today()))
+			trade.setExpired(Expired.Y);
+	}
+	
+	private void reject(TradeResultDTO result, String message) {
+		result.setStatus(TradeStatus.REJECTED);
+		result.setMessage(message);
+	}
+	
+	@FunctionalInterface
+	private interface TradeWork<T> {
+		T execute() throws BarclaysTradeStoreException;
+	}
+	
+	/** Carries a rejection out of a TransactionTemplate callback, which can't throw checked exceptions.
+	 * Records no stack trace as it is unwrapped right away.
+	 */
+	private static class RejectedTradeException extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		RejectedTradeException(BarclaysTradeStoreException cause) {
+			super(null, cause, false, false);
+		}
+		
+		@Override
+		public synchronized BarclaysTradeStoreException getCause() {
+			return (BarclaysTradeStoreException)super.getCause();
+		}
 	}
 }
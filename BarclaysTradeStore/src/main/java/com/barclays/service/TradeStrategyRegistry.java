@@ -0,0 +1,121 @@
+package com.barclays.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.barclays.dto.TradeDTO;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.store.TradeVersionIndex;
+
+/** Registry of the strategies available for processing a single trade.
+ * 
+ * Built in strategies are:
+ * inMemory -- TradeStoreService.processTrade, loads every version of the trade id.
+ * lessMemory -- TradeStoreService.processTradeWithLessMemory, version checks are done by the DBMS.
+ * adaptive -- picks one of the above per trade id, based on how many versions it has.
+ * 
+ * Strategy used when a request doesn't ask for one is defined in application.properties
+ * using TradeStoreService.STRATEGY key. Default strategy is inMemory.
+ * 
+ * Adaptive strategy uses inMemory while the latest known version of a trade id is at most
+ * TradeStoreService.ADAPTIVE_VERSION_THRESHOLD, and lessMemory after that. Versions start
+ * at 1, so the latest version bounds the number of stored versions. When only the latest
+ * version is kept there is a single row per trade id and inMemory is always used.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Service(value="tradeStrategyRegistry")
+public class TradeStrategyRegistry {
+	
+	public static final String IN_MEMORY="inMemory";
+	public static final String LESS_MEMORY="lessMemory";
+	public static final String ADAPTIVE="adaptive";
+	
+	@Autowired
+	private TradeStoreService tradeStoreService;
+	
+	@Autowired
+	private TradeVersionIndex tradeVersionIndex;
+	
+	@Autowired(required=false)
+	private Map<String, TradeProcessingStrategy> strategyBeans=Collections.emptyMap();
+	
+	@Value("${TradeStoreService.STRATEGY:inMemory}")
+	private String defaultStrategy;
+	
+	@Value("${TradeStoreService.ADAPTIVE_VERSION_THRESHOLD:8}")
+	private int adaptiveVersionThreshold;
+	
+	@Value("${TradeStoreService.LATEST_VERSION_ONLY:false}")
+	private boolean latestVersionOnly;
+	
+	private final Map<String, TradeProcessingStrategy> strategies=new LinkedHashMap<>();
+	
+	/** Registers the built in strategies and the strategy beans, then checks that the
+	 * default strategy exists.
+	 */
+	@PostConstruct
+	public void registerStrategies() {
+		
+		strategies.put(IN_MEMORY, tradeStoreService::processTrade);
+		strategies.put(LESS_MEMORY, tradeStoreService::processTradeWithLessMemory);
+		strategies.put(ADAPTIVE, this::processAdaptive);
+		strategies.putAll(strategyBeans);
+		
+		if (!strategies.containsKey(defaultStrategy))
+			throw new IllegalStateException("Unknown TradeStoreService.STRATEGY "+defaultStrategy+", expected one of "+strategies.keySet());
+	}
+	
+	/** Processes a trade with the requested strategy, or the default one.
+	 * 
+	 * 
+	 * @param receivedTrade -- Trade DTO for the received trade information.
+	 * @param strategy -- name of the strategy, null for the default strategy.
+	 * @return -- Trade entity of the entry that was saved in the database.
+	 * @throws BarclaysTradeStoreException -- thrown when a trade is rejected or the strategy is unknown.
+	 */
+	public Trade processTrade(TradeDTO receivedTrade, String strategy) throws BarclaysTradeStoreException {
+		return getStrategy(strategy==null ? defaultStrategy : strategy).processTrade(receivedTrade);
+	}
+	
+	/** Finds a strategy by name.
+	 * 
+	 * 
+	 * @param strategy -- name of the strategy. Like "adaptive".
+	 * @return -- strategy registered under the name.
+	 * @throws BarclaysTradeStoreException -- thrown when no strategy has the name.
+	 */
+	public TradeProcessingStrategy getStrategy(String strategy) throws BarclaysTradeStoreException {
+		
+		TradeProcessingStrategy tradeProcessingStrategy=strategies.get(strategy);
+		if (tradeProcessingStrategy==null)
+			throw new BarclaysTradeStoreException("TradeStoreService.UNKNOWN_STRATEGY");
+		return tradeProcessingStrategy;
+	}
+	
+	public Set<String> getStrategyNames() {
+		return Collections.unmodifiableSet(strategies.keySet());
+	}
+	
+	public String getDefaultStrategy() {
+		return defaultStrategy;
+	}
+	
+	private Trade processAdaptive(TradeDTO receivedTrade) throws BarclaysTradeStoreException {
+		
+		if (!latestVersionOnly && tradeVersionIndex.getLatestVersion(receivedTrade.getTradeId())>adaptiveVersionThreshold)
+			return tradeStoreService.processTradeWithLessMemory(receivedTrade);
+		return tradeStoreService.processTrade(receivedTrade);
+	}
+}
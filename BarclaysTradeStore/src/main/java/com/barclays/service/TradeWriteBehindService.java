@@ -0,0 +1,303 @@
+package com.barclays.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.barclays.dto.AcceptedTradeDTO;
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.dto.TradeStatus;
+import com.barclays.dto.TradeValidationResult;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.exception.TradeStoreBusyException;
+import com.barclays.store.TradeVersionIndex;
+import com.barclays.store.TradeWriteAheadLog;
+import com.barclays.utility.TradeLockManager;
+import com.barclays.utility.TradeValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/** Write-behind trade processing strategy, registered as "writeBehind".
+ * 
+ * Enabled by setting TradeWriteBehind.ENABLED key to true in application.properties.
+ * Select it with TradeStoreService.STRATEGY=writeBehind so that every single trade goes
+ * through it, as it relies on knowing every version accepted but not yet written.
+ * 
+ * A trade is validated against TradeVersionIndex and the versions waiting to be written,
+ * appended to a memory-mapped TradeWriteAheadLog and acknowledged. Appended trades are
+ * passed to TradeStoreService.processTrades in batches of TradeWriteBehind.BATCH_SIZE
+ * every TradeWriteBehind.FLUSH_INTERVAL milliseconds and the log is checkpointed after
+ * every batch.
+ * 
+ * Every record holds the date on which its trade was accepted, and the maturity date is
+ * checked against it when the trade is written, so a trade acknowledged just before midnight
+ * or replayed on a later day is still stored. A trade that is rejected when written, like a
+ * lower version racing a higher one stored by another processor, is appended to the
+ * dead-letter file at TradeWriteBehind.DEAD_LETTER_PATH before the log is checkpointed.
+ * 
+ * Trades left in the log by a crash are written by the first flush after restart. Writing
+ * a trade twice has no effect, as an equal version overwrites the stored one.
+ * 
+ * The log is circular, every checkpoint frees the space of the trades written. A trade is
+ * refused with TradeStoreBusyException only when the trades not yet written fill the log.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Service(value="writeBehind")
+@ConditionalOnProperty(name="TradeWriteBehind.ENABLED", havingValue="true")
+public class TradeWriteBehindService implements TradeProcessingStrategy {
+	
+	private static final Log LOGGER = LogFactory.getLog(TradeWriteBehindService.class);
+	
+	@Autowired
+	private TradeStoreService tradeStoreService;
+	
+	@Autowired
+	private TradeVersionIndex tradeVersionIndex;
+	
+	@Autowired
+	private TradeLockManager tradeLockManager;
+	
+	@Autowired
+	private TradeValidator tradeValidator;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Value("${TradeWriteBehind.LOG_PATH:trade-wal.log}")
+	private String logPath;
+	
+	@Value("${TradeWriteBehind.LOG_SIZE:67108864}")
+	private int logSize;
+	
+	@Value("${TradeWriteBehind.DEAD_LETTER_PATH:trade-wal-rejected.log}")
+	private String deadLetterPath;
+	
+	@Value("${TradeWriteBehind.SYNC:false}")
+	private boolean sync;
+	
+	@Value("${TradeWriteBehind.BATCH_SIZE:500}")
+	private int batchSize;
+	
+	private final Map<String, Integer> pendingVersions=new ConcurrentHashMap<>();
+	private TradeWriteAheadLog writeAheadLog;
+	
+	/** Opens the write-ahead log and registers versions of trades left in it.
+	 * 
+	 * Size of trades waiting to be written is published to the metrics registry.
+	 * 
+	 * @throws IOException -- thrown when the log can't be opened.
+	 */
+	@PostConstruct
+	public void open() throws IOException {
+		
+		writeAheadLog=new TradeWriteAheadLog(Paths.get(logPath), logSize, sync);
+		List<byte[]> records=writeAheadLog.readPending();
+		for (byte[] record: records) {
+			TradeDTO trade=decode(record).getTrade();
+			pendingVersions.merge(trade.getTradeId(), trade.getVersion(), Math::max);
+		}
+		if (!records.isEmpty())
+			LOGGER.info("Replaying "+records.size()+" trades from the write-ahead log");
+		
+		Gauge.builder("trade.writebehind.pending", this, TradeWriteBehindService::getPendingBytes)
+				.baseUnit("bytes")
+				.description("Size of trades in the write-ahead log waiting to be written to the database")
+				.register(meterRegistry);
+	}
+	
+	/** Writes every trade left in the log to the database and closes the log.
+	 * 
+	 * @throws IOException -- thrown when the log can't be closed.
+	 */
+	@PreDestroy
+	public void close() throws IOException {
+		flush();
+		writeAheadLog.close();
+	}
+	
+	/** Validates the trade and appends it to the write-ahead log.
+	 * 
+	 * Trade with a maturity date of past, or a lower version than one already accepted,
+	 * is rejected. Trade identical to the latest stored version is left out of the log.
+	 * 
+	 * 
+	 * @param receivedTrade -- Trade DTO for the received trade information.
+	 * @return -- Trade entity that will be saved, without an id, null for a duplicate.
+	 * @throws BarclaysTradeStoreException -- thrown when a trade is rejected or the log is full.
+	 */
+	@Override
+	public Trade processTrade(TradeDTO receivedTrade) throws BarclaysTradeStoreException {
+		
+		LocalDate today=tradeValidator.today();
+		TradeValidationResult validation=tradeValidator.validate(receivedTrade, TradeVersionIndex.contentHash(receivedTrade), today);
+		if (validation.isRejected())
+			throw validation.getException();
+		if (validation==TradeValidationResult.DUPLICATE)
+			return null;
+		
+		byte[] record=encode(new AcceptedTradeDTO(receivedTrade, today));
+		Lock lock=tradeLockManager.lock(receivedTrade.getTradeId());
+		try {
+			
+			if (isLowerVersion(receivedTrade.getTradeId(), receivedTrade.getVersion()))
+				throw TradeValidationResult.LOWER_VERSION_TRADE.getException();
+			if (!writeAheadLog.append(record))
+				throw new TradeStoreBusyException("TradeWriteBehind.LOG_FULL");
+			pendingVersions.merge(receivedTrade.getTradeId(), receivedTrade.getVersion(), Math::max);
+		} finally {
+			lock.unlock();
+		}
+		
+		Trade trade=new Trade();
+		trade.setTradeId(receivedTrade.getTradeId());
+		trade.setVersion(receivedTrade.getVersion());
+		trade.setCounterPartyId(receivedTrade.getCounterPartyId());
+		trade.setBookId(receivedTrade.getBookId());
+		trade.setMaturityDate(receivedTrade.getMaturityDate());
+		trade.setCreatedDate(receivedTrade.getCreatedDate());
+		trade.setExpired(receivedTrade.getExpired());
+		return trade;
+	}
+	
+	/** Writes appended trades to the database in batches and checkpoints the log after
+	 * every batch. A failed batch stays in the log and is retried by the next flush.
+	 * 
+	 * Trades are grouped by the date on which they were accepted. Rejected trades are
+	 * written to the dead-letter file before the checkpoint.
+	 */
+	@Scheduled(fixedDelayString="${TradeWriteBehind.FLUSH_INTERVAL:100}")
+	public synchronized void flush() {
+		
+		List<byte[]> records=new ArrayList<>(batchSize);
+		while (true) {
+			int position=writeAheadLog.read(batchSize, records);
+			if (records.isEmpty())
+				return;
+			
+			List<AcceptedTradeDTO> trades=new ArrayList<>(records.size());
+			for (byte[] record: records)
+				trades.add(decode(record));
+			
+			List<AcceptedTradeDTO> rejected=new ArrayList<>();
+			int from=0;
+			for (int i=1; i<=trades.size(); i++) {
+				if (i==trades.size() || !Objects.equals(trades.get(i).getAcceptedOn(), trades.get(from).getAcceptedOn())) {
+					store(trades.subList(from, i), rejected);
+					from=i;
+				}
+			}
+			writeDeadLetters(rejected);
+			writeAheadLog.checkpoint(position);
+			
+			for (AcceptedTradeDTO trade: trades)
+				pendingVersions.computeIfPresent(trade.getTrade().getTradeId(), 
+						(tradeId, version) -> version<=tradeVersionIndex.getLatestVersion(tradeId) ? null : version);
+			records.clear();
+		}
+	}
+	
+	/** Writes trades accepted on the same date to the database.
+	 * 
+	 * 
+	 * @param trades -- trades accepted on the same date, records written before the date was kept have none.
+	 * @param rejected -- trades rejected by the database are added to it along with the reason.
+	 */
+	private void store(List<AcceptedTradeDTO> trades, List<AcceptedTradeDTO> rejected) {
+		
+		LocalDate acceptedOn=trades.get(0).getAcceptedOn();
+		List<TradeDTO> receivedTrades=new ArrayList<>(trades.size());
+		for (AcceptedTradeDTO trade: trades)
+			receivedTrades.add(trade.getTrade());
+		
+		List<TradeResultDTO> results=tradeStoreService.processTrades(receivedTrades, acceptedOn==null ? tradeValidator.today() : acceptedOn);
+		for (int i=0; i<results.size(); i++) {
+			TradeResultDTO result=results.get(i);
+			if (result.getStatus()==TradeStatus.REJECTED) {
+				LOGGER.warn("Acknowledged trade "+result.getTradeId()+" version "+result.getVersion()+" was rejected: "+result.getMessage()
+						+", moved to "+deadLetterPath);
+				trades.get(i).setMessage(result.getMessage());
+				rejected.add(trades.get(i));
+			}
+		}
+	}
+	
+	/** Appends rejected trades to the dead-letter file, one JSON record per line, and forces
+	 * them to disk.
+	 * 
+	 * 
+	 * @param rejected -- rejected trades along with the reason.
+	 */
+	private void writeDeadLetters(List<AcceptedTradeDTO> rejected) {
+		
+		if (rejected.isEmpty())
+			return;
+		try (FileChannel channel=FileChannel.open(Paths.get(deadLetterPath), 
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			for (AcceptedTradeDTO trade: rejected) {
+				ByteBuffer line=ByteBuffer.wrap((objectMapper.writeValueAsString(trade)+System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+				while (line.hasRemaining())
+					channel.write(line);
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	public int getPendingBytes() {
+		return writeAheadLog.getPendingBytes();
+	}
+	
+	private boolean isLowerVersion(String tradeId, int version) {
+		Integer pendingVersion=pendingVersions.get(tradeId);
+		return tradeVersionIndex.isLowerVersion(tradeId, version) || (pendingVersion!=null && pendingVersion>version);
+	}
+	
+	private byte[] encode(AcceptedTradeDTO trade) {
+		try {
+			return objectMapper.writeValueAsBytes(trade);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private AcceptedTradeDTO decode(byte[] record) {
+		try {
+			return objectMapper.readValue(record, AcceptedTradeDTO.class);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,373 @@
+package com.barclays.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/** Table of trades kept outside of the Java heap in fixed size records.
+ * 
+ * Every record is 32 bytes, addressed by its id, all numbers are big endian:
+ * 
+ * <pre>
+ * i32 tradeId reference
+ * i32 version
+ * i32 counterPartyId reference
+ * i32 bookId reference
+ * i32 maturityDate as epoch day, Integer.MIN_VALUE for null
+ * i32 createdDate as epoch day, Integer.MIN_VALUE for null
+ * i32 id of the next lower version of the trade id, 0 for none
+ * u8  expired as 'N' or 'Y', 0 for null
+ * u8  1 while the record is live, 0 once removed
+ * </pre>
+ * 
+ * Strings are interned in two StringDictionary instances, one for trade ids and one for
+ * counterparty and book ids. Records live in direct buffers of 65536 records each, added
+ * as the table grows. Ids are handed out in ascending order and never reused.
+ * 
+ * Versions of a trade id form a chain from the highest version down, starting at the
+ * head kept for the trade id. A version check reads the head record and rarely more.
+ * 
+ * The whole table is written to a snapshot file and read back on startup. Chains are
+ * rebuilt from the records when reading.
+ * 
+ * Not thread safe, callers synchronize access.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public class OffHeapTradeTable {
+	
+	public static final int NULL_DATE=Integer.MIN_VALUE;
+	public static final byte NULL_EXPIRED=0;
+	
+	private static final int MAGIC=0x54534E31;
+	private static final int RECORD_SIZE=32;
+	private static final int CHUNK_SHIFT=16;
+	private static final int CHUNK_RECORDS=1<<CHUNK_SHIFT;
+	
+	private static final int TRADE_ID=0;
+	private static final int VERSION=4;
+	private static final int COUNTER_PARTY_ID=8;
+	private static final int BOOK_ID=12;
+	private static final int MATURITY_DATE=16;
+	private static final int CREATED_DATE=20;
+	private static final int PREVIOUS=24;
+	private static final int EXPIRED=28;
+	private static final int LIVE=29;
+	
+	private final StringDictionary tradeIds;
+	private final StringDictionary names;
+	private ByteBuffer[] chunks=new ByteBuffer[16];
+	private int[] heads=new int[1024];
+	private int lastId;
+	private int count;
+	
+	public OffHeapTradeTable() {
+		this(new StringDictionary(), new StringDictionary());
+	}
+	
+	private OffHeapTradeTable(StringDictionary tradeIds, StringDictionary names) {
+		this.tradeIds=tradeIds;
+		this.names=names;
+	}
+	
+	/** Highest id handed out, every live record has an id between 1 and this.
+	 * 
+	 * 
+	 * @return -- highest id.
+	 */
+	public int getLastId() {
+		return lastId;
+	}
+	
+	/** Number of live records.
+	 * 
+	 * 
+	 * @return -- number of records.
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	/** Number of distinct trade ids ever stored. Trade id references run from 1 to this.
+	 * 
+	 * 
+	 * @return -- number of trade ids.
+	 */
+	public int getTradeIdCount() {
+		return tradeIds.size();
+	}
+	
+	/** Finds the record holding the highest version of a trade id.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @return -- id of the record, 0 when the trade id isn't stored.
+	 */
+	public int getHead(String tradeId) {
+		return getHead(tradeIds.find(tradeId));
+	}
+	
+	/** Finds the record holding the highest version of a trade id reference.
+	 * 
+	 * 
+	 * @param tradeIdRef -- reference of the trade id.
+	 * @return -- id of the record, 0 when the trade id isn't stored.
+	 */
+	public int getHead(int tradeIdRef) {
+		return tradeIdRef<heads.length ? heads[tradeIdRef] : 0;
+	}
+	
+	/** Finds the reference of a counterparty or book id, to compare with getCounterPartyRef
+	 * and getBookRef.
+	 * 
+	 * 
+	 * @param name -- counterparty or book id.
+	 * @return -- reference of the id, 0 when no record holds it or it is null.
+	 */
+	public int findName(String name) {
+		return names.find(name);
+	}
+	
+	public boolean isLive(int id) {
+		return id>0 && id<=lastId && chunk(id).get(offset(id)+LIVE)!=0;
+	}
+	
+	public int getPrevious(int id) {
+		return chunk(id).getInt(offset(id)+PREVIOUS);
+	}
+	
+	public String getTradeId(int id) {
+		return tradeIds.get(chunk(id).getInt(offset(id)+TRADE_ID));
+	}
+	
+	public int getVersion(int id) {
+		return chunk(id).getInt(offset(id)+VERSION);
+	}
+	
+	public int getCounterPartyRef(int id) {
+		return chunk(id).getInt(offset(id)+COUNTER_PARTY_ID);
+	}
+	
+	public String getCounterPartyId(int id) {
+		return names.get(getCounterPartyRef(id));
+	}
+	
+	public int getBookRef(int id) {
+		return chunk(id).getInt(offset(id)+BOOK_ID);
+	}
+	
+	public String getBookId(int id) {
+		return names.get(getBookRef(id));
+	}
+	
+	public int getMaturityDate(int id) {
+		return chunk(id).getInt(offset(id)+MATURITY_DATE);
+	}
+	
+	public int getCreatedDate(int id) {
+		return chunk(id).getInt(offset(id)+CREATED_DATE);
+	}
+	
+	public byte getExpired(int id) {
+		return chunk(id).get(offset(id)+EXPIRED);
+	}
+	
+	public void setExpired(int id, byte expired) {
+		chunk(id).put(offset(id)+EXPIRED, expired);
+	}
+	
+	/** Adds a record with a new id and links it into the chain of its trade id.
+	 * 
+	 * 
+	 * @return -- id of the new record.
+	 */
+	public int insert(String tradeId, int version, String counterPartyId, String bookId, int maturityDate, int createdDate, byte expired) {
+		
+		int id=lastId+1;
+		int chunkIndex=(id-1)>>>CHUNK_SHIFT;
+		if (chunkIndex==chunks.length)
+			chunks=Arrays.copyOf(chunks, chunks.length*2);
+		if (chunks[chunkIndex]==null)
+			chunks[chunkIndex]=ByteBuffer.allocateDirect(CHUNK_RECORDS*RECORD_SIZE);
+		lastId=id;
+		
+		write(id, tradeId, version, counterPartyId, bookId, maturityDate, createdDate, expired);
+		chunk(id).put(offset(id)+LIVE, (byte)1);
+		link(id);
+		count++;
+		return id;
+	}
+	
+	/** Overwrites a live record, moving it within the chains when its trade id or version changes.
+	 * 
+	 * 
+	 * @param id -- id of the record.
+	 */
+	public void update(int id, String tradeId, int version, String counterPartyId, String bookId, int maturityDate, int createdDate, byte expired) {
+		
+		boolean relink=getVersion(id)!=version || !getTradeId(id).equals(tradeId);
+		if (relink)
+			unlink(id);
+		write(id, tradeId, version, counterPartyId, bookId, maturityDate, createdDate, expired);
+		if (relink)
+			link(id);
+	}
+	
+	/** Removes a live record from the table and from the chain of its trade id.
+	 * 
+	 * 
+	 * @param id -- id of the record.
+	 */
+	public void remove(int id) {
+		
+		unlink(id);
+		chunk(id).put(offset(id)+LIVE, (byte)0);
+		count--;
+	}
+	
+	/** Writes the table to a snapshot file. The snapshot is written next to the file and
+	 * moved over it once complete, so that a crash never leaves a partial snapshot behind.
+	 * 
+	 * 
+	 * @param path -- location of the snapshot file.
+	 * @throws IOException -- thrown when the file can't be written.
+	 */
+	public void writeTo(Path path) throws IOException {
+		
+		Path temporary=path.resolveSibling(path.getFileName()+".tmp");
+		try (DataOutputStream output=new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1<<16))) {
+			output.writeInt(MAGIC);
+			output.writeInt(lastId);
+			tradeIds.writeTo(output);
+			names.writeTo(output);
+			
+			byte[] buffer=new byte[1<<16];
+			long remaining=(long)lastId*RECORD_SIZE;
+			for (int chunkIndex=0; remaining>0; chunkIndex++) {
+				ByteBuffer chunk=chunks[chunkIndex].duplicate();
+				chunk.clear();
+				int chunkBytes=(int)Math.min(remaining, chunk.capacity());
+				for (int position=0; position<chunkBytes; position+=buffer.length) {
+					int length=Math.min(buffer.length, chunkBytes-position);
+					chunk.get(buffer, 0, length);
+					output.write(buffer, 0, length);
+				}
+				remaining-=chunkBytes;
+			}
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/** Reads a table from a snapshot file written by writeTo.
+	 * 
+	 * 
+	 * @param path -- location of the snapshot file.
+	 * @return -- table holding the records of the snapshot.
+	 * @throws IOException -- thrown when the file can't be read or isn't a snapshot.
+	 */
+	public static OffHeapTradeTable readFrom(Path path) throws IOException {
+		
+		try (DataInputStream input=new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1<<16))) {
+			if (input.readInt()!=MAGIC)
+				throw new IOException(path+" isn't a trade store snapshot");
+			int lastId=input.readInt();
+			OffHeapTradeTable table=new OffHeapTradeTable(StringDictionary.readFrom(input), StringDictionary.readFrom(input));
+			
+			int chunkCount=(int)(((long)lastId+CHUNK_RECORDS-1)>>>CHUNK_SHIFT);
+			table.chunks=new ByteBuffer[Math.max(16, Integer.highestOneBit(Math.max(1, chunkCount))*2)];
+			byte[] buffer=new byte[1<<16];
+			long remaining=(long)lastId*RECORD_SIZE;
+			for (int chunkIndex=0; chunkIndex<chunkCount; chunkIndex++) {
+				ByteBuffer chunk=ByteBuffer.allocateDirect(CHUNK_RECORDS*RECORD_SIZE);
+				int chunkBytes=(int)Math.min(remaining, chunk.capacity());
+				for (int position=0; position<chunkBytes; position+=buffer.length) {
+					int length=Math.min(buffer.length, chunkBytes-position);
+					input.readFully(buffer, 0, length);
+					chunk.put(buffer, 0, length);
+				}
+				table.chunks[chunkIndex]=chunk;
+				remaining-=chunkBytes;
+			}
+			
+			table.lastId=lastId;
+			for (int id=1; id<=lastId; id++) {
+				if (table.isLive(id)) {
+					table.link(id);
+					table.count++;
+				}
+			}
+			return table;
+		}
+	}
+	
+	private void write(int id, String tradeId, int version, String counterPartyId, String bookId, int maturityDate, int createdDate, byte expired) {
+		
+		ByteBuffer chunk=chunk(id);
+		int offset=offset(id);
+		chunk.putInt(offset+TRADE_ID, tradeIds.intern(tradeId));
+		chunk.putInt(offset+VERSION, version);
+		chunk.putInt(offset+COUNTER_PARTY_ID, names.intern(counterPartyId));
+		chunk.putInt(offset+BOOK_ID, names.intern(bookId));
+		chunk.putInt(offset+MATURITY_DATE, maturityDate);
+		chunk.putInt(offset+CREATED_DATE, createdDate);
+		chunk.put(offset+EXPIRED, expired);
+	}
+	
+	/** Links a record into the chain of its trade id, keeping the chain in descending version order.
+	 */
+	private void link(int id) {
+		
+		int tradeIdRef=chunk(id).getInt(offset(id)+TRADE_ID);
+		if (tradeIdRef>=heads.length)
+			heads=Arrays.copyOf(heads, Math.max(heads.length*2, tradeIdRef+1));
+		
+		int version=getVersion(id);
+		int next=0;
+		int current=heads[tradeIdRef];
+		while (current!=0 && getVersion(current)>version) {
+			next=current;
+			current=getPrevious(current);
+		}
+		setPrevious(id, current);
+		if (next==0)
+			heads[tradeIdRef]=id;
+		else
+			setPrevious(next, id);
+	}
+	
+	private void unlink(int id) {
+		
+		int tradeIdRef=chunk(id).getInt(offset(id)+TRADE_ID);
+		int next=0;
+		int current=heads[tradeIdRef];
+		while (current!=id) {
+			next=current;
+			current=getPrevious(current);
+		}
+		if (next==0)
+			heads[tradeIdRef]=getPrevious(id);
+		else
+			setPrevious(next, getPrevious(id));
+	}
+	
+	private void setPrevious(int id, int previous) {
+		chunk(id).putInt(offset(id)+PREVIOUS, previous);
+	}
+	
+	private ByteBuffer chunk(int id) {
+		return chunks[(id-1)>>>CHUNK_SHIFT];
+	}
+	
+	private static int offset(int id) {
+		return ((id-1) & (CHUNK_RECORDS-1))*RECORD_SIZE;
+	}
+}
@@ -0,0 +1,140 @@
+package com.barclays.store;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** Dictionary handing out a small int reference for every distinct string.
+ * 
+ * References start at 1 and are never reused, 0 stands for null. Strings are kept in an
+ * array indexed by reference and found through an open addressing table of references,
+ * so the dictionary holds no objects other than the strings themselves.
+ * 
+ * Not thread safe, callers synchronize access.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public class StringDictionary {
+	
+	public static final int NULL_REF=0;
+	
+	private String[] values=new String[16];
+	private int[] table=new int[32];
+	private int size;
+	
+	/** Finds the reference of a string.
+	 * 
+	 * 
+	 * @param value -- string to be found, can be null.
+	 * @return -- reference of the string, NULL_REF when it isn't in the dictionary or is null.
+	 */
+	public int find(String value) {
+		
+		if (value==null)
+			return NULL_REF;
+		int mask=table.length-1;
+		for (int slot=hash(value) & mask; ; slot=(slot+1) & mask) {
+			int ref=table[slot];
+			if (ref==NULL_REF || values[ref].equals(value))
+				return ref;
+		}
+	}
+	
+	/** Finds the reference of a string, adding the string when it isn't in the dictionary.
+	 * 
+	 * 
+	 * @param value -- string to be interned, can be null.
+	 * @return -- reference of the string, NULL_REF for null.
+	 */
+	public int intern(String value) {
+		
+		int ref=find(value);
+		if (ref!=NULL_REF || value==null)
+			return ref;
+		
+		ref=++size;
+		if (ref==values.length)
+			values=Arrays.copyOf(values, values.length*2);
+		values[ref]=value;
+		if (size*2>table.length) {
+			table=new int[table.length*2];
+			for (int i=1; i<=size; i++)
+				insert(i);
+		} else {
+			insert(ref);
+		}
+		return ref;
+	}
+	
+	/** Finds the string of a reference.
+	 * 
+	 * 
+	 * @param ref -- reference handed out by intern.
+	 * @return -- string of the reference, null for NULL_REF.
+	 */
+	public String get(int ref) {
+		return values[ref];
+	}
+	
+	/** Number of strings in the dictionary, which is also the highest reference handed out.
+	 * 
+	 * 
+	 * @return -- number of strings.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/** Writes every string in reference order.
+	 * 
+	 * 
+	 * @param output -- stream the strings are written to.
+	 * @throws IOException -- thrown when the stream can't be written.
+	 */
+	public void writeTo(DataOutputStream output) throws IOException {
+		
+		output.writeInt(size);
+		for (int ref=1; ref<=size; ref++) {
+			byte[] bytes=values[ref].getBytes(StandardCharsets.UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+	
+	/** Reads strings written by writeTo, they get back the same references.
+	 * 
+	 * 
+	 * @param input -- stream the strings are read from.
+	 * @return -- dictionary holding the strings.
+	 * @throws IOException -- thrown when the stream can't be read.
+	 */
+	public static StringDictionary readFrom(DataInputStream input) throws IOException {
+		
+		StringDictionary dictionary=new StringDictionary();
+		int size=input.readInt();
+		for (int ref=1; ref<=size; ref++) {
+			byte[] bytes=new byte[input.readInt()];
+			input.readFully(bytes);
+			dictionary.intern(new String(bytes, StandardCharsets.UTF_8));
+		}
+		return dictionary;
+	}
+	
+	private void insert(int ref) {
+		
+		int mask=table.length-1;
+		int slot=hash(values[ref]) & mask;
+		while (table[slot]!=NULL_REF)
+			slot=(slot+1) & mask;
+		table[slot]=ref;
+	}
+	
+	private static int hash(String value) {
+		int hash=value.hashCode();
+		return hash ^ (hash>>>16);
+	}
+}
@@ -0,0 +1,131 @@
+package com.barclays.store;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.barclays.entity.Trade;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/** Bounded read-through cache of trades served by the read API.
+ * 
+ * Latest version of a trade is cached by trade id, and specific versions by trade id
+ * and version. Each cache holds up to TradeCache.MAXIMUM_SIZE trades, least recently
+ * used trades are evicted first, and a trade is dropped TradeCache.EXPIRE_AFTER_WRITE
+ * milliseconds after it was loaded.
+ * 
+ * Trade processors invalidate a trade once a version of it is committed. The expiry
+ * job invalidates every trade after each chunk, as it doesn't know which trades it changed.
+ * 
+ * Hits, misses and evictions of both caches are published as metrics.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+public class TradeCache implements MeterBinder {
+	
+	private final Cache<String, Trade> latestTrades;
+	private final Cache<String, Trade> tradeVersions;
+	
+	public TradeCache(@Value("${TradeCache.MAXIMUM_SIZE:100000}") long maximumSize,
+			@Value("${TradeCache.EXPIRE_AFTER_WRITE:60000}") long expireAfterWrite) {
+		
+		latestTrades=Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(Duration.ofMillis(expireAfterWrite))
+				.recordStats()
+				.build();
+		tradeVersions=Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(Duration.ofMillis(expireAfterWrite))
+				.recordStats()
+				.build();
+	}
+	
+	/** Finds the latest version of a trade, loading it on a miss.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @param loader -- loads the trade from the store, returns null when it isn't stored.
+	 * @return -- Trade entity, or null when the trade isn't stored.
+	 */
+	public Trade getLatest(String tradeId, Function<String, Trade> loader) {
+		return latestTrades.get(tradeId, loader);
+	}
+	
+	/** Finds a specific version of a trade, loading it on a miss.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @param version -- integer value for trade version. Like 1.
+	 * @param loader -- loads the trade from the store, returns null when it isn't stored.
+	 * @return -- Trade entity, or null when the version isn't stored.
+	 */
+	public Trade getVersion(String tradeId, int version, Function<String, Trade> loader) {
+		return tradeVersions.get(versionKey(tradeId, version), loader);
+	}
+	
+	/** Drops a version of a trade, and the latest version of it, once the surrounding
+	 * transaction completes. A load racing with the commit can't leave a stale entry,
+	 * as invalidation waits for it to finish.
+	 * 
+	 * Dropped immediately when no transaction is active.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @param version -- integer value for trade version. Like 1.
+	 */
+	public void invalidateAfterCommit(String tradeId, int version) {
+		
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			invalidate(tradeId, version);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				invalidate(tradeId, version);
+			}
+		});
+	}
+	
+	public void invalidate(String tradeId, int version) {
+		latestTrades.invalidate(tradeId);
+		tradeVersions.invalidate(versionKey(tradeId, version));
+	}
+	
+	public void invalidateAll() {
+		latestTrades.invalidateAll();
+		tradeVersions.invalidateAll();
+	}
+	
+	public long size() {
+		return latestTrades.estimatedSize()+tradeVersions.estimatedSize();
+	}
+	
+	private String versionKey(String tradeId, int version) {
+		return tradeId+'#'+version;
+	}
+	
+	/** Publishes hit, miss and eviction counts of both caches to the metrics registry.
+	 * 
+	 * 
+	 * @param registry -- registry the meters are bound to.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, latestTrades, "trades.latest");
+		CaffeineCacheMetrics.monitor(registry, tradeVersions, "trades.version");
+	}
+}
@@ -0,0 +1,71 @@
+package com.barclays.store;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.barclays.entity.Trade;
+import com.barclays.entity.TradeHistory;
+import com.barclays.repository.TradeHistoryRepository;
+
+/** Moves superseded trade versions to the trade history table.
+ * 
+ * Used when the store keeps only the latest version of every trade. Trade processors
+ * hand over a copy of the version being overwritten and carry on. Copies taken during a
+ * transaction are written together with saveAll just before it commits, so the history
+ * rows commit or roll back along with the overwrite of the trade row. Nothing is kept
+ * in memory once the transaction ends.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+public class TradeHistoryWriter {
+	
+	@Autowired
+	private TradeHistoryRepository tradeHistoryRepository;
+	
+	/** Takes a copy of a trade version that is about to be overwritten by a higher version.
+	 * The copy is written to the history table in the surrounding transaction, right before
+	 * it commits.
+	 * 
+	 * Written immediately when no transaction is active.
+	 * 
+	 * 
+	 * @param trade -- Trade entity holding the superseded version.
+	 */
+	public void archive(Trade trade) {
+		
+		TradeHistory tradeHistory=new TradeHistory(trade, LocalDateTime.now());
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			tradeHistoryRepository.save(tradeHistory);
+			return;
+		}
+		
+		@SuppressWarnings("unchecked")
+		List<TradeHistory> pending=(List<TradeHistory>)TransactionSynchronizationManager.getResource(this);
+		if (pending==null) {
+			List<TradeHistory> copies=new ArrayList<>();
+			TransactionSynchronizationManager.bindResource(this, copies);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void beforeCommit(boolean readOnly) {
+					tradeHistoryRepository.saveAll(copies);
+				}
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(TradeHistoryWriter.this);
+				}
+			});
+			pending=copies;
+		}
+		pending.add(tradeHistory);
+	}
+}
@@ -0,0 +1,222 @@
+package com.barclays.store;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.barclays.dto.TradeVersion;
+
+/** Maintains range partitions of the trade table by maturity month. MySQL only.
+ * 
+ * Enabled by setting TradePartition.ENABLED to true in application.properties, after the
+ * table is partitioned by the migration in db/partitioning/mysql. The migration leaves a
+ * single p_future partition holding every maturity date. Monthly partitions named like
+ * p202405 are split off it up to TradePartition.MONTHS_AHEAD months ahead of today,
+ * during app startup and after every expiry run.
+ * 
+ * A month ending more than TradePartition.RETENTION_MONTHS months ago is archived once
+ * every trade in it is expired. Its partition is exchanged with an empty table named like
+ * trade_archive_202405 and dropped, which moves the rows without copying them. Nothing
+ * is archived when retention is 0, the default. A run stopped part way through is picked
+ * up by the next one, the archive table is reused while it is empty and the partition is
+ * only dropped once it is.
+ * 
+ * Monthly archive tables don't have the columns of trade_archive, so TradeVersionIndex
+ * loads the versions held by them through findLatestArchivedVersions.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+@ConditionalOnProperty(name="TradePartition.ENABLED", havingValue="true")
+public class TradePartitionManager {
+	
+	private static final Log LOGGER = LogFactory.getLog(TradePartitionManager.class);
+	
+	public static final String FUTURE_PARTITION="p_future";
+	
+	private static final DateTimeFormatter MONTH_FORMAT=DateTimeFormatter.ofPattern("yyyyMM");
+	
+	private static final String ARCHIVE_TABLE_PREFIX="trade_archive_";
+	
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	@Value("${TradePartition.MONTHS_AHEAD:3}")
+	private int monthsAhead;
+	
+	@Value("${TradePartition.RETENTION_MONTHS:0}")
+	private int retentionMonths;
+	
+	@PostConstruct
+	public void init() {
+		addPartitions(LocalDate.now());
+	}
+	
+	/** Finds the monthly partitions of the trade table, oldest first.
+	 * 
+	 * 
+	 * @return -- maturity month of every partition except p_future.
+	 * @throws IllegalStateException -- thrown when the trade table isn't partitioned.
+	 */
+	public List<YearMonth> getPartitions() {
+		
+		List<String> names=jdbcTemplate.queryForList("select partition_name from information_schema.partitions "
+				+ "where table_schema = database() and table_name = 'trade' and partition_name is not null "
+				+ "order by partition_ordinal_position", String.class);
+		if (!names.contains(FUTURE_PARTITION))
+			throw new IllegalStateException("Trade table isn't partitioned, add classpath:db/partitioning/{vendor} to spring.flyway.locations");
+		
+		List<YearMonth> months=new ArrayList<>(names.size());
+		for (String name: names) {
+			if (!name.equals(FUTURE_PARTITION))
+				months.add(YearMonth.parse(name.substring(1), MONTH_FORMAT));
+		}
+		return months;
+	}
+	
+	/** Splits monthly partitions off p_future up to TradePartition.MONTHS_AHEAD months ahead.
+	 * 
+	 * On a table that has no monthly partition yet, the first one is for the earliest
+	 * maturity month stored. Done with a single REORGANIZE PARTITION statement.
+	 * 
+	 * 
+	 * @param today -- present day date.
+	 * @return -- number of partitions added.
+	 */
+	public int addPartitions(LocalDate today) {
+		
+		List<YearMonth> months=getPartitions();
+		YearMonth last=YearMonth.from(today).plusMonths(monthsAhead);
+		YearMonth first;
+		if (months.isEmpty()) {
+			LocalDate earliest=jdbcTemplate.queryForObject("select min(maturity_date) from trade", LocalDate.class);
+			first=earliest==null || earliest.isAfter(today) ? YearMonth.from(today) : YearMonth.from(earliest);
+		} else {
+			first=months.get(months.size()-1).plusMonths(1);
+		}
+		if (first.isAfter(last))
+			return 0;
+		
+		StringBuilder sql=new StringBuilder("alter table trade reorganize partition ").append(FUTURE_PARTITION).append(" into (");
+		int added=0;
+		for (YearMonth month=first; !month.isAfter(last); month=month.plusMonths(1), added++) {
+			sql.append("partition ").append(partitionName(month))
+					.append(" values less than ('").append(month.plusMonths(1).atDay(1)).append("'), ");
+		}
+		sql.append("partition ").append(FUTURE_PARTITION).append(" values less than (maxvalue))");
+		jdbcTemplate.execute(sql.toString());
+		
+		LOGGER.info("Added "+added+" trade partitions from "+first+" to "+last);
+		return added;
+	}
+	
+	/** Archives every fully expired month older than TradePartition.RETENTION_MONTHS.
+	 * 
+	 * A partition still holding a trade with expired flag N is left in place and tried
+	 * again after the next expiry run.
+	 * 
+	 * 
+	 * @param today -- present day date.
+	 * @return -- number of partitions archived.
+	 */
+	public int archivePartitions(LocalDate today) {
+		
+		if (retentionMonths<=0)
+			return 0;
+		
+		YearMonth cutoff=YearMonth.from(today).minusMonths(retentionMonths);
+		int archived=0;
+		for (YearMonth month: getPartitions()) {
+			if (!month.isBefore(cutoff))
+				break;
+			
+			String partition=partitionName(month);
+			Integer unexpired=jdbcTemplate.queryForObject("select count(*) from trade partition ("+partition+") where expired = 'N'", Integer.class);
+			if (unexpired!=null && unexpired>0) {
+				LOGGER.warn("Trade partition "+partition+" isn't archived, it holds "+unexpired+" trades that aren't expired");
+				continue;
+			}
+			
+			String archiveTable=ARCHIVE_TABLE_PREFIX+month.format(MONTH_FORMAT);
+			jdbcTemplate.execute("create table if not exists "+archiveTable+" like trade");
+			if (count("select count(*) from information_schema.partitions where table_schema = database() "
+					+ "and table_name = '"+archiveTable+"' and partition_name is not null")>0)
+				jdbcTemplate.execute("alter table "+archiveTable+" remove partitioning");
+			
+			// Rows left in the archive table were exchanged by a run that stopped before the drop
+			if (count("select count(*) from "+archiveTable)==0)
+				jdbcTemplate.execute("alter table trade exchange partition "+partition+" with table "+archiveTable);
+			else if (count("select count(*) from trade partition ("+partition+")")>0) {
+				LOGGER.warn("Trade partition "+partition+" isn't archived, "+archiveTable+" already holds trades");
+				continue;
+			}
+			jdbcTemplate.execute("alter table trade drop partition "+partition);
+			LOGGER.info("Trade partition "+partition+" archived to "+archiveTable);
+			archived++;
+		}
+		return archived;
+	}
+	
+	/** Finds the highest version of every trade id moved to the monthly archive tables.
+	 * 
+	 * 
+	 * @return -- trade id and version of the latest archived version of every trade id.
+	 */
+	public List<TradeVersion> findLatestArchivedVersions() {
+		
+		List<String> tables=jdbcTemplate.queryForList("select table_name from information_schema.tables "
+				+ "where table_schema = database() and table_name like '"+ARCHIVE_TABLE_PREFIX+"%'", String.class);
+		List<TradeVersion> versions=new ArrayList<>();
+		for (String table: tables) {
+			if (!table.matches(ARCHIVE_TABLE_PREFIX+"\\d{6}"))
+				continue;
+			versions.addAll(jdbcTemplate.query("select trade_id, max(version) from "+table+" group by trade_id", 
+					(resultSet, row) -> new ArchivedVersion(resultSet.getString(1), resultSet.getInt(2))));
+		}
+		return versions;
+	}
+	
+	private int count(String sql) {
+		Integer count=jdbcTemplate.queryForObject(sql, Integer.class);
+		return count==null ? 0 : count;
+	}
+	
+	private static String partitionName(YearMonth month) {
+		return "p"+month.format(MONTH_FORMAT);
+	}
+	
+	private static class ArchivedVersion implements TradeVersion {
+		
+		private final String tradeId;
+		private final int version;
+		
+		ArchivedVersion(String tradeId, int version) {
+			this.tradeId=tradeId;
+			this.version=version;
+		}
+		
+		@Override
+		public String getTradeId() {
+			return tradeId;
+		}
+		
+		@Override
+		public int getVersion() {
+			return version;
+		}
+	}
+}
@@ -0,0 +1,406 @@
+package com.barclays.store;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeCountDTO;
+import com.barclays.entity.Trade;
+import com.barclays.repository.TradeStoreRepository;
+
+/** In-memory secondary indexes of stored trades by book id, counter party id and
+ * maturity month.
+ * 
+ * Every stored trade (every version of a trade id) is kept by its id, but only the latest
+ * version of a trade id is counted. Each book, counter party and maturity month keeps the
+ * ids of the latest versions in it along with the number of live and expired ones, so
+ * that counts are answered without looking at the trades. A higher version replaces the
+ * lower one in its groups, so an amended trade moved to another book leaves the old one.
+ * When the latest version is removed, the highest remaining version takes its place.
+ * 
+ * Live trades of every version are also kept by maturity date, earliest first, as the
+ * expired flag is set per stored trade. Trades that have matured by a given day are found
+ * by walking the dates before it, without looking at any other trade. The expiry job uses
+ * this at every day boundary.
+ * 
+ * Loaded from the trade table during app startup, TradeSecondaryIndex.PAGE_SIZE trades
+ * at a time. Trade processors update it once a trade is committed, the expiry job after
+ * every chunk it expires and the archive job after every chunk it moves.
+ * 
+ * Changes are serialized, counts can be read at any time without a lock.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+public class TradeSecondaryIndex {
+	
+	private final Map<Integer, Entry> entries=new ConcurrentHashMap<>();
+	private final Map<String, NavigableMap<Integer, Entry>> versions=new HashMap<>();
+	private final Map<String, Group> books=new ConcurrentHashMap<>();
+	private final Map<String, Group> counterParties=new ConcurrentHashMap<>();
+	private final Map<YearMonth, Group> maturityMonths=new ConcurrentSkipListMap<>();
+	private final NavigableMap<LocalDate, Set<Integer>> liveTradesByMaturity=new ConcurrentSkipListMap<>();
+	
+	@Autowired
+	private TradeStoreRepository tradeStoreRepository;
+	
+	@Value("${TradeSecondaryIndex.PAGE_SIZE:10000}")
+	private int pageSize=10000;
+	
+	/** Loads every stored trade from the database.
+	 */
+	@PostConstruct
+	public void warmUp() {
+		
+		int lastId=0;
+		while (true) {
+			Collection<Trade> trades=tradeStoreRepository.findTradesAfter(null, null, null, lastId, PageRequest.of(0, pageSize));
+			for (Trade trade: trades) {
+				put(trade);
+				lastId=trade.getId();
+			}
+			if (trades.size()<pageSize)
+				break;
+		}
+	}
+	
+	/** Drops every indexed trade and loads them again, after trades were moved out of the
+	 * trade table without going through the index.
+	 */
+	public synchronized void reload() {
+		
+		entries.clear();
+		versions.clear();
+		books.clear();
+		counterParties.clear();
+		maturityMonths.clear();
+		liveTradesByMaturity.clear();
+		warmUp();
+	}
+	
+	/** Indexes a saved trade once the surrounding transaction commits, replacing the
+	 * previous content of the same id. The content is taken at the time of the call.
+	 * Indexed immediately when no transaction is active.
+	 * 
+	 * 
+	 * @param trade -- Trade entity returned by the repository.
+	 */
+	public void putAfterCommit(Trade trade) {
+		
+		Entry entry=new Entry(trade);
+		afterCommit(() -> put(entry));
+	}
+	
+	/** Removes a deleted trade once the surrounding transaction commits.
+	 * Removed immediately when no transaction is active.
+	 * 
+	 * 
+	 * @param id -- id of the deleted trade.
+	 */
+	public void removeAfterCommit(int id) {
+		afterCommit(() -> remove(id));
+	}
+	
+	/** Indexes a saved trade, replacing the previous content of the same id.
+	 * 
+	 * 
+	 * @param trade -- Trade entity read from or returned by the repository.
+	 */
+	public void put(Trade trade) {
+		put(new Entry(trade));
+	}
+	
+	/** Removes trades moved out of the trade table.
+	 * 
+	 * 
+	 * @param ids -- ids of the removed trades.
+	 */
+	public synchronized void remove(Collection<Integer> ids) {
+		for (int id: ids)
+			remove(id);
+	}
+	
+	/** Counts live trades among the given ids as expired, when they matured
+	 * before today. Called with the ids of a chunk of the expiry job after it commits.
+	 * 
+	 * 
+	 * @param ids -- ids of trades that may have been expired.
+	 * @param today -- present day date.
+	 */
+	public synchronized void expire(Collection<Integer> ids, LocalDate today) {
+		
+		for (int id: ids) {
+			Entry entry=entries.get(id);
+			if (entry!=null && entry.expired!=Expired.Y && entry.maturityDate!=null && entry.maturityDate.isBefore(today))
+				put(entry.withExpired(Expired.Y));
+		}
+	}
+	
+	/** Finds live trades that have matured, earliest maturity date first.
+	 * 
+	 * 
+	 * @param today -- present day date, trades maturing before it are found.
+	 * @param limit -- largest number of ids to find.
+	 * @return -- ids of live trades with a maturity date before today.
+	 */
+	public List<Integer> getMaturedLiveIds(LocalDate today, int limit) {
+		
+		List<Integer> ids=new ArrayList<>();
+		for (Set<Integer> maturing: liveTradesByMaturity.headMap(today).values()) {
+			for (Integer id: maturing) {
+				if (ids.size()==limit)
+					return ids;
+				ids.add(id);
+			}
+		}
+		return ids;
+	}
+	
+	public TradeCountDTO getBookCount(String bookId) {
+		return count(books.get(bookId));
+	}
+	
+	public TradeCountDTO getCounterPartyCount(String counterPartyId) {
+		return count(counterParties.get(counterPartyId));
+	}
+	
+	/** Counts trades of every maturity month, earliest month first.
+	 * 
+	 * 
+	 * @return -- number of live and expired trades keyed by maturity month. Like "2024-05".
+	 */
+	public Map<String, TradeCountDTO> getMaturityMonthCounts() {
+		
+		Map<String, TradeCountDTO> counts=new LinkedHashMap<>();
+		maturityMonths.forEach((month, group) -> {
+			if (group.live+group.expired>0)
+				counts.put(month.toString(), count(group));
+		});
+		return counts;
+	}
+	
+	/** Finds trade ids of a book.
+	 * 
+	 * 
+	 * @param bookId -- string value for book id. Like "B1".
+	 * @param expired -- expired flag of the trades, null for all trades.
+	 * @return -- distinct trade ids in ascending order.
+	 */
+	public SortedSet<String> getBookTradeIds(String bookId, Expired expired) {
+		return tradeIds(books.get(bookId), expired);
+	}
+	
+	/** Finds trade ids of a counter party.
+	 * 
+	 * 
+	 * @param counterPartyId -- string value for counter party id. Like "CP-1".
+	 * @param expired -- expired flag of the trades, null for all trades.
+	 * @return -- distinct trade ids in ascending order.
+	 */
+	public SortedSet<String> getCounterPartyTradeIds(String counterPartyId, Expired expired) {
+		return tradeIds(counterParties.get(counterPartyId), expired);
+	}
+	
+	private synchronized void put(Entry entry) {
+		
+		Entry previous=entries.put(entry.id, entry);
+		if (previous!=null) {
+			unlinkMaturity(previous);
+			detach(previous);
+		}
+		linkMaturity(entry);
+		attach(entry);
+	}
+	
+	private synchronized void remove(int id) {
+		
+		Entry previous=entries.remove(id);
+		if (previous!=null) {
+			unlinkMaturity(previous);
+			detach(previous);
+		}
+	}
+	
+	/** Adds an entry to the versions of its trade id. It replaces the latest version in
+	 * the groups unless a higher version is already there.
+	 */
+	private void attach(Entry entry) {
+		
+		NavigableMap<Integer, Entry> tradeVersions=versions.computeIfAbsent(entry.tradeId, key -> new TreeMap<>());
+		Map.Entry<Integer, Entry> latest=tradeVersions.lastEntry();
+		if (latest==null || entry.version>=latest.getKey()) {
+			if (latest!=null)
+				unlink(latest.getValue());
+			link(entry);
+		}
+		tradeVersions.put(entry.version, entry);
+	}
+	
+	/** Removes an entry from the versions of its trade id. The highest remaining version
+	 * takes its place in the groups when it was the latest.
+	 */
+	private void detach(Entry entry) {
+		
+		NavigableMap<Integer, Entry> tradeVersions=versions.get(entry.tradeId);
+		if (tradeVersions==null || tradeVersions.get(entry.version)!=entry)
+			return;
+		boolean latest=tradeVersions.lastEntry().getValue()==entry;
+		tradeVersions.remove(entry.version);
+		if (!latest)
+			return;
+		
+		unlink(entry);
+		if (tradeVersions.isEmpty())
+			versions.remove(entry.tradeId);
+		else
+			link(tradeVersions.lastEntry().getValue());
+	}
+	
+	private void link(Entry entry) {
+		
+		if (entry.bookId!=null)
+			books.computeIfAbsent(entry.bookId, key -> new Group()).add(entry);
+		if (entry.counterPartyId!=null)
+			counterParties.computeIfAbsent(entry.counterPartyId, key -> new Group()).add(entry);
+		if (entry.maturityDate!=null)
+			maturityMonths.computeIfAbsent(YearMonth.from(entry.maturityDate), key -> new Group()).add(entry);
+	}
+	
+	private void unlink(Entry entry) {
+		
+		if (entry.bookId!=null)
+			books.get(entry.bookId).remove(entry);
+		if (entry.counterPartyId!=null)
+			counterParties.get(entry.counterPartyId).remove(entry);
+		if (entry.maturityDate!=null)
+			maturityMonths.get(YearMonth.from(entry.maturityDate)).remove(entry);
+	}
+	
+	private void linkMaturity(Entry entry) {
+		if (entry.maturityDate!=null && entry.expired!=Expired.Y)
+			liveTradesByMaturity.computeIfAbsent(entry.maturityDate, key -> ConcurrentHashMap.newKeySet()).add(entry.id);
+	}
+	
+	private void unlinkMaturity(Entry entry) {
+		
+		if (entry.maturityDate!=null && entry.expired!=Expired.Y) {
+			Set<Integer> maturing=liveTradesByMaturity.get(entry.maturityDate);
+			maturing.remove(entry.id);
+			if (maturing.isEmpty())
+				liveTradesByMaturity.remove(entry.maturityDate);
+		}
+	}
+	
+	private SortedSet<String> tradeIds(Group group, Expired expired) {
+		
+		SortedSet<String> tradeIds=new TreeSet<>();
+		if (group==null)
+			return tradeIds;
+		for (Integer id: group.ids) {
+			Entry entry=entries.get(id);
+			if (entry!=null && (expired==null || entry.expired==expired))
+				tradeIds.add(entry.tradeId);
+		}
+		return tradeIds;
+	}
+	
+	private static TradeCountDTO count(Group group) {
+		return group==null ? new TradeCountDTO(0, 0) : new TradeCountDTO(group.live, group.expired);
+	}
+	
+	private static void afterCommit(Runnable action) {
+		
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+	
+	/** Ids and counts of the trades in a book, counter party or maturity month.
+	 * Counts are only changed while holding the lock of the index.
+	 */
+	private static class Group {
+		
+		private final Set<Integer> ids=ConcurrentHashMap.newKeySet();
+		private volatile long live;
+		private volatile long expired;
+		
+		void add(Entry entry) {
+			ids.add(entry.id);
+			if (entry.expired==Expired.Y)
+				expired++;
+			else
+				live++;
+		}
+		
+		void remove(Entry entry) {
+			ids.remove(entry.id);
+			if (entry.expired==Expired.Y)
+				expired--;
+			else
+				live--;
+		}
+	}
+	
+	/** Indexed content of a stored trade.
+	 */
+	private static class Entry {
+		
+		private final int id;
+		private final String tradeId;
+		private final int version;
+		private final String bookId;
+		private final String counterPartyId;
+		private final LocalDate maturityDate;
+		private final Expired expired;
+		
+		Entry(Trade trade) {
+			this(trade.getId(), trade.getTradeId(), trade.getVersion(), trade.getBookId(), trade.getCounterPartyId(), 
+					trade.getMaturityDate(), trade.getExpired());
+		}
+		
+		Entry(int id, String tradeId, int version, String bookId, String counterPartyId, LocalDate maturityDate, Expired expired) {
+			this.id=id;
+			this.tradeId=tradeId;
+			this.version=version;
+			this.bookId=bookId;
+			this.counterPartyId=counterPartyId;
+			this.maturityDate=maturityDate;
+			this.expired=expired;
+		}
+		
+		Entry withExpired(Expired expired) {
+			return new Entry(id, tradeId, version, bookId, counterPartyId, maturityDate, expired);
+		}
+	}
+}
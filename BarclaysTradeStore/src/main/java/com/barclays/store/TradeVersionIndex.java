@@ -0,0 +1,208 @@
+package com.barclays.store;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeVersion;
+import com.barclays.repository.TradeStoreRepository;
+
+/** In-memory index from trade id to the highest version present in the store.
+ * 
+ * Loaded from the trade and trade archive tables during app startup and kept current on
+ * every save. Archived versions are loaded too, so that a trade id whose rows were all
+ * moved to the archive still rejects lower versions after a restart. When
+ * TradePartitionManager is enabled, that includes the monthly archive tables.
+ * Lets trade processors reject a lower version trade without querying the database.
+ * 
+ * The index only ever answers whether a higher version is known. A trade id missing
+ * from the index is still validated against the database by the trade processors.
+ * 
+ * A content hash of the received trade is kept alongside the latest version, so that an
+ * identical resubmission of the latest version can be recognized without a lock or DB
+ * access. Versions loaded during app startup have no content hash until they are
+ * written again.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+public class TradeVersionIndex {
+	
+	/** Content hash of versions whose content isn't known, never returned by contentHash. */
+	public static final long UNKNOWN_CONTENT=0;
+	
+	private final ConcurrentHashMap<String, LatestVersion> latestVersions=new ConcurrentHashMap<>();
+	
+	@Autowired
+	private TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired(required=false)
+	private TradePartitionManager tradePartitionManager;
+	
+	/** Loads the highest version of every trade id from the database, archived versions included.
+	 */
+	@PostConstruct
+	public void warmUp() {
+		for (TradeVersion tradeVersion: tradeStoreRepository.findLatestVersions())
+			record(tradeVersion.getTradeId(), tradeVersion.getVersion());
+		for (TradeVersion tradeVersion: tradeStoreRepository.findLatestArchivedVersions())
+			record(tradeVersion.getTradeId(), tradeVersion.getVersion());
+		if (tradePartitionManager!=null) {
+			for (TradeVersion tradeVersion: tradePartitionManager.findLatestArchivedVersions())
+				record(tradeVersion.getTradeId(), tradeVersion.getVersion());
+		}
+	}
+	
+	/** Checks if a higher version than the received one is already stored.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @param version -- integer value for trade version. Like 1.
+	 * @return -- true when the store holds a higher version of the trade.
+	 */
+	public boolean isLowerVersion(String tradeId, int version) {
+		LatestVersion latestVersion=latestVersions.get(tradeId);
+		return latestVersion!=null && latestVersion.version>version;
+	}
+	
+	/** Checks if a received trade is identical to the latest stored version of its trade id.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @param version -- integer value for trade version. Like 1.
+	 * @param contentHash -- content hash of the received trade.
+	 * @return -- true when the same version with the same content hash is stored.
+	 */
+	public boolean isDuplicate(String tradeId, int version, long contentHash) {
+		LatestVersion latestVersion=latestVersions.get(tradeId);
+		return latestVersion!=null && latestVersion.version==version
+				&& latestVersion.contentHash!=UNKNOWN_CONTENT && latestVersion.contentHash==contentHash;
+	}
+	
+	/** Finds the highest stored version of a trade.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @return -- highest known version of the trade, 0 when the trade id isn't known.
+	 */
+	public int getLatestVersion(String tradeId) {
+		LatestVersion latestVersion=latestVersions.get(tradeId);
+		return latestVersion==null ? 0 : latestVersion.version;
+	}
+	
+	/** Records a stored version of a trade whose content isn't known.
+	 * Lower versions never replace a higher one.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @param version -- integer value for trade version. Like 1.
+	 */
+	public void record(String tradeId, int version) {
+		record(tradeId, version, UNKNOWN_CONTENT);
+	}
+	
+	/** Records a stored version of a trade along with the hash of its content.
+	 * Lower versions never replace a higher one, an equal version replaces the content hash.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @param version -- integer value for trade version. Like 1.
+	 * @param contentHash -- content hash of the stored trade, UNKNOWN_CONTENT if not known.
+	 */
+	public void record(String tradeId, int version, long contentHash) {
+		latestVersions.merge(tradeId, new LatestVersion(version, contentHash), 
+				(stored, received) -> received.version>=stored.version ? received : stored);
+	}
+	
+	/** Records a stored version of a trade once the surrounding transaction commits.
+	 * Versions of rolled back saves never reach the index.
+	 * 
+	 * Recorded immediately when no transaction is active.
+	 * 
+	 * 
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @param version -- integer value for trade version. Like 1.
+	 * @param contentHash -- content hash of the stored trade, UNKNOWN_CONTENT if not known.
+	 */
+	public void recordAfterCommit(String tradeId, int version, long contentHash) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			record(tradeId, version, contentHash);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				record(tradeId, version, contentHash);
+			}
+		});
+	}
+	
+	/** Computes a 64 bit hash over every field of a received trade, FNV-1a followed by a
+	 * final mix. Computed without creating any objects.
+	 * 
+	 * 
+	 * @param receivedTrade -- Trade DTO for the received trade information.
+	 * @return -- content hash of the trade, never UNKNOWN_CONTENT.
+	 */
+	public static long contentHash(TradeDTO receivedTrade) {
+		
+		long hash=0xcbf29ce484222325L;
+		hash=hash(hash, receivedTrade.getTradeId());
+		hash=hash(hash, receivedTrade.getVersion());
+		hash=hash(hash, receivedTrade.getCounterPartyId());
+		hash=hash(hash, receivedTrade.getBookId());
+		hash=hash(hash, receivedTrade.getMaturityDate());
+		hash=hash(hash, receivedTrade.getCreatedDate());
+		hash=hash(hash, receivedTrade.getExpired()==null ? -1 : receivedTrade.getExpired().ordinal());
+		
+		hash^=hash>>>33;
+		hash*=0xff51afd7ed558ccdL;
+		hash^=hash>>>33;
+		hash*=0xc4ceb9fe1a85ec53L;
+		hash^=hash>>>33;
+		return hash==UNKNOWN_CONTENT ? 1 : hash;
+	}
+	
+	private static long hash(long hash, long value) {
+		for (int i=0; i<64; i+=8)
+			hash=(hash^((value>>>i) & 0xFF))*0x100000001b3L;
+		return hash;
+	}
+	
+	private static long hash(long hash, String value) {
+		if (value==null)
+			return hash(hash, -1L);
+		hash=hash(hash, value.length());
+		for (int i=0; i<value.length(); i++)
+			hash=(hash^value.charAt(i))*0x100000001b3L;
+		return hash;
+	}
+	
+	private static long hash(long hash, LocalDate value) {
+		return hash(hash, value==null ? Long.MIN_VALUE : value.toEpochDay());
+	}
+	
+	public int size() {
+		return latestVersions.size();
+	}
+	
+	private static final class LatestVersion {
+		
+		private final int version;
+		private final long contentHash;
+		
+		private LatestVersion(int version, long contentHash) {
+			this.version = version;
+			this.contentHash = contentHash;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.barclays.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Circular log of records kept in a memory-mapped file of fixed size.
+ * 
+ * File starts with the checkpoint, the position up to which records have been applied
+ * to the database. Every record is a length followed by its bytes. The length is written
+ * after the bytes and after the end marker of the next slot, so that a record cut short by
+ * a crash is never read back.
+ * 
+ * Records written to the mapped file survive a crash of the application as soon as they
+ * are appended. When sync is enabled they are also forced to the disk before append
+ * returns, to survive a crash of the machine.
+ * 
+ * Space of applied records is reused as soon as the checkpoint moves past them. A record
+ * that doesn't fit before the end of the file is written at the beginning, and a wrap
+ * marker is left in its place so that readers follow it there. The log is full only when
+ * the records not yet applied leave no room for the next one. Once every record has been
+ * applied the log starts over from the beginning of the file.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+public class TradeWriteAheadLog implements AutoCloseable {
+	
+	private static final int HEADER_SIZE=Long.BYTES;
+	
+	/** Length written in place of a record that continues at the beginning of the file. */
+	private static final int WRAP=-1;
+	
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final boolean sync;
+	private volatile int writePosition;
+	private int checkpoint;
+	
+	/** Opens the log file, creating it when missing, and finds the end of the records.
+	 * 
+	 * 
+	 * @param path -- location of the log file.
+	 * @param size -- size of the log file in bytes.
+	 * @param sync -- true to force every record to the disk before append returns.
+	 * @throws IOException -- thrown when the file can't be opened or mapped.
+	 */
+	public TradeWriteAheadLog(Path path, int size, boolean sync) throws IOException {
+		
+		this.sync=sync;
+		channel=FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		buffer=channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		
+		checkpoint=(int)Math.max(HEADER_SIZE, buffer.getLong(0));
+		int position=checkpoint;
+		boolean wrapped=false;
+		while (position+Integer.BYTES<=size) {
+			int length=buffer.getInt(position);
+			if (length==WRAP && !wrapped) {
+				position=HEADER_SIZE;
+				wrapped=true;
+				continue;
+			}
+			int limit=wrapped ? checkpoint : size;
+			if (length<=0 || position+Integer.BYTES+length+Integer.BYTES>limit)
+				break;
+			position+=Integer.BYTES+length;
+		}
+		writePosition=position;
+	}
+	
+	/** Appends a record at the end of the log, at the beginning of the file when it
+	 * doesn't fit before the end of it.
+	 * 
+	 * 
+	 * @param record -- bytes of the record.
+	 * @return -- false when there is no space left for the record.
+	 */
+	public synchronized boolean append(byte[] record) {
+		
+		int wrapAt=-1;
+		int position=writePosition;
+		int end=position+Integer.BYTES+record.length;
+		if (position>=checkpoint && end+Integer.BYTES>buffer.capacity()) {
+			wrapAt=position;
+			position=HEADER_SIZE;
+			end=position+Integer.BYTES+record.length;
+		}
+		// Applied records end at the checkpoint, the end marker must stay before it
+		if ((position<checkpoint || wrapAt>=0) && end+Integer.BYTES>checkpoint)
+			return false;
+		
+		ByteBuffer view=buffer.duplicate();
+		view.position(position+Integer.BYTES);
+		view.put(record);
+		buffer.putInt(end, 0);
+		buffer.putInt(position, record.length);
+		if (wrapAt>=0)
+			buffer.putInt(wrapAt, WRAP);
+		if (sync)
+			buffer.force();
+		writePosition=end;
+		return true;
+	}
+	
+	/** Reads records that have not been applied yet, starting at the checkpoint.
+	 * 
+	 * 
+	 * @param maxRecords -- largest number of records to read.
+	 * @param records -- list the records are added to.
+	 * @return -- position after the last record read, to be passed to checkpoint.
+	 */
+	public int read(int maxRecords, List<byte[]> records) {
+		
+		int position;
+		synchronized (this) {
+			position=checkpoint;
+		}
+		int end=writePosition;
+		ByteBuffer view=buffer.duplicate();
+		while (position!=end && records.size()<maxRecords) {
+			int length=buffer.getInt(position);
+			if (length==WRAP) {
+				position=HEADER_SIZE;
+				continue;
+			}
+			byte[] record=new byte[length];
+			view.position(position+Integer.BYTES);
+			view.get(record);
+			records.add(record);
+			position+=Integer.BYTES+record.length;
+		}
+		return position;
+	}
+	
+	/** Records every record before the position as applied. Starts the log over when
+	 * no record is left to apply.
+	 * 
+	 * 
+	 * @param position -- position returned by read.
+	 */
+	public synchronized void checkpoint(int position) {
+		
+		if (position==writePosition) {
+			buffer.putInt(HEADER_SIZE, 0);
+			position=HEADER_SIZE;
+			writePosition=HEADER_SIZE;
+		}
+		buffer.putLong(0, position);
+		checkpoint=position;
+		if (sync)
+			buffer.force();
+	}
+	
+	/** Reads every record that has not been applied yet.
+	 * 
+	 * 
+	 * @return -- bytes of the records, in the order appended.
+	 */
+	public List<byte[]> readPending() {
+		List<byte[]> records=new ArrayList<>();
+		read(Integer.MAX_VALUE, records);
+		return records;
+	}
+	
+	/** Space taken by records that have not been applied yet.
+	 * 
+	 * @return -- bytes between the checkpoint and the end of the log, counting the unused
+	 * end of the file when the log has wrapped.
+	 */
+	public synchronized int getPendingBytes() {
+		int pending=writePosition-checkpoint;
+		return pending>=0 ? pending : pending+buffer.capacity()-HEADER_SIZE;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+}
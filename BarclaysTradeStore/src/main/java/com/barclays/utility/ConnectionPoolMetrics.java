@@ -0,0 +1,86 @@
+package com.barclays.utility;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.barclays.dto.ConnectionPoolDTO;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/** Saturation of the Hikari connection pool.
+ * 
+ * Spring Boot binds the pool to the metrics registry as hikaricp.connections.* meters,
+ * tagged with the pool name. The acquire timer publishes the percentiles and histogram
+ * buckets configured by management.metrics.distribution.* in application.properties.
+ * This component puts the connection counts and acquire times of the pool in a single
+ * view, to tell whether trades are waiting on the pool rather than on the DB.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+public class ConnectionPoolMetrics {
+	
+	public static final String ACQUIRE_TIMER="hikaricp.connections.acquire";
+	
+	@Autowired
+	private DataSource dataSource;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	/** Takes a snapshot of the connection pool.
+	 * 
+	 * 
+	 * @return -- connection counts and acquire times of the pool, null when the data source
+	 * isn't a Hikari pool or the pool hasn't started yet.
+	 */
+	public ConnectionPoolDTO getConnectionPool() {
+		
+		HikariDataSource hikariDataSource=getHikariDataSource();
+		if (hikariDataSource==null)
+			return null;
+		HikariPoolMXBean pool=hikariDataSource.getHikariPoolMXBean();
+		if (pool==null)
+			return null;
+		
+		ConnectionPoolDTO connectionPool=new ConnectionPoolDTO();
+		connectionPool.setPoolName(hikariDataSource.getPoolName());
+		connectionPool.setActive(pool.getActiveConnections());
+		connectionPool.setIdle(pool.getIdleConnections());
+		connectionPool.setPending(pool.getThreadsAwaitingConnection());
+		connectionPool.setTotal(pool.getTotalConnections());
+		connectionPool.setMaximum(hikariDataSource.getMaximumPoolSize());
+		
+		Timer acquireTimer=meterRegistry.find(ACQUIRE_TIMER).tag("pool", hikariDataSource.getPoolName()).timer();
+		if (acquireTimer!=null) {
+			HistogramSnapshot snapshot=acquireTimer.takeSnapshot();
+			connectionPool.setAcquireCount(snapshot.count());
+			connectionPool.setAcquireMean(snapshot.mean(TimeUnit.MILLISECONDS));
+			connectionPool.setAcquireMax(snapshot.max(TimeUnit.MILLISECONDS));
+			for (ValueAtPercentile percentile: snapshot.percentileValues())
+				connectionPool.getAcquirePercentiles().put(String.valueOf(percentile.percentile()), percentile.value(TimeUnit.MILLISECONDS));
+		}
+		return connectionPool;
+	}
+	
+	private HikariDataSource getHikariDataSource() {
+		
+		try {
+			return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+		} catch (SQLException exception) {
+			return null;
+		}
+	}
+}
@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -12,6 +13,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.exception.TradeNotFoundException;
+import com.barclays.exception.TradeStoreBusyException;
 
 /** Exception handling using Aspect Oriented Programming (AOP).
  * Handles exceptions for the REST Controller.
@@ -59,4 +62,41 @@ public class ExceptionControllerAdvice {
 		
 		return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
 	}
+
+	/** Exception handler for TradeStoreBusyException.
+	 * Asks the client to retry after a second.
+	 * 
+	 * 
+	 * @param exception -- exception of type TradeStoreBusyException.
+	 * @return -- HTTP Response containing appropriate exception info.
+	 */
+	@ExceptionHandler(TradeStoreBusyException.class)
+	public ResponseEntity<ErrorInfo> tradeStoreBusyExceptionHandler(TradeStoreBusyException exception) {
+		
+		ErrorInfo error = new ErrorInfo();
+		error.setErrorMessage(environment.getProperty(exception.getMessage()));
+		error.setTimestamp(LocalDateTime.now());
+		error.setErrorCode(HttpStatus.SERVICE_UNAVAILABLE.value());
+		
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "1");
+		return new ResponseEntity<>(error, headers, HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	/** Exception handler for TradeNotFoundException.
+	 * 
+	 * 
+	 * @param exception -- exception of type TradeNotFoundException.
+	 * @return -- HTTP Response containing appropriate exception info.
+	 */
+	@ExceptionHandler(TradeNotFoundException.class)
+	public ResponseEntity<ErrorInfo> tradeNotFoundExceptionHandler(TradeNotFoundException exception) {
+		
+		ErrorInfo error = new ErrorInfo();
+		error.setErrorMessage(environment.getProperty(exception.getMessage()));
+		error.setTimestamp(LocalDateTime.now());
+		error.setErrorCode(HttpStatus.NOT_FOUND.value());
+		
+		return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+	}
 }
@@ -0,0 +1,101 @@
+package com.barclays.utility;
+
+import java.util.List;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.dto.TradeStatus;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+
+/** Counting of trade outcomes using Aspect Oriented Programming (AOP).
+ * 
+ * Runs outside the transaction of the trade processors, so a trade whose commit
+ * fails is counted as failed rather than accepted.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE+1)
+public class MetricsAspect {
+	
+	@Autowired
+	private TradeMetrics tradeMetrics;
+	
+	/** Method to count a trade accepted by a single trade processor, or acknowledged as
+	 * a duplicate when no trade is returned.
+	 * 
+	 * 
+	 * @param joinPoint -- trade processor method that returned.
+	 * @param trade -- saved trade, null for a duplicate.
+	 */
+	@AfterReturning(pointcut = "execution(com.barclays.entity.Trade com.barclays.service.TradeStoreService+.processTrade*(..))", returning = "trade")
+	public void countAcceptedTrade(JoinPoint joinPoint, Trade trade) {
+		tradeMetrics.count(joinPoint.getSignature().getName(), trade==null ? "duplicate" : "accepted", null, 1);
+	}
+	
+	/** Method to count the outcome of every trade of a group.
+	 * 
+	 * 
+	 * @param joinPoint -- trade processor method that returned.
+	 * @param results -- outcome of every trade of the group.
+	 */
+	@AfterReturning(pointcut = "execution(java.util.List com.barclays.service.TradeStoreService+.processTrades(..))", returning = "results")
+	public void countTradeResults(JoinPoint joinPoint, List<TradeResultDTO> results) {
+		
+		String method=joinPoint.getSignature().getName();
+		int accepted=0;
+		int duplicates=0;
+		for (TradeResultDTO result: results) {
+			if (result.getStatus()==TradeStatus.ACCEPTED)
+				accepted++;
+			else if (result.getStatus()==TradeStatus.DUPLICATE)
+				duplicates++;
+			else
+				tradeMetrics.count(method, "rejected", result.getMessage(), 1);
+		}
+		tradeMetrics.count(method, "accepted", null, accepted);
+		tradeMetrics.count(method, "duplicate", null, duplicates);
+	}
+	
+	/** Method to count a trade rejected by a single trade processor, or one that failed.
+	 * 
+	 * 
+	 * @param joinPoint -- trade processor method that threw.
+	 * @param exception -- exception thrown by the trade processor.
+	 */
+	@AfterThrowing(pointcut = "execution(* com.barclays.service.TradeStoreService+.processTrade(..)) "
+			+ "|| execution(* com.barclays.service.TradeStoreService+.processTradeWithLessMemory(..))", throwing = "exception")
+	public void countRejectedTrade(JoinPoint joinPoint, Exception exception) {
+		
+		String method=joinPoint.getSignature().getName();
+		if (exception instanceof BarclaysTradeStoreException)
+			tradeMetrics.count(method, "rejected", exception.getMessage(), 1);
+		else
+			tradeMetrics.count(method, "failed", null, 1);
+	}
+	
+	/** Method to count every trade of a group as failed when the group couldn't be processed.
+	 * Rejections are reported in the results, so anything thrown is a failure.
+	 * 
+	 * 
+	 * @param joinPoint -- trade processor method that threw.
+	 * @param receivedTrades -- trades of the group.
+	 * @param exception -- exception thrown by the trade processor.
+	 */
+	@AfterThrowing(pointcut = "execution(* com.barclays.service.TradeStoreService+.processTrades(..)) && args(receivedTrades, ..)", throwing = "exception")
+	public void countFailedTrades(JoinPoint joinPoint, List<?> receivedTrades, Exception exception) {
+		tradeMetrics.count(joinPoint.getSignature().getName(), "failed", null, receivedTrades.size());
+	}
+}
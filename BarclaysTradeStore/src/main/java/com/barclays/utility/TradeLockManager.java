@@ -0,0 +1,178 @@
+package com.barclays.utility;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/** Striped lock manager used to serialize processing of trades with the same trade id.
+ *
+ * Every trade id is hashed onto one of a fixed number of stripes. Trades that land on
+ * different stripes are processed in parallel while trades with the same trade id always
+ * land on the same stripe and are processed one after another, keeping the version rules intact.
+ *
+ * Number of stripes is defined in application.properties using TradeLockManager.STRIPES key.
+ * It is rounded up to the next power of two. Default is 64 stripes.
+ *
+ * Acquisitions, contended acquisitions and wait time are recorded for each stripe and
+ * published as metrics tagged with the stripe number.
+ *
+ *
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+public class TradeLockManager implements MeterBinder {
+
+	private final ReentrantLock[] stripes;
+	private final LongAdder[] acquisitions;
+	private final LongAdder[] contentions;
+	private final LongAdder[] waitNanos;
+	private final int mask;
+
+	public TradeLockManager(@Value("${TradeLockManager.STRIPES:64}") int stripeCount) {
+		int size=1;
+		while (size<stripeCount)
+			size<<=1;
+
+		stripes=new ReentrantLock[size];
+		acquisitions=new LongAdder[size];
+		contentions=new LongAdder[size];
+		waitNanos=new LongAdder[size];
+		for (int i=0; i<size; i++) {
+			stripes[i]=new ReentrantLock();
+			acquisitions[i]=new LongAdder();
+			contentions[i]=new LongAdder();
+			waitNanos[i]=new LongAdder();
+		}
+		mask=size-1;
+	}
+
+	/** Finds the stripe a trade id belongs to.
+	 *
+	 *
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @return -- index of the stripe guarding the trade id.
+	 */
+	public int stripeOf(String tradeId) {
+		int hash=tradeId.hashCode();
+		return (hash ^ (hash>>>16)) & mask;
+	}
+
+	/** Acquires the lock guarding a trade id. Blocks until it is available.
+	 *
+	 * The returned lock must be released by the caller in a finally block.
+	 *
+	 *
+	 * @param tradeId -- string value for trade id. Like "T1".
+	 * @return -- the acquired lock.
+	 */
+	public Lock lock(String tradeId) {
+		int stripe=stripeOf(tradeId);
+		acquire(stripe);
+		return stripes[stripe];
+	}
+
+	/** Acquires the stripes guarding a group of trade ids in ascending order, so that
+	 * two threads locking overlapping groups can never deadlock.
+	 *
+	 * Stripes must be released with unlock(int[]).
+	 *
+	 *
+	 * @param tradeIds -- trade ids to lock.
+	 * @return -- indexes of the acquired stripes.
+	 */
+	public int[] lock(Collection<String> tradeIds) {
+		int[] acquired=tradeIds.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+		for (int stripe: acquired)
+			acquire(stripe);
+		return acquired;
+	}
+
+	/** Releases stripes acquired by lock(Collection), in reverse order.
+	 *
+	 *
+	 * @param acquired -- indexes of the acquired stripes.
+	 */
+	public void unlock(int[] acquired) {
+		for (int i=acquired.length-1; i>=0; i--)
+			stripes[acquired[i]].unlock();
+	}
+
+	/** Acquires every stripe in ascending order. Used by jobs that touch trades
+	 * of many trade ids at once.
+	 *
+	 * Locks must be released with unlockAll().
+	 */
+	public void lockAll() {
+		for (int i=0; i<stripes.length; i++)
+			acquire(i);
+	}
+
+	/** Releases every stripe acquired by lockAll(), in reverse order.
+	 */
+	public void unlockAll() {
+		for (int i=stripes.length-1; i>=0; i--)
+			stripes[i].unlock();
+	}
+
+	private void acquire(int stripe) {
+		ReentrantLock lock=stripes[stripe];
+		if (!lock.tryLock()) {
+			long start=System.nanoTime();
+			lock.lock();
+			contentions[stripe].increment();
+			waitNanos[stripe].add(System.nanoTime()-start);
+		}
+		acquisitions[stripe].increment();
+	}
+
+	public int getStripeCount() {
+		return stripes.length;
+	}
+
+	public long getAcquisitions(int stripe) {
+		return acquisitions[stripe].sum();
+	}
+
+	public long getContentions(int stripe) {
+		return contentions[stripe].sum();
+	}
+
+	public long getWaitNanos(int stripe) {
+		return waitNanos[stripe].sum();
+	}
+
+	/** Publishes lock statistics of every stripe to the metrics registry.
+	 *
+	 *
+	 * @param registry -- registry the meters are bound to.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (int i=0; i<stripes.length; i++) {
+			String stripe=String.valueOf(i);
+			FunctionCounter.builder("trade.lock.acquisitions", acquisitions[i], LongAdder::sum)
+					.tag("stripe", stripe)
+					.description("Number of times the stripe was acquired")
+					.register(registry);
+			FunctionCounter.builder("trade.lock.contentions", contentions[i], LongAdder::sum)
+					.tag("stripe", stripe)
+					.description("Number of acquisitions that had to wait for another thread")
+					.register(registry);
+			FunctionCounter.builder("trade.lock.wait", waitNanos[i], adder -> adder.sum()/(double)TimeUnit.MILLISECONDS.toNanos(1))
+					.tag("stripe", stripe)
+					.baseUnit("milliseconds")
+					.description("Total time spent waiting for the stripe")
+					.register(registry);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.barclays.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.barclays.dto.LatencyDTO;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/** Metrics of the trade processing hot path.
+ * 
+ * Every trade processor records how long each stage of a trade took, tagged with the
+ * processor method and the stage:
+ * validation -- maturity date and version index checks.
+ * lock_wait -- waiting for the lock of the trade id.
+ * version_lookup -- getting a pooled connection and reading stored versions of the trade id.
+ * save -- handing the trade to the repository.
+ * commit -- flushing and committing the transaction, this is where rows are written.
+ * 
+ * Stage timers publish p50, p90, p99 and p999 from a sliding histogram, so that the
+ * percentiles reflect recent traffic. Outcomes of processed trades are counted by
+ * MetricsAspect.
+ * 
+ * Nothing is recorded until the metrics registry binds this component.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+public class TradeMetrics implements MeterBinder {
+	
+	public static final String VALIDATION="validation";
+	public static final String LOCK_WAIT="lock_wait";
+	public static final String VERSION_LOOKUP="version_lookup";
+	public static final String SAVE="save";
+	public static final String COMMIT="commit";
+	
+	private static final double[] PERCENTILES={0.5, 0.9, 0.99, 0.999};
+	
+	private final Map<String, Timer> timers=new ConcurrentHashMap<>();
+	private final Map<String, Counter> counters=new ConcurrentHashMap<>();
+	private volatile MeterRegistry registry;
+	
+	/** Records the time taken by a stage.
+	 * 
+	 * 
+	 * @param method -- trade processor method. Like "processTrade".
+	 * @param stage -- stage of the trade processor. Like "validation".
+	 * @param start -- System.nanoTime() when the stage started.
+	 * @return -- System.nanoTime() when the stage ended, to be used as start of the next stage.
+	 */
+	public long record(String method, String stage, long start) {
+		
+		long end=System.nanoTime();
+		Timer timer=timer(method, stage);
+		if (timer!=null)
+			timer.record(end-start, TimeUnit.NANOSECONDS);
+		return end;
+	}
+	
+	/** Records the time taken to commit the surrounding transaction once it completes.
+	 * Nothing is recorded when no transaction is active or it is rolled back.
+	 * 
+	 * 
+	 * @param method -- trade processor method. Like "processTrade".
+	 */
+	public void recordCommit(String method) {
+		
+		if (registry==null || !TransactionSynchronizationManager.isSynchronizationActive())
+			return;
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			private long start;
+			
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				start=System.nanoTime();
+			}
+			
+			@Override
+			public void afterCompletion(int status) {
+				if (status==STATUS_COMMITTED && start!=0)
+					record(method, COMMIT, start);
+			}
+		});
+	}
+	
+	/** Counts processed trades by outcome.
+	 * 
+	 * 
+	 * @param method -- trade processor method. Like "processTrade".
+	 * @param outcome -- outcome of the trades. Like "accepted".
+	 * @param reason -- property key of the rejection reason, null for accepted trades.
+	 * @param count -- number of trades.
+	 */
+	public void count(String method, String outcome, String reason, int count) {
+		
+		MeterRegistry meterRegistry=registry;
+		if (meterRegistry==null || count==0)
+			return;
+		String tag=reason==null ? "none" : reason.substring(reason.lastIndexOf('.')+1);
+		counters.computeIfAbsent(method+'/'+outcome+'/'+tag, key -> Counter.builder("trade.process.outcome")
+				.tag("method", method)
+				.tag("outcome", outcome)
+				.tag("reason", tag)
+				.description("Number of processed trades by outcome")
+				.register(meterRegistry))
+				.increment(count);
+	}
+	
+	/** Takes a snapshot of the latency of every recorded stage.
+	 * 
+	 * 
+	 * @return -- count, mean, max and percentiles in milliseconds of every method and stage.
+	 */
+	public List<LatencyDTO> getLatencies() {
+		
+		List<LatencyDTO> latencies=new ArrayList<>();
+		for (Timer timer: timers.values()) {
+			HistogramSnapshot snapshot=timer.takeSnapshot();
+			LatencyDTO latency=new LatencyDTO();
+			latency.setMethod(timer.getId().getTag("method"));
+			latency.setStage(timer.getId().getTag("stage"));
+			latency.setCount(snapshot.count());
+			latency.setMean(snapshot.mean(TimeUnit.MILLISECONDS));
+			latency.setMax(snapshot.max(TimeUnit.MILLISECONDS));
+			for (ValueAtPercentile percentile: snapshot.percentileValues())
+				latency.getPercentiles().put(String.valueOf(percentile.percentile()), percentile.value(TimeUnit.MILLISECONDS));
+			latencies.add(latency);
+		}
+		return latencies;
+	}
+	
+	private Timer timer(String method, String stage) {
+		
+		MeterRegistry meterRegistry=registry;
+		if (meterRegistry==null)
+			return null;
+		return timers.computeIfAbsent(method+'/'+stage, key -> Timer.builder("trade.process.stage")
+				.tag("method", method)
+				.tag("stage", stage)
+				.publishPercentiles(PERCENTILES)
+				.percentilePrecision(2)
+				.description("Time taken by a stage of trade processing")
+				.register(meterRegistry));
+	}
+	
+	/** Starts recording to the metrics registry.
+	 * 
+	 * 
+	 * @param registry -- registry the meters are bound to.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		this.registry=registry;
+	}
+}
@@ -0,0 +1,111 @@
+package com.barclays.utility;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import org.springframework.stereotype.Component;
+
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeValidationResult;
+import com.barclays.store.TradeVersionIndex;
+
+/** Validation of received trades that doesn't need the DB.
+ * 
+ * Today's date is worked out once per day and reused until the next day boundary, instead
+ * of reading the clock and building a new date for every trade. Outcome is one of the
+ * constants of TradeValidationResult, so validating a trade allocates nothing.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Component
+public class TradeValidator {
+	
+	private final TradeVersionIndex tradeVersionIndex;
+	private volatile Today today=new Today();
+	
+	public TradeValidator(TradeVersionIndex tradeVersionIndex) {
+		this.tradeVersionIndex=tradeVersionIndex;
+	}
+	
+	/** Today's date in the default time zone.
+	 * 
+	 * @return -- today's date, changes at midnight.
+	 */
+	public LocalDate today() {
+		
+		Today current=today;
+		if (System.currentTimeMillis()>=current.endsAt) {
+			current=new Today();
+			today=current;
+		}
+		return current.date;
+	}
+	
+	/** Validates a trade before it is accepted for processing later.
+	 * 
+	 * Trade with missing trade id or maturity date, or a maturity date of past, is rejected.
+	 * 
+	 * 
+	 * @param receivedTrade -- Trade DTO for the received trade information.
+	 * @return -- VALID, INVALID_TRADE or INVALID_MATURITY_DATE.
+	 */
+	public TradeValidationResult validateRequest(TradeDTO receivedTrade) {
+		
+		if (receivedTrade.getTradeId()==null || receivedTrade.getMaturityDate()==null)
+			return TradeValidationResult.INVALID_TRADE;
+		if (receivedTrade.getMaturityDate().isBefore(today()))
+			return TradeValidationResult.INVALID_MATURITY_DATE;
+		return TradeValidationResult.VALID;
+	}
+	
+	/** Validates a trade before it is stored.
+	 * 
+	 * Trade with a maturity date of past is rejected, as is a trade for which
+	 * TradeVersionIndex already holds a higher version. Trade identical to the latest
+	 * stored version is reported as a duplicate.
+	 * 
+	 * 
+	 * @param receivedTrade -- Trade DTO for the received trade information.
+	 * @param contentHash -- content hash of the received trade.
+	 * @return -- VALID, DUPLICATE, INVALID_MATURITY_DATE or LOWER_VERSION_TRADE.
+	 */
+	public TradeValidationResult validate(TradeDTO receivedTrade, long contentHash) {
+		return validate(receivedTrade, contentHash, today());
+	}
+	
+	/** Validates a trade before it is stored, with the maturity date checked against the
+	 * date on which the trade was accepted instead of today's date.
+	 * 
+	 * 
+	 * @param receivedTrade -- Trade DTO for the received trade information.
+	 * @param contentHash -- content hash of the received trade.
+	 * @param acceptedOn -- date on which the trade was accepted.
+	 * @return -- VALID, DUPLICATE, INVALID_MATURITY_DATE or LOWER_VERSION_TRADE.
+	 */
+	public TradeValidationResult validate(TradeDTO receivedTrade, long contentHash, LocalDate acceptedOn) {
+		
+		if (receivedTrade.getMaturityDate().isBefore(acceptedOn))
+			return TradeValidationResult.INVALID_MATURITY_DATE;
+		if (tradeVersionIndex.isLowerVersion(receivedTrade.getTradeId(), receivedTrade.getVersion()))
+			return TradeValidationResult.LOWER_VERSION_TRADE;
+		if (tradeVersionIndex.isDuplicate(receivedTrade.getTradeId(), receivedTrade.getVersion(), contentHash))
+			return TradeValidationResult.DUPLICATE;
+		return TradeValidationResult.VALID;
+	}
+	
+	/** Today's date along with the time in ms at which it ends.
+	 */
+	private static final class Today {
+		
+		private final LocalDate date;
+		private final long endsAt;
+		
+		private Today() {
+			ZoneId zone=ZoneId.systemDefault();
+			date=LocalDate.now(zone);
+			endsAt=date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+		}
+	}
+}
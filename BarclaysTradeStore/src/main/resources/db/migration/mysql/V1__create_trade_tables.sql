@@ -0,0 +1,17 @@
+-- Schema created by table_creation.sql. Existing databases are baselined at this version.
+create table if not exists trade (
+	id int primary key,
+	trade_id VARCHAR(10) NOT NULL,
+	version int NOT NULL,
+	counter_party_id VARCHAR(10) NOT NULL,
+	book_id VARCHAR(10) NOT NULL,
+	maturity_date Date NOT NULL,
+	created_date Date NOT NULL,
+	expired CHAR(1) NOT NULL CHECK (expired IN ('N', 'Y'))
+);
+
+-- Pooled id generator used by the Trade entity
+create table if not exists trade_sequence (
+	next_val bigint NOT NULL
+);
+insert into trade_sequence select 1 from dual where not exists (select * from trade_sequence);
@@ -0,0 +1,20 @@
+-- Superseded trade versions, used when only the latest version is kept in the trade table
+create table trade_history (
+	id int primary key,
+	trade_id VARCHAR(10) NOT NULL,
+	version int NOT NULL,
+	counter_party_id VARCHAR(10) NOT NULL,
+	book_id VARCHAR(10) NOT NULL,
+	maturity_date Date NOT NULL,
+	created_date Date NOT NULL,
+	expired CHAR(1) NOT NULL CHECK (expired IN ('N', 'Y')),
+	superseded_at DATETIME NOT NULL
+);
+
+create index idx_trade_history_trade_id_version on trade_history (trade_id, version);
+
+-- Pooled id generator used by the TradeHistory entity
+create table trade_history_sequence (
+	next_val bigint NOT NULL
+);
+insert into trade_history_sequence values (1);
@@ -0,0 +1,4 @@
+-- Read API pages through trades of a book, a counter party or an expired flag in id order.
+create index idx_trade_book_id_id on trade (book_id, id);
+create index idx_trade_counter_party_id_id on trade (counter_party_id, id);
+create index idx_trade_expired_id on trade (expired, id);
@@ -0,0 +1,13 @@
+-- Databases created by table_creation.sql before trade_sequence existed are baselined at version 1, so V1 never
+-- created the table for them. Hibernate reads next_val as the hi value of the next pool of 50 ids (next_val-49 to
+-- next_val), so it must be at least the highest id plus the allocation size for new ids not to collide.
+create table if not exists trade_sequence (
+	next_val bigint NOT NULL
+);
+
+insert into trade_sequence
+select seed.next_val from (select coalesce(max(id), 0)+50 as next_val from trade) seed
+where not exists (select * from trade_sequence);
+
+update trade_sequence set next_val=(select coalesce(max(id), 0)+50 from trade)
+where next_val<(select coalesce(max(id), 0)+50 from trade);
@@ -0,0 +1,10 @@
+-- Optional, applied only when classpath:db/partitioning/{vendor} is added to spring.flyway.locations.
+-- MySQL requires the partitioning column in every unique key, so maturity date is added to both.
+-- Trade processors still serialize saves per trade id, so a version can't be stored twice.
+alter table trade drop primary key, add primary key (id, maturity_date);
+alter table trade drop index uk_trade_trade_id_version, add unique index uk_trade_trade_id_version (trade_id, version, maturity_date);
+
+-- Every maturity date starts in p_future. TradePartitionManager splits monthly partitions off it.
+alter table trade partition by range columns (maturity_date) (
+	partition p_future values less than (maxvalue)
+);
@@ -2,6 +2,8 @@ drop database if exists barclays_db;
 create database barclays_db;
 use barclays_db;
 
+-- Indexes and later schema changes are applied by Flyway migrations (db/migration) on app startup
+
 create table trade (
 	id int primary key,
 	trade_id VARCHAR(10) NOT NULL,
@@ -13,10 +15,18 @@ create table trade (
 	expired CHAR(1) NOT NULL CHECK (expired IN ('N', 'Y'))
 );
 
+-- Pooled id generator used by the Trade entity. Hibernate reads the stored value as the hi value of the
+-- next pool of 50 ids (next_val-49 to next_val), not as the next id. Seeded after the rows below with
+-- max(id) + allocation size, so that the first pool starts right after the highest id.
+create table trade_sequence (
+	next_val bigint NOT NULL
+);
+
 insert into trade values (1, 'T1', 1, 'CP-1', 'B1', '2020-05-20', current_date(), 'N');
 insert into trade values (2, 'T2', 2, 'CP-2', 'B1', '2021-05-20', current_date(), 'N');
 insert into trade values (3, 'T2', 1, 'CP-1', 'B1', '2021-05-20', '2015-03-14', 'N');
 insert into trade values (4, 'T1', 3, 'CP-3', 'B2', '2014-05-20', current_date(), 'Y');
+insert into trade_sequence select coalesce(max(id), 0)+50 from trade;
 commit;
 
 select * from trade;
\ No newline at end of file
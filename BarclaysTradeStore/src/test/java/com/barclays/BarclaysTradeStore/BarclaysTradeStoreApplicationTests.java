@@ -2,23 +2,43 @@ package com.barclays.BarclaysTradeStore;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.AdditionalAnswers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.barclays.dto.Expired;
 import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.dto.TradeStatus;
 import com.barclays.entity.Trade;
+import com.barclays.entity.TradeHistory;
 import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.repository.TradeHistoryRepository;
 import com.barclays.repository.TradeStoreRepository;
 import com.barclays.service.TradeStoreService;
 import com.barclays.service.TradeStoreServiceImpl;
+import com.barclays.store.TradeCache;
+import com.barclays.store.TradeHistoryWriter;
+import com.barclays.store.TradeSecondaryIndex;
+import com.barclays.store.TradeVersionIndex;
+import com.barclays.utility.TradeLockManager;
+import com.barclays.utility.TradeMetrics;
+import com.barclays.utility.TradeValidator;
 
 /** SpringBoot Test class. Used for writing and executing Unit tests.
  * 
@@ -30,7 +50,8 @@ import com.barclays.service.TradeStoreServiceImpl;
  * Hence, unit testing is not done for it.
  * 
  * Persistence layer is mocked to achieve loose coupling and independent testing of
- * business logic present in the service layer.
+ * business logic present in the service layer. Application context is started against
+ * an embedded test database so that a MySQL installation isn't needed for running tests.
  * 
  * The presentation layer (or REST API) is created only for transmission of trades 
  * and not for any business logic. Hence, unit testing is not done for it either.
@@ -38,22 +59,67 @@ import com.barclays.service.TradeStoreServiceImpl;
  * 
  * Service layer code is tested for both the implementations of trade processor.
  * 
- * There are four test cases for each implementation. A total of 8 unit test cases
- * are written.
+ * There are five test cases for each implementation, one for bulk processing, one
+ * for keeping only the latest version and one for duplicate trades. A total of 13 unit
+ * test cases are written.
  * 
  * 
  * @author Shashank Singh (shashank9830@gmail.com)
  *
  */
 @SpringBootTest
+@AutoConfigureTestDatabase
 class BarclaysTradeStoreApplicationTests {
 	
 	@Mock
 	TradeStoreRepository tradeStoreRepository;
 	
+	@Spy
+	TradeLockManager tradeLockManager=new TradeLockManager(16);
+	
+	@Spy
+	TradeVersionIndex tradeVersionIndex=new TradeVersionIndex();
+	
+	@Spy
+	TradeHistoryWriter tradeHistoryWriter=new TradeHistoryWriter();
+	
+	@Mock
+	TradeHistoryRepository tradeHistoryRepository;
+	
+	@Spy
+	TradeMetrics tradeMetrics=new TradeMetrics();
+	
+	@Spy
+	TradeCache tradeCache=new TradeCache(100, 60000);
+	
+	@Spy
+	TradeSecondaryIndex tradeSecondaryIndex=new TradeSecondaryIndex();
+	
+	@Mock
+	TransactionTemplate transactionTemplate;
+	
 	@InjectMocks
 	TradeStoreService tradeStoreService=new TradeStoreServiceImpl();
 	
+	/** Runs the DB work of the service in place of a transaction, the repository being mocked.
+	 */
+	@BeforeEach
+	void runTransactionsInPlace() {
+		
+		Mockito.when(transactionTemplate.execute(Mockito.any()))
+				.thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(new SimpleTransactionStatus()));
+		Mockito.doCallRealMethod().when(transactionTemplate).executeWithoutResult(Mockito.any());
+	}
+	
+	/** Validates trades against the version index spied on by the tests, and writes
+	 * superseded versions to the mocked history repository.
+	 */
+	@BeforeEach
+	void wireSpies() {
+		ReflectionTestUtils.setField(tradeStoreService, "tradeValidator", new TradeValidator(tradeVersionIndex));
+		ReflectionTestUtils.setField(tradeHistoryWriter, "tradeHistoryRepository", tradeHistoryRepository);
+	}
+	
 	/** Test case for a new trade. No trade with same trade id exists in the database.
 	 * Trade should be successfully added without any exceptions.
 	 * 
@@ -66,7 +132,7 @@ class BarclaysTradeStoreApplicationTests {
 		tradeDto.setTradeId("T3");
 		tradeDto.setVersion(1);
 		tradeDto.setCounterPartyId("CP-1");
-		tradeDto.setMaturityDate(LocalDate.of(2025, 5, 30));
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
 		tradeDto.setCreatedDate(LocalDate.now());
 		tradeDto.setExpired(Expired.N);
 		
@@ -120,7 +186,7 @@ class BarclaysTradeStoreApplicationTests {
 		tradeDto.setTradeId("T3");
 		tradeDto.setVersion(1);
 		tradeDto.setCounterPartyId("CP-1");
-		tradeDto.setMaturityDate(LocalDate.of(2025, 5, 30));
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
 		tradeDto.setCreatedDate(LocalDate.now());
 		tradeDto.setExpired(Expired.N);
 		
@@ -140,6 +206,30 @@ class BarclaysTradeStoreApplicationTests {
 		Assertions.assertEquals("TradeStoreService.LOWER_VERSION_TRADE", ex.getMessage());
 	}
 	
+	/** Test case for a trade with lower version than the one held by the version index.
+	 * Trade should be rejected without accessing the database.
+	 * 
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestLowerVersionFromIndex() throws BarclaysTradeStoreException {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId("T4");
+		tradeDto.setVersion(1);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		
+		tradeVersionIndex.record(tradeDto.getTradeId(), tradeDto.getVersion()+1);
+		
+		BarclaysTradeStoreException ex=Assertions.assertThrows(BarclaysTradeStoreException.class, ()->tradeStoreService.processTrade(tradeDto));
+		Assertions.assertEquals("TradeStoreService.LOWER_VERSION_TRADE", ex.getMessage());
+		Mockito.verifyNoInteractions(tradeStoreRepository);
+	}
+	
 	/** Test case for a trade with existing entry.
 	 * Same entry should be over-written.
 	 * 
@@ -153,7 +243,7 @@ class BarclaysTradeStoreApplicationTests {
 		tradeDto.setTradeId("T3");
 		tradeDto.setVersion(1);
 		tradeDto.setCounterPartyId("CP-1");
-		tradeDto.setMaturityDate(LocalDate.of(2025, 5, 30));
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
 		tradeDto.setCreatedDate(LocalDate.now());
 		tradeDto.setExpired(Expired.N);
 		
@@ -189,7 +279,7 @@ class BarclaysTradeStoreApplicationTests {
 		tradeDto.setTradeId("T3");
 		tradeDto.setVersion(1);
 		tradeDto.setCounterPartyId("CP-1");
-		tradeDto.setMaturityDate(LocalDate.of(2025, 5, 30));
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
 		tradeDto.setCreatedDate(LocalDate.now());
 		tradeDto.setExpired(Expired.N);
 		
@@ -247,7 +337,7 @@ class BarclaysTradeStoreApplicationTests {
 		tradeDto.setTradeId("T3");
 		tradeDto.setVersion(1);
 		tradeDto.setCounterPartyId("CP-1");
-		tradeDto.setMaturityDate(LocalDate.of(2025, 5, 30));
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
 		tradeDto.setCreatedDate(LocalDate.now());
 		tradeDto.setExpired(Expired.N);
 		
@@ -267,6 +357,32 @@ class BarclaysTradeStoreApplicationTests {
 		Assertions.assertEquals("TradeStoreService.LOWER_VERSION_TRADE", ex.getMessage());
 	}
 	
+	/** Test case for a trade with lower version than the one held by the version index.
+	 * Trade should be rejected without accessing the database.
+	 * 
+	 * Executed on low memory implementation of trade processor.
+	 * 
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeWithLessMemoryTestLowerVersionFromIndex() throws BarclaysTradeStoreException {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId("T4");
+		tradeDto.setVersion(1);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		
+		tradeVersionIndex.record(tradeDto.getTradeId(), tradeDto.getVersion()+1);
+		
+		BarclaysTradeStoreException ex=Assertions.assertThrows(BarclaysTradeStoreException.class, ()->tradeStoreService.processTradeWithLessMemory(tradeDto));
+		Assertions.assertEquals("TradeStoreService.LOWER_VERSION_TRADE", ex.getMessage());
+		Mockito.verifyNoInteractions(tradeStoreRepository);
+	}
+	
 	/** Test case for a trade with existing entry.
 	 * Same entry should be over-written.
 	 * 
@@ -282,7 +398,7 @@ class BarclaysTradeStoreApplicationTests {
 		tradeDto.setTradeId("T3");
 		tradeDto.setVersion(1);
 		tradeDto.setCounterPartyId("CP-1");
-		tradeDto.setMaturityDate(LocalDate.of(2025, 5, 30));
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
 		tradeDto.setCreatedDate(LocalDate.now());
 		tradeDto.setExpired(Expired.N);
 		
@@ -300,4 +416,138 @@ class BarclaysTradeStoreApplicationTests {
 		
 		Assertions.assertEquals(tradeDto.getCounterPartyId(), tradeStoreService.processTradeWithLessMemory(tradeDto).getCounterPartyId());
 	}
+	
+	/** Test case for bulk processing of a group of trades.
+	 * Valid trades should be accepted and saved together while invalid ones are
+	 * reported as rejected with the reason, in the order they were received.
+	 * 
+	 * A trade should also be validated against trades received earlier in the group.
+	 */
+	@Test
+	void processTradesTestMixedGroup() {
+		
+		Trade storedTrade=new Trade();
+		storedTrade.setTradeId("T1");
+		storedTrade.setVersion(2);
+		storedTrade.setCounterPartyId("CP-1");
+		storedTrade.setMaturityDate(LocalDate.now().plusYears(1));
+		storedTrade.setCreatedDate(LocalDate.now());
+		storedTrade.setExpired(Expired.N);
+		
+		TradeDTO lowerVersion=new TradeDTO();
+		lowerVersion.setTradeId("T1");
+		lowerVersion.setVersion(1);
+		lowerVersion.setMaturityDate(LocalDate.now().plusYears(1));
+		
+		TradeDTO pastMaturity=new TradeDTO();
+		pastMaturity.setTradeId("T2");
+		pastMaturity.setVersion(1);
+		pastMaturity.setMaturityDate(LocalDate.now().minusDays(1));
+		
+		TradeDTO newVersion=new TradeDTO();
+		newVersion.setTradeId("T3");
+		newVersion.setVersion(2);
+		newVersion.setMaturityDate(LocalDate.now().plusYears(1));
+		
+		TradeDTO olderThanReceived=new TradeDTO();
+		olderThanReceived.setTradeId("T3");
+		olderThanReceived.setVersion(1);
+		olderThanReceived.setMaturityDate(LocalDate.now().plusYears(1));
+		
+		Mockito.when(tradeStoreRepository.findByTradeIdIn(Mockito.anyCollection())).thenReturn(new ArrayList<>(Arrays.asList(storedTrade)));
+		Mockito.when(tradeStoreRepository.saveAll(Mockito.anyIterable())).thenAnswer(AdditionalAnswers.returnsFirstArg());
+		
+		List<TradeResultDTO> results=tradeStoreService.processTrades(Arrays.asList(lowerVersion, pastMaturity, newVersion, olderThanReceived));
+		
+		Assertions.assertEquals(4, results.size());
+		Assertions.assertEquals("TradeStoreService.LOWER_VERSION_TRADE", results.get(0).getMessage());
+		Assertions.assertEquals("TradeStoreService.INVALID_MATURITY_DATE", results.get(1).getMessage());
+		Assertions.assertEquals(TradeStatus.ACCEPTED, results.get(2).getStatus());
+		Assertions.assertEquals(TradeStatus.REJECTED, results.get(3).getStatus());
+		Assertions.assertEquals("TradeStoreService.LOWER_VERSION_TRADE", results.get(3).getMessage());
+		Mockito.verify(tradeStoreRepository).saveAll(Mockito.anyIterable());
+	}
+	
+	/** Test case for a higher version when only the latest version of trades is kept.
+	 * Stored row of the latest version should be overwritten and every older version
+	 * should be handed over to the history writer. Rows left over from storing all 
+	 * versions should be deleted.
+	 * 
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestLatestVersionOnly() throws BarclaysTradeStoreException {
+		
+		ReflectionTestUtils.setField(tradeStoreService, "latestVersionOnly", true);
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId("T3");
+		tradeDto.setVersion(3);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		
+		ArrayList<Trade> resultSet=new ArrayList<>();
+		for (int version=1; version<=2; version++) {
+			Trade trade=new Trade();
+			trade.setId(version);
+			trade.setTradeId(tradeDto.getTradeId());
+			trade.setVersion(version);
+			trade.setCounterPartyId("CP-2");
+			trade.setMaturityDate(tradeDto.getMaturityDate());
+			trade.setCreatedDate(tradeDto.getCreatedDate());
+			trade.setExpired(tradeDto.getExpired());
+			resultSet.add(trade);
+		}
+		Trade oldestTrade=resultSet.get(0);
+		Trade latestTrade=resultSet.get(1);
+		
+		Mockito.when(tradeStoreRepository.findByTradeId(Mockito.anyString())).thenReturn(resultSet);
+		Mockito.when(tradeStoreRepository.save(Mockito.any(Trade.class))).thenAnswer(AdditionalAnswers.returnsFirstArg());
+		
+		Trade savedTrade=tradeStoreService.processTrade(tradeDto);
+		
+		Assertions.assertSame(latestTrade, savedTrade);
+		Assertions.assertEquals(3, savedTrade.getVersion());
+		Assertions.assertEquals("CP-1", savedTrade.getCounterPartyId());
+		Mockito.verify(tradeHistoryRepository, Mockito.times(2)).save(Mockito.any(TradeHistory.class));
+		Mockito.verify(tradeStoreRepository).delete(oldestTrade);
+	}
+	
+	/** Test case for a trade resubmitted with identical content.
+	 * Resubmission should be acknowledged without taking the lock or accessing the DB,
+	 * by both single and bulk processing. A resubmission with changed content should 
+	 * still be saved.
+	 * 
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestDuplicate() throws BarclaysTradeStoreException {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId("T4");
+		tradeDto.setVersion(1);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		
+		Mockito.when(tradeStoreRepository.findByTradeId(Mockito.anyString())).thenReturn(new ArrayList<Trade>());
+		Mockito.when(tradeStoreRepository.save(Mockito.any(Trade.class))).thenAnswer(AdditionalAnswers.returnsFirstArg());
+		
+		Assertions.assertNotNull(tradeStoreService.processTrade(tradeDto));
+		Assertions.assertNull(tradeStoreService.processTrade(tradeDto));
+		Assertions.assertNull(tradeStoreService.processTradeWithLessMemory(tradeDto));
+		Assertions.assertEquals(TradeStatus.DUPLICATE, tradeStoreService.processTrades(Arrays.asList(tradeDto)).get(0).getStatus());
+		Mockito.verify(tradeLockManager, Mockito.times(1)).lock(Mockito.anyString());
+		Mockito.verify(tradeStoreRepository, Mockito.times(1)).save(Mockito.any(Trade.class));
+		Mockito.verify(tradeStoreRepository, Mockito.never()).findByTradeIdIn(Mockito.anyCollection());
+		
+		tradeDto.setCounterPartyId("CP-2");
+		Assertions.assertEquals("CP-2", tradeStoreService.processTrade(tradeDto).getCounterPartyId());
+		Mockito.verify(tradeStoreRepository, Mockito.times(2)).save(Mockito.any(Trade.class));
+	}
 }
@@ -0,0 +1,127 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.dto.ConnectionPoolDTO;
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.service.TradeStoreService;
+import com.barclays.utility.ConnectionPoolMetrics;
+import com.barclays.utility.TradeLockManager;
+
+/** Tests for the use of the DB connection pool by trade processing.
+ * 
+ * Runs against an in-memory H2 database behind a real Hikari pool of two connections,
+ * instead of the embedded test database, so that the pool can be saturated.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@SpringBootTest(properties={"spring.datasource.url=jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa", "spring.datasource.password=",
+		"spring.datasource.hikari.maximum-pool-size=2", "spring.datasource.hikari.minimum-idle=2",
+		"BatchService.SLEEP_TIME=86400000"})
+class ConnectionPoolTests {
+	
+	private static final long TIMEOUT=10000;
+	
+	@Autowired
+	TradeStoreService tradeStoreService;
+	
+	@Autowired
+	TradeLockManager tradeLockManager;
+	
+	@Autowired
+	ConnectionPoolMetrics connectionPoolMetrics;
+	
+	/** More trades than pooled connections wait for the lock of the same trade id. None of
+	 * them should hold a connection while waiting, and all of them should be processed once
+	 * the lock is released.
+	 * 
+	 * @throws InterruptedException -- thrown when the test is interrupted.
+	 */
+	@Test
+	void processTradeTestLockWaitHoldsNoConnection() throws InterruptedException {
+		
+		Queue<Throwable> failures=new ConcurrentLinkedQueue<>();
+		List<Thread> threads=new ArrayList<>();
+		Lock lock=tradeLockManager.lock("POOL1");
+		try {
+			for (int version=1; version<=4; version++) {
+				TradeDTO tradeDto=trade("POOL1", version);
+				Thread thread=new Thread(() -> {
+					try {
+						tradeStoreService.processTrade(tradeDto);
+					} catch (BarclaysTradeStoreException exception) {
+						// lower version processed after a higher one
+					} catch (Throwable throwable) {
+						failures.add(throwable);
+					}
+				});
+				thread.start();
+				threads.add(thread);
+			}
+			
+			long deadline=System.currentTimeMillis()+TIMEOUT;
+			while (!(allWaiting(threads) && connectionPoolMetrics.getConnectionPool().getActive()==0)) {
+				Assertions.assertTrue(System.currentTimeMillis()<deadline, "Trades waiting for a lock are holding connections");
+				Thread.sleep(10);
+			}
+			Assertions.assertEquals(0, connectionPoolMetrics.getConnectionPool().getPending());
+		} finally {
+			lock.unlock();
+		}
+		
+		for (Thread thread: threads)
+			thread.join(TIMEOUT);
+		Assertions.assertTrue(failures.isEmpty(), ()->"Trades failed: "+failures);
+	}
+	
+	/** Pool snapshot should report the configured size and acquire time percentiles.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void getConnectionPoolTest() throws BarclaysTradeStoreException {
+		
+		tradeStoreService.processTradeWithLessMemory(trade("POOL2", 1));
+		
+		ConnectionPoolDTO connectionPool=connectionPoolMetrics.getConnectionPool();
+		Assertions.assertEquals(2, connectionPool.getMaximum());
+		Assertions.assertTrue(connectionPool.getAcquireCount()>0);
+		Assertions.assertTrue(connectionPool.getAcquirePercentiles().containsKey("0.99"));
+	}
+	
+	private static boolean allWaiting(List<Thread> threads) {
+		
+		for (Thread thread: threads)
+			if (thread.getState()!=Thread.State.WAITING)
+				return false;
+		return true;
+	}
+	
+	private static TradeDTO trade(String tradeId, int version) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(version);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setBookId("B1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+}
@@ -0,0 +1,109 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import com.barclays.dto.Expired;
+import com.barclays.entity.Trade;
+
+/** Copy of the Trade entity mapped with an IDENTITY primary key, as Trade was before it
+ * moved to a pooled sequence. Used by InsertThroughputBenchmark as the baseline.
+ * 
+ * Ids are only known once the INSERT is executed, so Hibernate can't batch the inserts.
+ * The identity_trade table is created by the benchmark.
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Entity
+@Table(name="identity_trade")
+public class IdentityTrade {
+	
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	private int id;
+	private String tradeId;
+	private int version;
+	private String counterPartyId;
+	private String bookId;
+	private LocalDate maturityDate;
+	private LocalDate createdDate;
+	@Enumerated(EnumType.STRING)
+	private Expired expired;
+	
+	public IdentityTrade() {
+	}
+	
+	public IdentityTrade(Trade trade) {
+		this.tradeId = trade.getTradeId();
+		this.version = trade.getVersion();
+		this.counterPartyId = trade.getCounterPartyId();
+		this.bookId = trade.getBookId();
+		this.maturityDate = trade.getMaturityDate();
+		this.createdDate = trade.getCreatedDate();
+		this.expired = trade.getExpired();
+	}
+	
+	public int getId() {
+		return id;
+	}
+	public void setId(int id) {
+		this.id = id;
+	}
+	
+	public String getTradeId() {
+		return tradeId;
+	}
+	public void setTradeId(String tradeId) {
+		this.tradeId = tradeId;
+	}
+	
+	public int getVersion() {
+		return version;
+	}
+	public void setVersion(int version) {
+		this.version = version;
+	}
+	
+	public String getCounterPartyId() {
+		return counterPartyId;
+	}
+	public void setCounterPartyId(String counterPartyId) {
+		this.counterPartyId = counterPartyId;
+	}
+	
+	public String getBookId() {
+		return bookId;
+	}
+	public void setBookId(String bookId) {
+		this.bookId = bookId;
+	}
+	
+	public LocalDate getMaturityDate() {
+		return maturityDate;
+	}
+	public void setMaturityDate(LocalDate maturityDate) {
+		this.maturityDate = maturityDate;
+	}
+	
+	public LocalDate getCreatedDate() {
+		return createdDate;
+	}
+	public void setCreatedDate(LocalDate createdDate) {
+		this.createdDate = createdDate;
+	}
+	
+	public Expired getExpired() {
+		return expired;
+	}
+	public void setExpired(Expired expired) {
+		this.expired = expired;
+	}
+}
@@ -0,0 +1,91 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.barclays.messaging.TradeLog;
+import com.barclays.messaging.TradeLogRecord;
+
+/** In-process stand-in for a partitioned message broker, used by tests of TradeLogConsumer.
+ * 
+ * Records sent to a partition are kept in a list and their offset is their index in it.
+ * Number of commits of every partition is counted.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ * 
+ */
+class InMemoryTradeLog implements TradeLog {
+	
+	private final List<List<TradeLogRecord>> partitions;
+	private final AtomicLongArray committedOffsets;
+	private final AtomicIntegerArray commitCounts;
+	
+	InMemoryTradeLog(int partitionCount) {
+		
+		partitions=new ArrayList<>(partitionCount);
+		for (int i=0; i<partitionCount; i++)
+			partitions.add(new ArrayList<>());
+		committedOffsets=new AtomicLongArray(partitionCount);
+		commitCounts=new AtomicIntegerArray(partitionCount);
+	}
+	
+	/** Appends a record to the partition of its trade id.
+	 * 
+	 * @return -- partition the record was sent to.
+	 */
+	int send(String tradeId, byte[] value) {
+		
+		int partition=TradeLog.partitionOf(tradeId, partitions.size());
+		List<TradeLogRecord> records=partitions.get(partition);
+		synchronized (records) {
+			records.add(new TradeLogRecord(records.size(), tradeId, value));
+			records.notifyAll();
+		}
+		return partition;
+	}
+	
+	@Override
+	public int getPartitionCount() {
+		return partitions.size();
+	}
+	
+	@Override
+	public List<TradeLogRecord> poll(int partition, long offset, int maxRecords, long timeout) throws InterruptedException {
+		
+		List<TradeLogRecord> records=partitions.get(partition);
+		synchronized (records) {
+			if (records.size()<=offset)
+				TimeUnit.MILLISECONDS.timedWait(records, timeout);
+			int from=(int)Math.min(offset, records.size());
+			return new ArrayList<>(records.subList(from, Math.min(records.size(), from+maxRecords)));
+		}
+	}
+	
+	@Override
+	public long getCommittedOffset(int partition) {
+		return committedOffsets.get(partition);
+	}
+	
+	@Override
+	public void commit(int partition, long offset) {
+		committedOffsets.set(partition, offset);
+		commitCounts.incrementAndGet(partition);
+	}
+	
+	@Override
+	public long getEndOffset(int partition) {
+		
+		List<TradeLogRecord> records=partitions.get(partition);
+		synchronized (records) {
+			return records.size();
+		}
+	}
+	
+	int getCommitCount(int partition) {
+		return commitCounts.get(partition);
+	}
+}
@@ -0,0 +1,121 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.barclays.dto.Expired;
+import com.barclays.entity.Trade;
+import com.barclays.repository.TradeStoreRepository;
+
+/** Benchmark for insert throughput of bulk saves, pooled sequence ids against IDENTITY ids.
+ * 
+ * Saves a fixed number of new trades in chunks, one transaction per chunk, and reports
+ * rows per second along with the number of JDBC statements Hibernate prepared. Trades
+ * are saved through TradeStoreRepository with the pooled sequence of the Trade entity,
+ * and as IdentityTrade entities, a copy of Trade with an IDENTITY key, for the baseline.
+ * Results are logged at INFO level for every round.
+ * 
+ * Tagged as benchmark so that it is excluded from the regular test run. Execute with
+ * mvn test -Dgroups=benchmark -DexcludedGroups=none
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Tag("benchmark")
+@SpringBootTest(properties={"spring.jpa.properties.hibernate.generate_statistics=true", "BatchService.SLEEP_TIME=86400000"})
+@AutoConfigureTestDatabase
+class InsertThroughputBenchmark {
+	
+	private static final Log LOGGER = LogFactory.getLog(InsertThroughputBenchmark.class);
+	
+	private static final int TRADES=20000;
+	private static final int CHUNK_SIZE=500;
+	private static final int ROUNDS=5;
+	
+	@Autowired
+	TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	
+	@PersistenceContext
+	EntityManager entityManager;
+	
+	@Test
+	void insertThroughputPooledSequence() {
+		measure("pooled sequence", tradeStoreRepository::deleteAll, tradeStoreRepository::saveAll);
+	}
+	
+	@Test
+	void insertThroughputIdentity() {
+		
+		jdbcTemplate.execute("create table if not exists identity_trade (id int auto_increment primary key, "
+				+ "trade_id VARCHAR(10) NOT NULL, version int NOT NULL, counter_party_id VARCHAR(10) NOT NULL, "
+				+ "book_id VARCHAR(10) NOT NULL, maturity_date Date NOT NULL, created_date Date NOT NULL, expired CHAR(1) NOT NULL)");
+		measure("identity", () -> jdbcTemplate.update("delete from identity_trade"), 
+				chunk -> chunk.forEach(trade -> entityManager.persist(new IdentityTrade(trade))));
+	}
+	
+	private void measure(String idStrategy, Runnable clear, Consumer<List<Trade>> save) {
+		
+		Statistics statistics=entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		
+		for (int round=0; round<ROUNDS; round++) {
+			clear.run();
+			statistics.clear();
+			
+			long start=System.nanoTime();
+			for (int offset=0; offset<TRADES; offset+=CHUNK_SIZE) {
+				List<Trade> chunk=createTrades(round, offset);
+				transactionTemplate.executeWithoutResult(status->save.accept(chunk));
+			}
+			long elapsed=System.nanoTime()-start;
+			
+			LOGGER.info(String.format("%s round %d: %d trades in %d ms, %.0f trades/s, %d statements prepared, %d entities inserted",
+					idStrategy, round, TRADES, elapsed/1000000, TRADES*1e9/elapsed,
+					statistics.getPrepareStatementCount(), statistics.getEntityInsertCount()));
+		}
+	}
+	
+	private List<Trade> createTrades(int round, int offset) {
+		
+		List<Trade> trades=new ArrayList<>(CHUNK_SIZE);
+		for (int i=offset; i<offset+CHUNK_SIZE; i++) {
+			Trade trade=new Trade();
+			trade.setTradeId("R"+round+"T"+i);
+			trade.setVersion(1);
+			trade.setCounterPartyId("CP-1");
+			trade.setBookId("B1");
+			trade.setMaturityDate(LocalDate.now().plusYears(1));
+			trade.setCreatedDate(LocalDate.now());
+			trade.setExpired(Expired.N);
+			trades.add(trade);
+		}
+		return trades;
+	}
+}
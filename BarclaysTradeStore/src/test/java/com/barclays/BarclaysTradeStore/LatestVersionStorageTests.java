@@ -0,0 +1,115 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.entity.Trade;
+import com.barclays.entity.TradeHistory;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.repository.TradeHistoryRepository;
+import com.barclays.repository.TradeStoreRepository;
+import com.barclays.service.TradeStoreService;
+import com.barclays.store.TradeHistoryWriter;
+
+/** Tests for the storage mode that keeps only the latest version of every trade.
+ * 
+ * Executed against the embedded test database so that the trade and trade history
+ * tables can be checked after processing.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@SpringBootTest(properties={"TradeStoreService.LATEST_VERSION_ONLY=true", "BatchService.SLEEP_TIME=86400000"})
+@AutoConfigureTestDatabase
+class LatestVersionStorageTests {
+	
+	@Autowired
+	TradeStoreService tradeStoreService;
+	
+	@Autowired
+	TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired
+	TradeHistoryRepository tradeHistoryRepository;
+	
+	@Autowired
+	TradeHistoryWriter tradeHistoryWriter;
+	
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	
+	/** Test case for several versions of a trade received one by one and in bulk.
+	 * Trade table should hold a single row with the latest version, while every
+	 * superseded version should be found in the trade history table once its trade commits.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestSupersededVersionsMoved() throws BarclaysTradeStoreException {
+		
+		tradeStoreService.processTrade(createTradeDto("H1", 1));
+		tradeStoreService.processTradeWithLessMemory(createTradeDto("H1", 2));
+		tradeStoreService.processTrades(Arrays.asList(createTradeDto("H1", 3), createTradeDto("H1", 4)));
+		
+		List<Trade> trades=tradeStoreRepository.findByTradeId("H1");
+		Assertions.assertEquals(1, trades.size());
+		Assertions.assertEquals(4, trades.get(0).getVersion());
+		
+		List<Integer> supersededVersions=tradeHistoryRepository.findByTradeId("H1").stream()
+				.map(TradeHistory::getVersion)
+				.sorted(Comparator.naturalOrder())
+				.collect(Collectors.toList());
+		Assertions.assertEquals(Arrays.asList(1, 2, 3), supersededVersions);
+	}
+	
+	/** Test case for a superseded version handed over in a transaction that rolls back.
+	 * No history row should be written, as it is written in the same transaction.
+	 */
+	@Test
+	void archiveTestRolledBack() {
+		
+		Trade trade=new Trade();
+		trade.setTradeId("H2");
+		trade.setVersion(1);
+		trade.setCounterPartyId("CP-1");
+		trade.setBookId("B1");
+		trade.setMaturityDate(LocalDate.now().plusYears(1));
+		trade.setCreatedDate(LocalDate.now());
+		trade.setExpired(Expired.N);
+		
+		transactionTemplate.executeWithoutResult(status -> {
+			tradeHistoryWriter.archive(trade);
+			status.setRollbackOnly();
+		});
+		Assertions.assertTrue(tradeHistoryRepository.findByTradeId("H2").isEmpty());
+		
+		transactionTemplate.executeWithoutResult(status -> tradeHistoryWriter.archive(trade));
+		Assertions.assertEquals(1, tradeHistoryRepository.findByTradeId("H2").size());
+	}
+	
+	private TradeDTO createTradeDto(String tradeId, int version) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(version);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setBookId("B1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+}
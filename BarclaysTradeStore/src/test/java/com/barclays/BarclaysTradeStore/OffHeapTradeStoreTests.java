@@ -0,0 +1,219 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.dto.TradeStatus;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.repository.OffHeapTradeStoreRepository;
+import com.barclays.repository.TradeStoreRepository;
+import com.barclays.service.TradeArchiveService;
+import com.barclays.service.TradeQueryService;
+import com.barclays.service.TradeStoreService;
+import com.barclays.store.OffHeapTradeTable;
+
+/** Tests for the off-heap store engine.
+ * 
+ * The service layer should behave the same on it as on the JPA repository, and every
+ * query of TradeStoreRepository should keep its meaning.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@SpringBootTest(properties={"BatchService.SLEEP_TIME=86400000", "TradeStore.ENGINE=offHeap",
+		"TradeStore.SNAPSHOT_PATH="+OffHeapTradeStoreTests.SNAPSHOT_PATH, "TradeStore.SNAPSHOT_INTERVAL=86400000"})
+@AutoConfigureTestDatabase
+class OffHeapTradeStoreTests {
+	
+	static final String SNAPSHOT_PATH="target/off-heap-tests.snapshot";
+	
+	@Autowired
+	TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired
+	OffHeapTradeStoreRepository offHeapTradeStoreRepository;
+	
+	@Autowired
+	TradeStoreService tradeStoreService;
+	
+	@Autowired
+	TradeQueryService tradeQueryService;
+	
+	@Autowired
+	TradeArchiveService tradeArchiveService;
+	
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	
+	@BeforeAll
+	static void deleteSnapshot() throws IOException {
+		Files.deleteIfExists(Paths.get(SNAPSHOT_PATH));
+	}
+	
+	/** Trade processors should accept, overwrite and reject trades on the off-heap engine
+	 * just like they do on the database.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestOffHeapEngine() throws BarclaysTradeStoreException {
+		
+		Assertions.assertTrue(tradeStoreRepository instanceof OffHeapTradeStoreRepository);
+		
+		tradeStoreService.processTrade(createTradeDto("OH1", 2, "CP-1"));
+		Assertions.assertThrows(BarclaysTradeStoreException.class, ()->tradeStoreService.processTrade(createTradeDto("OH1", 1, "CP-1")));
+		tradeStoreService.processTradeWithLessMemory(createTradeDto("OH1", 3, "CP-1"));
+		tradeStoreService.processTradeWithLessMemory(createTradeDto("OH1", 3, "CP-2"));
+		List<TradeResultDTO> results=tradeStoreService.processTrades(List.of(createTradeDto("OH2", 1, "CP-1"), createTradeDto("OH1", 3, "CP-3")));
+		
+		Assertions.assertEquals(List.of(TradeStatus.ACCEPTED, TradeStatus.ACCEPTED),
+				results.stream().map(TradeResultDTO::getStatus).collect(Collectors.toList()));
+		Assertions.assertEquals(List.of(2, 3), versions(tradeStoreRepository.findByTradeIdOrderByVersion("OH1")));
+		Assertions.assertEquals("CP-1", tradeStoreRepository.findOneByTradeIdAndVersion("OH1", 2).get().getCounterPartyId());
+		Assertions.assertEquals("CP-3", tradeQueryService.getLatestTrade("OH1").getCounterPartyId());
+		Assertions.assertEquals(1, tradeQueryService.getLatestTrade("OH2").getVersion());
+	}
+	
+	/** Versions saved out of order should be found in order, also after a version is
+	 * changed or removed. Expiry and expired trade queries should see the matured trades.
+	 */
+	@Test
+	void queryTestVersionChains() {
+		
+		for (int version: new int[] {5, 2, 9, 7})
+			tradeStoreRepository.save(createTrade("OH3", version, LocalDate.now().plusYears(1)));
+		Trade matured=tradeStoreRepository.save(createTrade("OH4", 1, LocalDate.now().minusDays(1)));
+		
+		Assertions.assertEquals(List.of(9, 7, 5, 2), versions(tradeStoreRepository.findByTradeId("OH3")));
+		Assertions.assertEquals(List.of(9, 7), versions(tradeStoreRepository.findByTradeIdAndVersionGreaterThan("OH3", 5)));
+		Assertions.assertEquals(List.of(5, 2), versions(tradeStoreRepository.findByTradeIdAndVersionLessThan("OH3", 7)));
+		Assertions.assertTrue(tradeStoreRepository.findOneByTradeIdAndVersion("OH3", 8).isEmpty());
+		
+		Trade trade=tradeStoreRepository.findOneByTradeIdAndVersion("OH3", 2).get();
+		trade.setVersion(10);
+		tradeStoreRepository.save(trade);
+		tradeStoreRepository.delete(tradeStoreRepository.findOneByTradeIdAndVersion("OH3", 7).get());
+		Assertions.assertEquals(List.of(10, 9, 5), versions(tradeStoreRepository.findByTradeId("OH3")));
+		Assertions.assertEquals(10, tradeStoreRepository.findFirstByTradeIdOrderByVersionDesc("OH3").get().getVersion());
+		
+		LocalDate today=LocalDate.now();
+		List<Integer> ids=tradeStoreRepository.findMaturedTradeIds(today.minusDays(7), today, Expired.N, 0, PageRequest.of(0, 100));
+		Assertions.assertEquals(List.of(matured.getId()), ids);
+		Assertions.assertEquals(1, tradeStoreRepository.expireMaturedTrades(today.minusDays(7), today, 0, matured.getId()));
+		Assertions.assertEquals(Expired.Y, tradeStoreRepository.findById(matured.getId()).get().getExpired());
+		Assertions.assertEquals(1, tradeStoreRepository.findExpiredTradeKeys(today, 0, PageRequest.of(0, 100)).size());
+		Assertions.assertEquals(1, tradeStoreRepository.deleteExpiredTrades(ids));
+		Assertions.assertTrue(tradeStoreRepository.findByTradeId("OH4").isEmpty());
+	}
+	
+	/** The archive job should move expired trades past the retention window from the
+	 * off-heap table to the archive table in the database.
+	 */
+	@Test
+	void archiveExpiredTradesTestOffHeapEngine() {
+		
+		Trade trade=createTrade("OH6", 2, LocalDate.now().minusDays(100));
+		trade.setExpired(Expired.Y);
+		tradeStoreRepository.save(trade);
+		
+		Assertions.assertEquals(1, tradeArchiveService.archiveExpiredTrades());
+		Assertions.assertTrue(tradeStoreRepository.findByTradeId("OH6").isEmpty());
+		Assertions.assertEquals(List.of(2), 
+				jdbcTemplate.queryForList("select version from trade_archive where trade_id = 'OH6'", Integer.class));
+	}
+	
+	/** Expired trades deleted in an archive transaction that rolls back should stay in
+	 * the off-heap table, as they never reach the archive table.
+	 */
+	@Test
+	void deleteExpiredTradesTestRolledBack() {
+		
+		Trade trade=createTrade("OH7", 1, LocalDate.now().minusDays(1));
+		trade.setExpired(Expired.Y);
+		tradeStoreRepository.save(trade);
+		List<Integer> ids=List.of(trade.getId());
+		
+		transactionTemplate.executeWithoutResult(status -> {
+			Assertions.assertEquals(1, tradeStoreRepository.copyToArchive(ids, LocalDateTime.now()));
+			Assertions.assertEquals(1, tradeStoreRepository.deleteExpiredTrades(ids));
+			status.setRollbackOnly();
+		});
+		Assertions.assertEquals(1, tradeStoreRepository.findByTradeId("OH7").size());
+		Assertions.assertTrue(jdbcTemplate.queryForList("select version from trade_archive where trade_id = 'OH7'", Integer.class).isEmpty());
+	}
+	
+	/** A snapshot should hold every live trade with its version chain.
+	 * 
+	 * @throws IOException -- thrown when the snapshot can't be written or read.
+	 */
+	@Test
+	void snapshotTestRoundTrip() throws IOException {
+		
+		tradeStoreRepository.save(createTrade("OH5", 1, LocalDate.now().plusYears(1)));
+		tradeStoreRepository.save(createTrade("OH5", 4, LocalDate.now().plusYears(1)));
+		offHeapTradeStoreRepository.snapshot();
+		
+		Path path=Paths.get(SNAPSHOT_PATH);
+		OffHeapTradeTable table=OffHeapTradeTable.readFrom(path);
+		Assertions.assertEquals(tradeStoreRepository.count(), table.getCount());
+		int head=table.getHead("OH5");
+		Assertions.assertEquals(4, table.getVersion(head));
+		Assertions.assertEquals(1, table.getVersion(table.getPrevious(head)));
+		Assertions.assertEquals("B1", table.getBookId(head));
+		Assertions.assertEquals(LocalDate.now().plusYears(1).toEpochDay(), table.getMaturityDate(head));
+	}
+	
+	private static List<Integer> versions(List<Trade> trades) {
+		return trades.stream().map(Trade::getVersion).collect(Collectors.toList());
+	}
+	
+	private static TradeDTO createTradeDto(String tradeId, int version, String counterPartyId) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(version);
+		tradeDto.setCounterPartyId(counterPartyId);
+		tradeDto.setBookId("B1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+	
+	private static Trade createTrade(String tradeId, int version, LocalDate maturityDate) {
+		
+		Trade trade=new Trade();
+		trade.setTradeId(tradeId);
+		trade.setVersion(version);
+		trade.setCounterPartyId("CP-1");
+		trade.setBookId("B1");
+		trade.setMaturityDate(maturityDate);
+		trade.setCreatedDate(LocalDate.now());
+		trade.setExpired(Expired.N);
+		return trade;
+	}
+}
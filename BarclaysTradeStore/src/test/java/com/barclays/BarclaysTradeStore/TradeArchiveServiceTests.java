@@ -0,0 +1,117 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeValidationResult;
+import com.barclays.entity.Trade;
+import com.barclays.repository.TradeStoreRepository;
+import com.barclays.service.TradeArchiveService;
+import com.barclays.store.TradeVersionIndex;
+import com.barclays.utility.TradeValidator;
+
+/** Tests for the archive job that moves old expired trades out of the trade table.
+ * 
+ * Executed against the embedded test database since trades are moved by INSERT ... SELECT
+ * and DELETE statements.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@SpringBootTest(properties={"BatchService.SLEEP_TIME=86400000", "TradeArchive.RETENTION_DAYS=30", 
+		"TradeArchive.CHUNK_SIZE=2", "TradeArchive.CHUNK_PAUSE=0"})
+@AutoConfigureTestDatabase
+class TradeArchiveServiceTests {
+	
+	@Autowired
+	TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired
+	TradeArchiveService tradeArchiveService;
+	
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	
+	/** Test case for expired trades spread over several chunks.
+	 * Only expired trades past the retention window should be moved, and a second run
+	 * should find nothing left to move.
+	 */
+	@Test
+	void archiveExpiredTradesTestRetention() {
+		
+		tradeStoreRepository.deleteAll();
+		jdbcTemplate.update("delete from trade_archive");
+		List<Trade> trades=new ArrayList<>();
+		for (int i=1; i<=5; i++)
+			trades.add(createTrade("A"+i, LocalDate.now().minusDays(30+i), Expired.Y));
+		trades.add(createTrade("R1", LocalDate.now().minusDays(10), Expired.Y));
+		trades.add(createTrade("R2", LocalDate.now().minusDays(40), Expired.N));
+		tradeStoreRepository.saveAll(trades);
+		
+		Assertions.assertEquals(5, tradeArchiveService.archiveExpiredTrades());
+		Assertions.assertEquals(0, tradeArchiveService.archiveExpiredTrades());
+		
+		List<String> remaining=new ArrayList<>();
+		tradeStoreRepository.findAll().forEach(trade -> remaining.add(trade.getTradeId()));
+		Assertions.assertEquals(List.of("R1", "R2"), remaining);
+		Assertions.assertEquals(List.of("A1", "A2", "A3", "A4", "A5"), 
+				jdbcTemplate.queryForList("select trade_id from trade_archive order by trade_id", String.class));
+	}
+	
+	/** Test case for a trade id whose only rows were archived. After a restart the version
+	 * index should still know its archived version, so a lower version replayed later is
+	 * rejected.
+	 */
+	@Test
+	void archiveExpiredTradesTestLowerVersionAfterRestart() {
+		
+		tradeStoreRepository.deleteAll();
+		jdbcTemplate.update("delete from trade_archive");
+		Trade trade=createTrade("AR1", LocalDate.now().minusDays(31), Expired.Y);
+		trade.setVersion(3);
+		tradeStoreRepository.save(trade);
+		tradeArchiveService.archiveExpiredTrades();
+		Assertions.assertTrue(tradeStoreRepository.findByTradeId("AR1").isEmpty());
+		
+		TradeVersionIndex restartedIndex=new TradeVersionIndex();
+		ReflectionTestUtils.setField(restartedIndex, "tradeStoreRepository", tradeStoreRepository);
+		restartedIndex.warmUp();
+		Assertions.assertEquals(3, restartedIndex.getLatestVersion("AR1"));
+		
+		TradeDTO replayed=new TradeDTO();
+		replayed.setTradeId("AR1");
+		replayed.setVersion(2);
+		replayed.setCounterPartyId("CP-1");
+		replayed.setBookId("B1");
+		replayed.setMaturityDate(LocalDate.now().plusYears(1));
+		replayed.setCreatedDate(LocalDate.now());
+		replayed.setExpired(Expired.N);
+		Assertions.assertEquals(TradeValidationResult.LOWER_VERSION_TRADE, 
+				new TradeValidator(restartedIndex).validate(replayed, TradeVersionIndex.contentHash(replayed)));
+	}
+	
+	private Trade createTrade(String tradeId, LocalDate maturityDate, Expired expired) {
+		
+		Trade trade=new Trade();
+		trade.setTradeId(tradeId);
+		trade.setVersion(1);
+		trade.setCounterPartyId("CP-1");
+		trade.setBookId("B1");
+		trade.setMaturityDate(maturityDate);
+		trade.setCreatedDate(LocalDate.now().minusYears(1));
+		trade.setExpired(expired);
+		return trade;
+	}
+}
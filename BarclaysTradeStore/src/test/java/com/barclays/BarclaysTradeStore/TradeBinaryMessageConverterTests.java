@@ -0,0 +1,140 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.api.TradeBinaryMessageConverter;
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.service.TradeStoreService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Tests for the binary trade format.
+ * 
+ * Trades decoded from binary records should be indistinguishable from the same trades
+ * parsed from JSON, down to the validation results of the service layer.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@SpringBootTest(properties={"BatchService.SLEEP_TIME=86400000"})
+@AutoConfigureTestDatabase
+class TradeBinaryMessageConverterTests {
+	
+	@Autowired
+	TradeBinaryMessageConverter tradeBinaryMessageConverter;
+	
+	@Autowired
+	TradeStoreService tradeStoreService;
+	
+	@Autowired
+	ObjectMapper objectMapper;
+	
+	/** Every field, including missing ones, should survive a binary round trip the same way
+	 * it is parsed from JSON. Repeated book ids and dates should be shared between trades.
+	 * 
+	 * @throws IOException -- thrown when a trade can't be encoded or decoded.
+	 */
+	@Test
+	void readTestMatchesJson() throws IOException {
+		
+		List<TradeDTO> jsonTrades=parseJson("["
+				+"{\"tradeId\":\"BIN1\",\"version\":1,\"counterPartyId\":\"CP-1\",\"bookId\":\"B1\",\"maturityDate\":\"2099-05-20\",\"createdDate\":\"2021-05-20\",\"expired\":\"N\"},"
+				+"{\"tradeId\":\"BIN2\",\"version\":7,\"counterPartyId\":\"CP-é\",\"bookId\":\"B1\",\"maturityDate\":\"2099-05-20\",\"expired\":\"Y\"},"
+				+"{\"tradeId\":\"BIN3\",\"version\":-1}"
+				+"]");
+		List<TradeDTO> binaryTrades=decode(encode(jsonTrades));
+		
+		Assertions.assertEquals(objectMapper.writeValueAsString(jsonTrades), objectMapper.writeValueAsString(binaryTrades));
+		Assertions.assertSame(binaryTrades.get(0).getBookId(), binaryTrades.get(1).getBookId());
+		Assertions.assertSame(binaryTrades.get(0).getMaturityDate(), binaryTrades.get(1).getMaturityDate());
+	}
+	
+	/** Truncated records and unknown expired flags should be rejected.
+	 * 
+	 * @throws IOException -- thrown when a trade can't be encoded.
+	 */
+	@Test
+	void readTestMalformedRecords() throws IOException {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId("BIN4");
+		tradeDto.setVersion(1);
+		byte[] record=encode(List.of(tradeDto));
+		
+		byte[] truncated=new byte[record.length-1];
+		System.arraycopy(record, 0, truncated, 0, truncated.length);
+		Assertions.assertThrows(IOException.class, ()->decode(truncated));
+		
+		record[record.length-1]='X';
+		Assertions.assertThrows(IOException.class, ()->decode(record));
+	}
+	
+	/** Same trades sent as JSON and as binary records should get the same results. The
+	 * accepted trade sent again as binary should be recognized as a duplicate of the JSON one.
+	 * 
+	 * @throws IOException -- thrown when a trade can't be encoded or decoded.
+	 */
+	@Test
+	void processTradesTestSameValidation() throws IOException {
+		
+		String maturityDate=LocalDate.now().plusYears(1).toString();
+		String pastDate=LocalDate.now().minusDays(1).toString();
+		List<TradeDTO> jsonTrades=parseJson("["
+				+"{\"tradeId\":\"BIN5\",\"version\":2,\"counterPartyId\":\"CP-1\",\"bookId\":\"B1\",\"maturityDate\":\""+maturityDate+"\",\"createdDate\":\""+maturityDate+"\",\"expired\":\"N\"},"
+				+"{\"tradeId\":\"BIN5\",\"version\":1,\"counterPartyId\":\"CP-1\",\"bookId\":\"B1\",\"maturityDate\":\""+maturityDate+"\",\"createdDate\":\""+maturityDate+"\",\"expired\":\"N\"},"
+				+"{\"tradeId\":\"BIN6\",\"version\":1,\"counterPartyId\":\"CP-1\",\"bookId\":\"B1\",\"maturityDate\":\""+pastDate+"\",\"createdDate\":\""+pastDate+"\",\"expired\":\"N\"}"
+				+"]");
+		
+		List<String> jsonResults=describe(tradeStoreService.processTrades(jsonTrades));
+		List<String> binaryResults=describe(tradeStoreService.processTrades(decode(encode(jsonTrades))));
+		
+		Assertions.assertEquals(List.of("BIN5 2 ACCEPTED null", "BIN5 1 REJECTED TradeStoreService.LOWER_VERSION_TRADE",
+				"BIN6 1 REJECTED TradeStoreService.INVALID_MATURITY_DATE"), jsonResults);
+		Assertions.assertEquals("BIN5 2 DUPLICATE null", binaryResults.get(0));
+		Assertions.assertEquals(jsonResults.subList(1, 3), binaryResults.subList(1, 3));
+	}
+	
+	private List<TradeDTO> parseJson(String json) throws IOException {
+		return objectMapper.readValue(json, new TypeReference<List<TradeDTO>>() {});
+	}
+	
+	private byte[] encode(List<TradeDTO> trades) throws IOException {
+		
+		ByteArrayOutputStream outputStream=new ByteArrayOutputStream();
+		for (TradeDTO tradeDto: trades)
+			TradeBinaryMessageConverter.write(tradeDto, outputStream);
+		return outputStream.toByteArray();
+	}
+	
+	private List<TradeDTO> decode(byte[] records) throws IOException {
+		
+		InputStream inputStream=new ByteArrayInputStream(records);
+		byte[] buffer=new byte[TradeBinaryMessageConverter.MAX_RECORD_SIZE];
+		List<TradeDTO> trades=new ArrayList<>();
+		TradeDTO tradeDto;
+		while ((tradeDto=tradeBinaryMessageConverter.read(inputStream, buffer))!=null)
+			trades.add(tradeDto);
+		return trades;
+	}
+	
+	private List<String> describe(List<TradeResultDTO> results) {
+		return results.stream()
+				.map(result -> result.getTradeId()+" "+result.getVersion()+" "+result.getStatus()+" "+result.getMessage())
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,135 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.dto.TradeStatus;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.exception.TradeStoreBusyException;
+import com.barclays.service.TradeIngestionServiceImpl;
+import com.barclays.service.TradeStoreService;
+import com.barclays.store.TradeVersionIndex;
+import com.barclays.utility.TradeValidator;
+
+/** Unit tests for asynchronous ingestion of trades.
+ * 
+ * Trade store service is mocked so that only queueing, result tracking and
+ * backpressure of the ingestion service are tested.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+class TradeIngestionServiceTests {
+	
+	TradeStoreService tradeStoreService=Mockito.mock(TradeStoreService.class);
+	
+	TradeIngestionServiceImpl tradeIngestionService;
+	
+	@AfterEach
+	void stopWorkers() throws InterruptedException {
+		tradeIngestionService.stop();
+	}
+	
+	/** Test case for a queued trade. Outcome should be PENDING until a worker has
+	 * processed it and then match the result of the trade store service.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void submitTradeTestProcessedInBackground() throws BarclaysTradeStoreException {
+		
+		startIngestion(1, 10);
+		Mockito.when(tradeStoreService.processTrades(Mockito.anyList())).thenAnswer(invocation -> {
+			List<TradeDTO> trades=invocation.getArgument(0);
+			return trades.stream()
+					.map(trade -> new TradeResultDTO(trade.getTradeId(), trade.getVersion(), TradeStatus.ACCEPTED, null))
+					.collect(Collectors.toList());
+		});
+		
+		TradeResultDTO receipt=tradeIngestionService.submitTrade(createTradeDto("T1"));
+		Assertions.assertNotNull(receipt.getTrackingId());
+		
+		Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			while (tradeIngestionService.getTradeResult(receipt.getTrackingId()).getStatus()==TradeStatus.PENDING)
+				Thread.sleep(10);
+		});
+		Assertions.assertEquals(TradeStatus.ACCEPTED, tradeIngestionService.getTradeResult(receipt.getTrackingId()).getStatus());
+	}
+	
+	/** Test case for a full queue while the worker is busy.
+	 * Trade should be refused with a TradeStoreBusyException having 
+	 * "TradeIngestionService.QUEUE_FULL" message.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 * @throws InterruptedException -- thrown if the test thread is interrupted.
+	 */
+	@Test
+	void submitTradeTestQueueFull() throws BarclaysTradeStoreException, InterruptedException {
+		
+		startIngestion(1, 1);
+		CountDownLatch started=new CountDownLatch(1);
+		CountDownLatch release=new CountDownLatch(1);
+		Mockito.when(tradeStoreService.processTrades(Mockito.anyList())).thenAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return List.of(new TradeResultDTO("T1", 1, TradeStatus.ACCEPTED, null));
+		});
+		
+		tradeIngestionService.submitTrade(createTradeDto("T1"));
+		started.await();
+		tradeIngestionService.submitTrade(createTradeDto("T1"));
+		
+		TradeStoreBusyException ex=Assertions.assertThrows(TradeStoreBusyException.class, ()->tradeIngestionService.submitTrade(createTradeDto("T1")));
+		Assertions.assertEquals("TradeIngestionService.QUEUE_FULL", ex.getMessage());
+		release.countDown();
+	}
+	
+	/** Test case for a trade with invalid maturity date.
+	 * Trade should be rejected right away without being queued.
+	 */
+	@Test
+	void submitTradeTestInvalidMaturityDate() {
+		
+		startIngestion(1, 10);
+		TradeDTO tradeDto=createTradeDto("T1");
+		tradeDto.setMaturityDate(LocalDate.now().minusDays(1));
+		
+		BarclaysTradeStoreException ex=Assertions.assertThrows(BarclaysTradeStoreException.class, ()->tradeIngestionService.submitTrade(tradeDto));
+		Assertions.assertEquals("TradeStoreService.INVALID_MATURITY_DATE", ex.getMessage());
+		Assertions.assertEquals(0, tradeIngestionService.getQueuedCount());
+	}
+	
+	private void startIngestion(int workers, int queueCapacity) {
+		
+		tradeIngestionService=new TradeIngestionServiceImpl(workers, queueCapacity, 10, 100);
+		ReflectionTestUtils.setField(tradeIngestionService, "tradeStoreService", tradeStoreService);
+		ReflectionTestUtils.setField(tradeIngestionService, "tradeValidator", new TradeValidator(new TradeVersionIndex()));
+		tradeIngestionService.start();
+	}
+	
+	private TradeDTO createTradeDto(String tradeId) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(1);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setBookId("B1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+}
@@ -0,0 +1,59 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.barclays.utility.TradeLockManager;
+
+/** Unit tests for the striped lock manager used by the trade processors.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+class TradeLockManagerTests {
+	
+	/** Stripe count should be rounded up to a power of two and the same trade id
+	 * should always map to the same stripe.
+	 */
+	@Test
+	void stripeOfTestSameTradeId() {
+		
+		TradeLockManager tradeLockManager=new TradeLockManager(10);
+		
+		Assertions.assertEquals(16, tradeLockManager.getStripeCount());
+		Assertions.assertEquals(tradeLockManager.stripeOf("T1"), tradeLockManager.stripeOf(new String("T1")));
+	}
+	
+	/** A thread asking for a trade id that is already locked should wait and
+	 * be recorded as a contended acquisition of that stripe.
+	 * 
+	 * @throws InterruptedException -- thrown if the test thread is interrupted.
+	 */
+	@Test
+	void lockTestContentionRecorded() throws InterruptedException {
+		
+		TradeLockManager tradeLockManager=new TradeLockManager(16);
+		int stripe=tradeLockManager.stripeOf("T1");
+		CountDownLatch acquired=new CountDownLatch(1);
+		
+		Lock lock=tradeLockManager.lock("T1");
+		Thread other=new Thread(() -> {
+			tradeLockManager.lock("T1").unlock();
+			acquired.countDown();
+		});
+		other.start();
+		
+		Assertions.assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+		lock.unlock();
+		Assertions.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		
+		Assertions.assertEquals(2, tradeLockManager.getAcquisitions(stripe));
+		Assertions.assertEquals(1, tradeLockManager.getContentions(stripe));
+		Assertions.assertTrue(tradeLockManager.getWaitNanos(stripe)>0);
+	}
+}
@@ -0,0 +1,212 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeResultDTO;
+import com.barclays.dto.TradeStatus;
+import com.barclays.messaging.TradeLog;
+import com.barclays.messaging.TradeLogConsumer;
+import com.barclays.service.TradeStoreService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Unit tests for ingestion of trades from a partitioned message log.
+ * 
+ * Broker is replaced by InMemoryTradeLog and the trade store service is mocked, so
+ * that only partitioned consumption and offset commits are tested.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ * 
+ */
+class TradeLogConsumerTests {
+	
+	TradeStoreService tradeStoreService=Mockito.mock(TradeStoreService.class);
+	
+	ObjectMapper objectMapper=new ObjectMapper().findAndRegisterModules();
+	
+	InMemoryTradeLog tradeLog=new InMemoryTradeLog(4);
+	
+	TradeLogConsumer tradeLogConsumer=new TradeLogConsumer(10, 10);
+	
+	List<TradeDTO> processed=Collections.synchronizedList(new ArrayList<>());
+	
+	@AfterEach
+	void stopConsumer() throws InterruptedException {
+		tradeLogConsumer.stop();
+	}
+	
+	/** Test case for trades sent before the consumer starts. Versions of a trade should be
+	 * processed in the order sent, and every partition should commit its trades once.
+	 * 
+	 * @throws JsonProcessingException -- thrown if a trade can't be written as JSON.
+	 */
+	@Test
+	void consumeTestVersionsInOrderWithOneCommitPerBatch() throws JsonProcessingException {
+		
+		acceptAll();
+		int partition=send(createTradeDto("T1", 1));
+		send(createTradeDto("T1", 2));
+		send(createTradeDto("T1", 3));
+		int otherPartition=send(createTradeDto("T2", 1));
+		
+		startConsumer();
+		awaitConsumed();
+		
+		List<Integer> versions=processed.stream()
+				.filter(trade -> trade.getTradeId().equals("T1"))
+				.map(TradeDTO::getVersion)
+				.collect(Collectors.toList());
+		Assertions.assertEquals(List.of(1, 2, 3), versions);
+		Assertions.assertNotEquals(partition, otherPartition);
+		Assertions.assertEquals(3, tradeLog.getCommittedOffset(partition));
+		Assertions.assertEquals(1, tradeLog.getCommittedOffset(otherPartition));
+		Assertions.assertEquals(1, tradeLog.getCommitCount(partition));
+		Assertions.assertEquals(1, tradeLog.getCommitCount(otherPartition));
+	}
+	
+	/** Test case for a group of trades that can't be stored. Its offset shouldn't be
+	 * committed and the group should be processed again.
+	 * 
+	 * @throws JsonProcessingException -- thrown if a trade can't be written as JSON.
+	 */
+	@Test
+	void consumeTestFailedBatchRetried() throws JsonProcessingException {
+		
+		AtomicBoolean failed=new AtomicBoolean();
+		Mockito.when(tradeStoreService.processTrades(Mockito.anyList())).thenAnswer(invocation -> {
+			if (failed.compareAndSet(false, true))
+				throw new IllegalStateException("Database is down");
+			return accept(invocation.getArgument(0));
+		});
+		int partition=send(createTradeDto("T1", 1));
+		
+		startConsumer();
+		awaitConsumed();
+		
+		Mockito.verify(tradeStoreService, Mockito.times(2)).processTrades(Mockito.anyList());
+		Assertions.assertEquals(1, tradeLog.getCommittedOffset(partition));
+		Assertions.assertEquals(1, tradeLog.getCommitCount(partition));
+	}
+	
+	/** Test case for a record that isn't a trade. It should be skipped and committed
+	 * along with the trades around it.
+	 * 
+	 * @throws JsonProcessingException -- thrown if a trade can't be written as JSON.
+	 */
+	@Test
+	void consumeTestInvalidRecordSkipped() throws JsonProcessingException {
+		
+		acceptAll();
+		int partition=tradeLog.send("T1", "not a trade".getBytes(StandardCharsets.UTF_8));
+		send(createTradeDto("T1", 1));
+		
+		startConsumer();
+		awaitConsumed();
+		
+		Assertions.assertEquals(1, processed.size());
+		Assertions.assertEquals(2, tradeLog.getCommittedOffset(partition));
+	}
+	
+	/** Test case for a partition whose trades take long to store. Trades of other
+	 * partitions should be processed and committed meanwhile.
+	 * 
+	 * @throws JsonProcessingException -- thrown if a trade can't be written as JSON.
+	 * @throws InterruptedException -- thrown if the test thread is interrupted.
+	 */
+	@Test
+	void consumeTestPartitionsProcessedIndependently() throws JsonProcessingException, InterruptedException {
+		
+		String slowTradeId="T1";
+		String fastTradeId="T2";
+		for (int i=3; TradeLog.partitionOf(fastTradeId, 4)==TradeLog.partitionOf(slowTradeId, 4); i++)
+			fastTradeId="T"+i;
+		
+		CountDownLatch started=new CountDownLatch(1);
+		CountDownLatch release=new CountDownLatch(1);
+		Mockito.when(tradeStoreService.processTrades(Mockito.anyList())).thenAnswer(invocation -> {
+			List<TradeDTO> trades=invocation.getArgument(0);
+			if (trades.get(0).getTradeId().equals(slowTradeId)) {
+				started.countDown();
+				release.await();
+			}
+			return accept(trades);
+		});
+		
+		int slowPartition=send(createTradeDto(slowTradeId, 1));
+		startConsumer();
+		started.await();
+		int fastPartition=send(createTradeDto(fastTradeId, 1));
+		
+		Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			while (tradeLog.getCommittedOffset(fastPartition)<1)
+				Thread.sleep(10);
+		});
+		Assertions.assertEquals(0, tradeLog.getCommittedOffset(slowPartition));
+		
+		release.countDown();
+		awaitConsumed();
+		Assertions.assertEquals(1, tradeLog.getCommittedOffset(slowPartition));
+	}
+	
+	private void startConsumer() {
+		
+		ReflectionTestUtils.setField(tradeLogConsumer, "tradeLog", tradeLog);
+		ReflectionTestUtils.setField(tradeLogConsumer, "tradeStoreService", tradeStoreService);
+		ReflectionTestUtils.setField(tradeLogConsumer, "objectMapper", objectMapper);
+		tradeLogConsumer.start();
+	}
+	
+	private void awaitConsumed() {
+		Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			while (tradeLogConsumer.getLag()>0)
+				Thread.sleep(10);
+		});
+	}
+	
+	private void acceptAll() {
+		Mockito.when(tradeStoreService.processTrades(Mockito.anyList()))
+				.thenAnswer(invocation -> accept(invocation.getArgument(0)));
+	}
+	
+	private List<TradeResultDTO> accept(List<TradeDTO> trades) {
+		
+		processed.addAll(trades);
+		return trades.stream()
+				.map(trade -> new TradeResultDTO(trade.getTradeId(), trade.getVersion(), TradeStatus.ACCEPTED, null))
+				.collect(Collectors.toList());
+	}
+	
+	private int send(TradeDTO tradeDto) throws JsonProcessingException {
+		return tradeLog.send(tradeDto.getTradeId(), objectMapper.writeValueAsBytes(tradeDto));
+	}
+	
+	private TradeDTO createTradeDto(String tradeId, int version) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(version);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setBookId("B1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+}
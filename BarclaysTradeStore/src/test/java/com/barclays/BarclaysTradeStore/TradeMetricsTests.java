@@ -0,0 +1,105 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.LatencyDTO;
+import com.barclays.dto.TradeDTO;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.service.TradeStoreService;
+import com.barclays.utility.TradeMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/** Tests for the metrics recorded while processing trades.
+ * 
+ * Executed against the embedded test database so that the commit stage is recorded.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@SpringBootTest(properties={"BatchService.SLEEP_TIME=86400000"})
+@AutoConfigureTestDatabase
+class TradeMetricsTests {
+	
+	@Autowired
+	TradeStoreService tradeStoreService;
+	
+	@Autowired
+	TradeMetrics tradeMetrics;
+	
+	@Autowired
+	MeterRegistry meterRegistry;
+	
+	/** Every stage of an accepted trade should be timed, and accepted and rejected
+	 * trades should be counted by reason.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestStagesAndOutcomesRecorded() throws BarclaysTradeStoreException {
+		
+		tradeStoreService.processTrade(createTradeDto("M1", 2, LocalDate.now().plusYears(1)));
+		Assertions.assertThrows(BarclaysTradeStoreException.class, ()->tradeStoreService.processTrade(createTradeDto("M1", 1, LocalDate.now().plusYears(1))));
+		Assertions.assertThrows(BarclaysTradeStoreException.class, ()->tradeStoreService.processTrade(createTradeDto("M2", 1, LocalDate.now().minusDays(1))));
+		
+		List<LatencyDTO> latencies=tradeMetrics.getLatencies();
+		Set<String> stages=latencies.stream()
+				.filter(latency -> latency.getMethod().equals("processTrade"))
+				.map(LatencyDTO::getStage)
+				.collect(Collectors.toSet());
+		Assertions.assertEquals(Set.of(TradeMetrics.VALIDATION, TradeMetrics.LOCK_WAIT, TradeMetrics.VERSION_LOOKUP, 
+				TradeMetrics.SAVE, TradeMetrics.COMMIT), stages);
+		Assertions.assertTrue(latencies.get(0).getPercentiles().containsKey("0.99"));
+		
+		Assertions.assertEquals(1, outcomeCount("processTrade", "accepted", "none"));
+		Assertions.assertEquals(1, outcomeCount("processTrade", "rejected", "LOWER_VERSION_TRADE"));
+		Assertions.assertEquals(1, outcomeCount("processTrade", "rejected", "INVALID_MATURITY_DATE"));
+	}
+	
+	/** A group of trades that couldn't be processed should count every one of its trades
+	 * as failed, not the group as a single trade.
+	 */
+	@Test
+	void processTradesTestFailedGroupCounted() {
+		
+		TradeDTO incomplete=createTradeDto("M4", 1, null);
+		List<TradeDTO> trades=List.of(createTradeDto("M3", 1, LocalDate.now().plusYears(1)), incomplete, 
+				createTradeDto("M5", 1, LocalDate.now().plusYears(1)));
+		Assertions.assertThrows(RuntimeException.class, ()->tradeStoreService.processTrades(trades));
+		
+		Assertions.assertEquals(3, outcomeCount("processTrades", "failed", "none"));
+	}
+	
+	private double outcomeCount(String method, String outcome, String reason) {
+		return meterRegistry.get("trade.process.outcome")
+				.tag("method", method)
+				.tag("outcome", outcome)
+				.tag("reason", reason)
+				.counter()
+				.count();
+	}
+	
+	private TradeDTO createTradeDto(String tradeId, int version, LocalDate maturityDate) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(version);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setBookId("B1");
+		tradeDto.setMaturityDate(maturityDate);
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+}
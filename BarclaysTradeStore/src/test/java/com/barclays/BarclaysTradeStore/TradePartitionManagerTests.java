@@ -0,0 +1,124 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.barclays.dto.TradeVersion;
+import com.barclays.store.TradePartitionManager;
+
+/** Unit tests for maintenance of the trade table partitions.
+ * 
+ * Partitioning is MySQL only, so the JDBC template is mocked and the issued statements
+ * are verified instead.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@ExtendWith(MockitoExtension.class)
+class TradePartitionManagerTests {
+	
+	@Mock
+	JdbcTemplate jdbcTemplate;
+	
+	@InjectMocks
+	TradePartitionManager tradePartitionManager;
+	
+	@BeforeEach
+	void configure() {
+		ReflectionTestUtils.setField(tradePartitionManager, "monthsAhead", 2);
+		ReflectionTestUtils.setField(tradePartitionManager, "retentionMonths", 3);
+	}
+	
+	/** Months after the last monthly partition up to two months ahead should be split
+	 * off p_future in one statement. Nothing should be done once they exist.
+	 */
+	@Test
+	void addPartitionsTestMonthsAhead() {
+		
+		mockPartitions("p202610", "p_future");
+		
+		Assertions.assertEquals(2, tradePartitionManager.addPartitions(LocalDate.of(2026, 10, 17)));
+		Mockito.verify(jdbcTemplate).execute("alter table trade reorganize partition p_future into ("
+				+ "partition p202611 values less than ('2026-12-01'), "
+				+ "partition p202612 values less than ('2027-01-01'), "
+				+ "partition p_future values less than (maxvalue))");
+		
+		mockPartitions("p202610", "p202611", "p202612", "p_future");
+		Assertions.assertEquals(0, tradePartitionManager.addPartitions(LocalDate.of(2026, 10, 17)));
+	}
+	
+	/** Fully expired months older than the retention should be exchanged with an archive
+	 * table and dropped. A month still holding a trade that isn't expired should be kept.
+	 */
+	@Test
+	void archivePartitionsTestRetention() {
+		
+		mockPartitions("p202605", "p202606", "p202607", "p_future");
+		Mockito.when(jdbcTemplate.queryForObject("select count(*) from trade partition (p202605) where expired = 'N'", Integer.class)).thenReturn(0);
+		Mockito.when(jdbcTemplate.queryForObject("select count(*) from trade partition (p202606) where expired = 'N'", Integer.class)).thenReturn(1);
+		
+		Assertions.assertEquals(1, tradePartitionManager.archivePartitions(LocalDate.of(2026, 10, 17)));
+		Mockito.verify(jdbcTemplate).execute("alter table trade exchange partition p202605 with table trade_archive_202605");
+		Mockito.verify(jdbcTemplate).execute("alter table trade drop partition p202605");
+		Mockito.verify(jdbcTemplate, Mockito.never()).execute("alter table trade drop partition p202606");
+		Mockito.verify(jdbcTemplate, Mockito.never()).execute("alter table trade drop partition p202607");
+	}
+	
+	/** Month exchanged by a run that stopped before dropping the partition should be
+	 * finished by dropping the emptied partition, without exchanging the rows back.
+	 */
+	@Test
+	void archivePartitionsTestResumed() {
+		
+		mockPartitions("p202605", "p_future");
+		Mockito.when(jdbcTemplate.queryForObject("select count(*) from trade_archive_202605", Integer.class)).thenReturn(5);
+		
+		Assertions.assertEquals(1, tradePartitionManager.archivePartitions(LocalDate.of(2026, 10, 17)));
+		Mockito.verify(jdbcTemplate).execute("create table if not exists trade_archive_202605 like trade");
+		Mockito.verify(jdbcTemplate, Mockito.never()).execute("alter table trade exchange partition p202605 with table trade_archive_202605");
+		Mockito.verify(jdbcTemplate).execute("alter table trade drop partition p202605");
+	}
+	
+	/** Latest versions should be read from every monthly archive table, and only from them.
+	 */
+	@Test
+	void findLatestArchivedVersionsTestMonthlyTables() {
+		
+		TradeVersion tradeVersion=Mockito.mock(TradeVersion.class);
+		Mockito.when(jdbcTemplate.queryForList(Mockito.contains("information_schema.tables"), Mockito.eq(String.class)))
+				.thenReturn(List.of("trade_archive_202605", "trade_archive_old"));
+		Mockito.when(jdbcTemplate.query(Mockito.eq("select trade_id, max(version) from trade_archive_202605 group by trade_id"), 
+				Mockito.<RowMapper<TradeVersion>>any())).thenReturn(List.of(tradeVersion));
+		
+		Assertions.assertEquals(List.of(tradeVersion), tradePartitionManager.findLatestArchivedVersions());
+		Mockito.verify(jdbcTemplate, Mockito.never()).query(Mockito.contains("trade_archive_old"), Mockito.<RowMapper<TradeVersion>>any());
+	}
+	
+	/** Unpartitioned trade table should be reported instead of being reorganized.
+	 */
+	@Test
+	void addPartitionsTestNotPartitioned() {
+		
+		mockPartitions();
+		
+		Assertions.assertThrows(IllegalStateException.class, ()->tradePartitionManager.addPartitions(LocalDate.of(2026, 10, 17)));
+		Mockito.verify(jdbcTemplate, Mockito.never()).execute(Mockito.anyString());
+	}
+	
+	private void mockPartitions(String... names) {
+		Mockito.when(jdbcTemplate.queryForList(Mockito.anyString(), Mockito.eq(String.class))).thenReturn(List.of(names));
+	}
+}
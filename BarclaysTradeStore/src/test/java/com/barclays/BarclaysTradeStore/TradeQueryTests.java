@@ -0,0 +1,143 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.exception.TradeNotFoundException;
+import com.barclays.repository.TradeStoreRepository;
+import com.barclays.service.TradeQueryService;
+import com.barclays.service.TradeStoreService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/** Tests for reading trades from the store.
+ * 
+ * Executed against the embedded test database so that the queries are run for real.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@SpringBootTest(properties={"BatchService.SLEEP_TIME=86400000"})
+@AutoConfigureTestDatabase
+class TradeQueryTests {
+	
+	@Autowired
+	TradeQueryService tradeQueryService;
+	
+	@Autowired
+	TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired
+	TradeStoreService tradeStoreService;
+	
+	@Autowired
+	MeterRegistry meterRegistry;
+	
+	/** Latest version and every version of a trade should be found by trade id.
+	 * Unknown trade id should lead to a TradeNotFoundException.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for unknown trade ids.
+	 */
+	@Test
+	void getLatestTradeTestVersions() throws BarclaysTradeStoreException {
+		
+		tradeStoreRepository.saveAll(List.of(createTrade("Q1", 2, "QB0", Expired.N), createTrade("Q1", 1, "QB0", Expired.N)));
+		
+		Assertions.assertEquals(2, tradeQueryService.getLatestTrade("Q1").getVersion());
+		Assertions.assertEquals(List.of(1, 2), tradeQueryService.getTradeVersions("Q1").stream()
+				.map(Trade::getVersion)
+				.collect(Collectors.toList()));
+		
+		TradeNotFoundException ex=Assertions.assertThrows(TradeNotFoundException.class, ()->tradeQueryService.getLatestTrade("Q404"));
+		Assertions.assertEquals("TradeQueryService.TRADE_NOT_FOUND", ex.getMessage());
+	}
+	
+	/** Repeated look ups of a trade should be served by the cache, and processing a
+	 * higher version should replace the cached latest version once committed.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for invalid trades.
+	 */
+	@Test
+	void getLatestTradeTestCache() throws BarclaysTradeStoreException {
+		
+		tradeStoreRepository.save(createTrade("Q30", 1, "QB3", Expired.N));
+		double hits=cacheHits("trades.latest");
+		
+		Assertions.assertEquals(1, tradeQueryService.getLatestTrade("Q30").getVersion());
+		Assertions.assertEquals(1, tradeQueryService.getLatestTrade("Q30").getVersion());
+		Assertions.assertEquals(1, tradeQueryService.getTrade("Q30", 1).getVersion());
+		Assertions.assertEquals(hits+1, cacheHits("trades.latest"));
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId("Q30");
+		tradeDto.setVersion(2);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setBookId("QB3");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		tradeStoreService.processTrade(tradeDto);
+		
+		Assertions.assertEquals(2, tradeQueryService.getLatestTrade("Q30").getVersion());
+		Assertions.assertThrows(TradeNotFoundException.class, ()->tradeQueryService.getTrade("Q30", 3));
+	}
+	
+	/** Paging through the trades of a book should return every matching trade exactly
+	 * once, in id order, and respect the expired flag.
+	 */
+	@Test
+	void findTradesTestKeysetPages() {
+		
+		List<Trade> trades=new ArrayList<>();
+		for (int i=0; i<7; i++)
+			trades.add(createTrade("Q"+(10+i), 1, "QB1", i%2==0 ? Expired.N : Expired.Y));
+		trades.add(createTrade("Q20", 1, "QB2", Expired.N));
+		tradeStoreRepository.saveAll(trades);
+		
+		List<String> tradeIds=new ArrayList<>();
+		int afterId=0;
+		List<Trade> page;
+		do {
+			page=tradeQueryService.findTrades("QB1", null, null, afterId, 3);
+			for (Trade trade: page) {
+				Assertions.assertTrue(trade.getId()>afterId);
+				afterId=trade.getId();
+				tradeIds.add(trade.getTradeId());
+			}
+		} while (page.size()==3);
+		
+		Assertions.assertEquals(List.of("Q10", "Q11", "Q12", "Q13", "Q14", "Q15", "Q16"), tradeIds);
+		Assertions.assertEquals(3, tradeQueryService.findTrades("QB1", null, Expired.Y, 0, 10).size());
+		Assertions.assertEquals(1, tradeQueryService.findTrades("QB2", "CP-1", Expired.N, 0, 10).size());
+	}
+	
+	private double cacheHits(String cache) {
+		return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", "hit").functionCounter().count();
+	}
+	
+	private Trade createTrade(String tradeId, int version, String bookId, Expired expired) {
+		
+		Trade trade=new Trade();
+		trade.setTradeId(tradeId);
+		trade.setVersion(version);
+		trade.setCounterPartyId("CP-1");
+		trade.setBookId(bookId);
+		trade.setMaturityDate(LocalDate.now().plusYears(1));
+		trade.setCreatedDate(LocalDate.now());
+		trade.setExpired(expired);
+		return trade;
+	}
+}
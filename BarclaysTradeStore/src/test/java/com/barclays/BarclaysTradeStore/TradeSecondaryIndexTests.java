@@ -0,0 +1,143 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeCountDTO;
+import com.barclays.dto.TradeDTO;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.repository.TradeStoreRepository;
+import com.barclays.service.TradeQueryService;
+import com.barclays.service.TradeStoreBatchService;
+import com.barclays.service.TradeStoreService;
+import com.barclays.store.TradeSecondaryIndex;
+
+/** Tests for the book, counter party and maturity month indexes.
+ * 
+ * Counts should follow every trade saved by the trade processors and every trade
+ * expired by the expiry job, without reading the trade table again.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@SpringBootTest(properties={"BatchService.SLEEP_TIME=86400000"})
+@AutoConfigureTestDatabase
+class TradeSecondaryIndexTests {
+	
+	@Autowired
+	TradeStoreService tradeStoreService;
+	
+	@Autowired
+	TradeQueryService tradeQueryService;
+	
+	@Autowired
+	TradeStoreBatchService tradeStoreBatchService;
+	
+	@Autowired
+	TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired
+	TradeSecondaryIndex tradeSecondaryIndex;
+	
+	/** New trade ids should add to the counts while new versions replace the counted one,
+	 * an overwritten version moved to another book should leave the old one.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestIndexUpdated() throws BarclaysTradeStoreException {
+		
+		LocalDate maturityDate=LocalDate.now().plusYears(2);
+		tradeStoreService.processTrade(createTradeDto("IX1", 1, "IX-B1", maturityDate));
+		tradeStoreService.processTradeWithLessMemory(createTradeDto("IX1", 2, "IX-B1", maturityDate));
+		tradeStoreService.processTrades(List.of(createTradeDto("IX2", 1, "IX-B1", maturityDate), createTradeDto("IX3", 1, "IX-B2", maturityDate)));
+		assertCount(2, 0, tradeQueryService.getBookCount("IX-B1"));
+		
+		tradeStoreService.processTrade(createTradeDto("IX2", 1, "IX-B2", maturityDate));
+		assertCount(1, 0, tradeQueryService.getBookCount("IX-B1"));
+		assertCount(2, 0, tradeQueryService.getBookCount("IX-B2"));
+		assertCount(0, 0, tradeQueryService.getBookCount("IX-B3"));
+		Assertions.assertEquals(List.of("IX2", "IX3"), List.copyOf(tradeQueryService.getBookTradeIds("IX-B2", Expired.N)));
+		Assertions.assertEquals(List.of("IX1", "IX2", "IX3"), List.copyOf(tradeQueryService.getCounterPartyTradeIds("IX-CP1", null)));
+		
+		TradeCountDTO monthCount=tradeQueryService.getMaturityMonthCounts().get(YearMonth.from(maturityDate).toString());
+		Assertions.assertTrue(monthCount.getLive()>=3);
+	}
+	
+	/** An amended trade moved to another book should be counted once, in the book of its
+	 * latest version only. Removing the latest version should count the one before it again.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestAmendedTradeChangesBook() throws BarclaysTradeStoreException {
+		
+		LocalDate maturityDate=LocalDate.now().plusYears(3);
+		String[] bookIds={"IX-B5", "IX-B5", "IX-B6"};
+		for (int version=1; version<=bookIds.length; version++) {
+			TradeDTO tradeDto=createTradeDto("IX5", version, bookIds[version-1], maturityDate);
+			tradeDto.setCounterPartyId("IX-CP3");
+			tradeStoreService.processTrade(tradeDto);
+		}
+		assertCount(1, 0, tradeQueryService.getCounterPartyCount("IX-CP3"));
+		
+		assertCount(0, 0, tradeQueryService.getBookCount("IX-B5"));
+		assertCount(1, 0, tradeQueryService.getBookCount("IX-B6"));
+		Assertions.assertTrue(tradeQueryService.getBookTradeIds("IX-B5", null).isEmpty());
+		Assertions.assertEquals(List.of("IX5"), List.copyOf(tradeQueryService.getBookTradeIds("IX-B6", Expired.N)));
+		
+		tradeSecondaryIndex.remove(List.of(tradeStoreRepository.findOneByTradeIdAndVersion("IX5", 3).get().getId()));
+		assertCount(1, 0, tradeQueryService.getBookCount("IX-B5"));
+		assertCount(0, 0, tradeQueryService.getBookCount("IX-B6"));
+	}
+	
+	/** Trades expired by the expiry job should move from the live to the expired count.
+	 */
+	@Test
+	void expireMaturedTradesTestIndexUpdated() {
+		
+		Trade trade=new Trade();
+		trade.setTradeId("IX4");
+		trade.setVersion(1);
+		trade.setCounterPartyId("IX-CP2");
+		trade.setBookId("IX-B4");
+		trade.setMaturityDate(LocalDate.now().minusDays(1));
+		trade.setCreatedDate(LocalDate.now().minusDays(10));
+		trade.setExpired(Expired.N);
+		tradeSecondaryIndex.put(tradeStoreRepository.save(trade));
+		assertCount(1, 0, tradeQueryService.getBookCount("IX-B4"));
+		
+		tradeStoreBatchService.expireMaturedTrades();
+		assertCount(0, 1, tradeQueryService.getBookCount("IX-B4"));
+		assertCount(0, 1, tradeQueryService.getCounterPartyCount("IX-CP2"));
+		Assertions.assertEquals(List.of("IX4"), List.copyOf(tradeQueryService.getBookTradeIds("IX-B4", Expired.Y)));
+	}
+	
+	private static void assertCount(long live, long expired, TradeCountDTO count) {
+		Assertions.assertEquals(live, count.getLive());
+		Assertions.assertEquals(expired, count.getExpired());
+	}
+	
+	private static TradeDTO createTradeDto(String tradeId, int version, String bookId, LocalDate maturityDate) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(version);
+		tradeDto.setCounterPartyId("IX-CP1");
+		tradeDto.setBookId(bookId);
+		tradeDto.setMaturityDate(maturityDate);
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+}
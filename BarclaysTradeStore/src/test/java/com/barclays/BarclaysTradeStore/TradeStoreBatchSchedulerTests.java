@@ -0,0 +1,124 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.service.TradeStoreBatchScheduler;
+import com.barclays.service.TradeStoreBatchService;
+
+/** Unit tests for the scheduler of the expiry batch job.
+ * 
+ * Batch service is mocked so that only pausing, overlap protection and failure
+ * handling of the scheduler are tested.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@ExtendWith(MockitoExtension.class)
+class TradeStoreBatchSchedulerTests {
+	
+	@Mock
+	TradeStoreBatchService tradeStoreBatchService;
+	
+	@InjectMocks
+	TradeStoreBatchScheduler tradeStoreBatchScheduler;
+	
+	/** Scheduled runs should be skipped while paused and resume afterwards.
+	 * Runs triggered on demand should not be affected by pausing.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown when a run is already in progress.
+	 */
+	@Test
+	void runScheduledTestPaused() throws BarclaysTradeStoreException {
+		
+		Mockito.when(tradeStoreBatchService.expireMaturedTrades()).thenReturn(3);
+		
+		tradeStoreBatchScheduler.pause();
+		tradeStoreBatchScheduler.runScheduled();
+		Mockito.verifyNoInteractions(tradeStoreBatchService);
+		
+		Assertions.assertEquals(3, tradeStoreBatchScheduler.run());
+		
+		tradeStoreBatchScheduler.resume();
+		tradeStoreBatchScheduler.runScheduled();
+		Mockito.verify(tradeStoreBatchService, Mockito.times(2)).expireMaturedTrades();
+		Assertions.assertEquals(3, tradeStoreBatchScheduler.getLastRunExpiredTrades());
+	}
+	
+	/** A run requested while another one is in progress should be rejected with a
+	 * BarclaysTradeStoreException having "BatchService.ALREADY_RUNNING" message.
+	 * 
+	 * @throws InterruptedException -- thrown if the test thread is interrupted.
+	 */
+	@Test
+	void runTestAlreadyRunning() throws InterruptedException {
+		
+		CountDownLatch started=new CountDownLatch(1);
+		CountDownLatch release=new CountDownLatch(1);
+		Mockito.when(tradeStoreBatchService.expireMaturedTrades()).thenAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return 1;
+		});
+		
+		Thread scheduled=new Thread(tradeStoreBatchScheduler::runScheduled);
+		scheduled.start();
+		Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+		
+		BarclaysTradeStoreException ex=Assertions.assertThrows(BarclaysTradeStoreException.class, ()->tradeStoreBatchScheduler.run());
+		Assertions.assertEquals("BatchService.ALREADY_RUNNING", ex.getMessage());
+		
+		release.countDown();
+		scheduled.join(5000);
+		Assertions.assertFalse(tradeStoreBatchScheduler.isRunning());
+	}
+	
+	/** A failing scheduled run should not propagate its exception to the task scheduler
+	 * and should allow the next run to start.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown when a run is already in progress.
+	 */
+	@Test
+	void runScheduledTestFailure() throws BarclaysTradeStoreException {
+		
+		Mockito.when(tradeStoreBatchService.expireMaturedTrades())
+				.thenThrow(new IllegalStateException("DB unavailable"))
+				.thenReturn(2);
+		
+		Assertions.assertDoesNotThrow(tradeStoreBatchScheduler::runScheduled);
+		Assertions.assertEquals(2, tradeStoreBatchScheduler.run());
+	}
+	
+	/** Scheduled tasks should run on a pool of TaskScheduler.POOL_SIZE threads, so that
+	 * a long expiry run doesn't hold up the flushes scheduled next to it.
+	 */
+	@Test
+	void configureTasksTestSchedulerPool() {
+		
+		MockEnvironment environment=new MockEnvironment().withProperty("TaskScheduler.POOL_SIZE", "3");
+		ReflectionTestUtils.setField(tradeStoreBatchScheduler, "environment", environment);
+		ScheduledTaskRegistrar taskRegistrar=new ScheduledTaskRegistrar();
+		
+		tradeStoreBatchScheduler.configureTasks(taskRegistrar);
+		try {
+			ThreadPoolTaskScheduler taskScheduler=(ThreadPoolTaskScheduler)taskRegistrar.getScheduler();
+			Assertions.assertEquals(3, taskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize());
+		} finally {
+			tradeStoreBatchScheduler.shutdown();
+		}
+	}
+}
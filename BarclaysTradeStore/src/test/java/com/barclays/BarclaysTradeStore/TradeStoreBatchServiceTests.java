@@ -0,0 +1,160 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.repository.TradeStoreRepository;
+import com.barclays.service.TradeStoreBatchService;
+import com.barclays.service.TradeStoreService;
+import com.barclays.store.TradeSecondaryIndex;
+
+/** Tests for the batch service that marks matured trades as expired.
+ * 
+ * Executed against the embedded test database since the expiry is done by
+ * UPDATE statements and can't be checked with a mocked repository.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@SpringBootTest(properties={"BatchService.SLEEP_TIME=86400000", "BatchService.CHUNK_SIZE=2"})
+@AutoConfigureTestDatabase
+class TradeStoreBatchServiceTests {
+	
+	@Autowired
+	TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired
+	TradeStoreBatchService tradeStoreBatchService;
+	
+	@Autowired
+	TradeStoreService tradeStoreService;
+	
+	@Autowired
+	TradeSecondaryIndex tradeSecondaryIndex;
+	
+	/** Trades are saved with past maturity dates directly, which trade processors never
+	 * accept. Previous runs are forgotten so that every maturity date is looked at.
+	 */
+	@BeforeEach
+	void forgetPreviousRuns() {
+		ReflectionTestUtils.setField((Object)AopTestUtils.getTargetObject(tradeStoreBatchService), "expiredBefore", LocalDate.of(1000, 1, 1));
+	}
+	
+	/** Test case for matured trades spread over several chunks.
+	 * Every matured trade should be marked as expired and counted, while trades
+	 * maturing today or later should be left untouched.
+	 */
+	@Test
+	void expireMaturedTradesTestMultipleChunks() {
+		
+		tradeStoreRepository.deleteAll();
+		for (int i=1; i<=5; i++)
+			tradeStoreRepository.save(createTrade("M"+i, LocalDate.now().minusDays(i)));
+		tradeStoreRepository.save(createTrade("L1", LocalDate.now()));
+		tradeStoreRepository.save(createTrade("L2", LocalDate.now().plusDays(1)));
+		
+		Assertions.assertEquals(5, tradeStoreBatchService.expireMaturedTrades());
+		Assertions.assertEquals(0, tradeStoreBatchService.expireMaturedTrades());
+		
+		for (Trade trade: tradeStoreRepository.findAll())
+			Assertions.assertEquals(trade.getTradeId().startsWith("M") ? Expired.Y : Expired.N, trade.getExpired());
+	}
+	
+	/** Test case for a run following another one.
+	 * Only trades maturing from the day before the previous run should be looked at.
+	 */
+	@Test
+	void expireMaturedTradesTestSincePreviousRun() {
+		
+		tradeStoreRepository.deleteAll();
+		Assertions.assertEquals(0, tradeStoreBatchService.expireMaturedTrades());
+		
+		tradeStoreRepository.save(createTrade("M1", LocalDate.now().minusDays(1)));
+		tradeStoreRepository.save(createTrade("M2", LocalDate.now().minusDays(2)));
+		
+		Assertions.assertEquals(1, tradeStoreBatchService.expireMaturedTrades());
+		for (Trade trade: tradeStoreRepository.findAll())
+			Assertions.assertEquals(trade.getTradeId().equals("M1") ? Expired.Y : Expired.N, trade.getExpired());
+	}
+	
+	/** Test case for the reconciliation run.
+	 * Trades written to the table after the previous run with a maturity date long past,
+	 * which trade processors never accept, should be expired by it.
+	 */
+	@Test
+	void reconcileMaturedTradesTestEveryMaturityDate() {
+		
+		tradeStoreRepository.deleteAll();
+		Assertions.assertEquals(0, tradeStoreBatchService.expireMaturedTrades());
+		
+		tradeStoreRepository.save(createTrade("M1", LocalDate.now().minusYears(2)));
+		tradeStoreRepository.save(createTrade("L1", LocalDate.now()));
+		Assertions.assertEquals(0, tradeStoreBatchService.expireMaturedTrades());
+		
+		Assertions.assertEquals(1, tradeStoreBatchService.reconcileMaturedTrades());
+		for (Trade trade: tradeStoreRepository.findAll())
+			Assertions.assertEquals(trade.getTradeId().equals("M1") ? Expired.Y : Expired.N, trade.getExpired());
+	}
+	
+	/** Test case for the day boundary run.
+	 * Only accepted trades maturing before the given day should be expired, without
+	 * looking at the table, and each of them only once.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown when a trade is rejected.
+	 */
+	@Test
+	void expireMaturedTradesTestDayBoundary() throws BarclaysTradeStoreException {
+		
+		tradeStoreRepository.deleteAll();
+		tradeSecondaryIndex.reload();
+		LocalDate today=LocalDate.now();
+		tradeStoreService.processTrade(createTradeDto("D1", today));
+		tradeStoreService.processTrade(createTradeDto("D2", today.plusDays(1)));
+		
+		Assertions.assertEquals(0, tradeStoreBatchService.expireMaturedTrades(today));
+		Assertions.assertEquals(1, tradeStoreBatchService.expireMaturedTrades(today.plusDays(1)));
+		Assertions.assertEquals(0, tradeStoreBatchService.expireMaturedTrades(today.plusDays(1)));
+		
+		for (Trade trade: tradeStoreRepository.findAll())
+			Assertions.assertEquals(trade.getTradeId().equals("D1") ? Expired.Y : Expired.N, trade.getExpired());
+	}
+	
+	private TradeDTO createTradeDto(String tradeId, LocalDate maturityDate) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(1);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setBookId("B1");
+		tradeDto.setMaturityDate(maturityDate);
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+	
+	private Trade createTrade(String tradeId, LocalDate maturityDate) {
+		
+		Trade trade=new Trade();
+		trade.setTradeId(tradeId);
+		trade.setVersion(1);
+		trade.setCounterPartyId("CP-1");
+		trade.setBookId("B1");
+		trade.setMaturityDate(maturityDate);
+		trade.setCreatedDate(LocalDate.now());
+		trade.setExpired(Expired.N);
+		return trade;
+	}
+}
@@ -0,0 +1,214 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.barclays.BarclaysTradeStoreApplication;
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.service.TradeStoreService;
+
+/** JMH benchmark comparing processTrade and processTradeWithLessMemory of TradeStoreService.
+ * 
+ * Every fork starts the application against an embedded H2 database, with trades stored
+ * either in the database or by the off-heap store engine, and feeds trades to one of the
+ * two methods. Trade ids cycle over a fixed number of keys and every pass over
+ * the keys raises the version until versionsPerTrade is reached, after which the latest
+ * version keeps being replaced. Every trade fed has a counter party of its own, so that
+ * none of them is skipped as a duplicate of the stored version.
+ * 
+ * processTradeDuplicate measures the other path, replaying trades that are already stored.
+ * 
+ * Throughput, latency percentiles (sample time) and allocation rate (gc profiler) are
+ * reported for 1 and 4 threads. Results are also written to target/jmh-*.json.
+ * 
+ * Tagged as benchmark so that it is excluded from the regular test run. Execute with
+ * mvn test -Dgroups=benchmark -DexcludedGroups=none -Dtest=TradeStoreServiceBenchmark
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=4, time=2)
+@Measurement(iterations=3, time=2)
+@Fork(1)
+public class TradeStoreServiceBenchmark {
+	
+	private static final int[] THREADS={1, 4};
+	private static final int MAX_THREADS=4;
+	
+	@Param({"1", "10"})
+	public int versionsPerTrade;
+	
+	@Param({"100", "10000"})
+	public int tradeIds;
+	
+	@Param({"jpa", "offHeap"})
+	public String engine;
+	
+	private ConfigurableApplicationContext context;
+	private TradeStoreService tradeStoreService;
+	private LocalDate maturityDate;
+	
+	/** Runs the benchmark once for every thread count.
+	 * 
+	 * @throws RunnerException -- thrown when JMH fails to run the benchmark.
+	 */
+	@Test
+	void compareStrategies() throws RunnerException {
+		
+		for (int threads: THREADS) {
+			Options options=new OptionsBuilder()
+					.include(TradeStoreServiceBenchmark.class.getName()+"\\.process")
+					.threads(threads)
+					.addProfiler(GCProfiler.class)
+					.resultFormat(ResultFormatType.JSON)
+					.result("target/jmh-"+threads+"-threads.json")
+					.build();
+			new Runner(options).run();
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void startStore() {
+		
+		context=new SpringApplicationBuilder(BarclaysTradeStoreApplication.class)
+				.web(WebApplicationType.NONE)
+				.run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+						"--spring.datasource.username=sa",
+						"--spring.datasource.password=",
+						"--BatchService.SLEEP_TIME=86400000",
+						"--TradeStore.ENGINE="+engine,
+						"--TradeStore.SNAPSHOT_PATH=target/benchmark.snapshot",
+						"--logging.level.root=WARN");
+		tradeStoreService=context.getBean(TradeStoreService.class);
+		maturityDate=LocalDate.now().plusYears(1);
+	}
+	
+	@TearDown(Level.Trial)
+	public void stopStore() {
+		context.close();
+	}
+	
+	@Benchmark
+	public Object processTrade(TradeSequence sequence) {
+		
+		try {
+			return tradeStoreService.processTrade(sequence.next(this));
+		} catch (BarclaysTradeStoreException exception) {
+			return exception;
+		}
+	}
+	
+	@Benchmark
+	public Object processTradeWithLessMemory(TradeSequence sequence) {
+		
+		try {
+			return tradeStoreService.processTradeWithLessMemory(sequence.next(this));
+		} catch (BarclaysTradeStoreException exception) {
+			return exception;
+		}
+	}
+	
+	@Benchmark
+	public Object processTradeDuplicate(DuplicateSequence sequence) {
+		
+		try {
+			return tradeStoreService.processTrade(sequence.next());
+		} catch (BarclaysTradeStoreException exception) {
+			return exception;
+		}
+	}
+	
+	/** Trades fed to the store by one benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class TradeSequence {
+		
+		private static final AtomicInteger THREAD_NUMBERS=new AtomicInteger();
+		
+		private final int thread=THREAD_NUMBERS.getAndIncrement()%MAX_THREADS;
+		private long count;
+		
+		TradeDTO next(TradeStoreServiceBenchmark benchmark) {
+			
+			long pass=count/benchmark.tradeIds;
+			TradeDTO tradeDto=new TradeDTO();
+			tradeDto.setTradeId("T"+(count%benchmark.tradeIds));
+			tradeDto.setVersion((int)Math.min(pass+1, benchmark.versionsPerTrade));
+			// Unique across threads and within the 10 characters of the column
+			tradeDto.setCounterPartyId("C"+Long.toString(count*MAX_THREADS+thread, Character.MAX_RADIX));
+			tradeDto.setBookId("B1");
+			tradeDto.setMaturityDate(benchmark.maturityDate);
+			tradeDto.setCreatedDate(LocalDate.now());
+			tradeDto.setExpired(Expired.N);
+			count++;
+			return tradeDto;
+		}
+	}
+	
+	/** Trades already stored, fed to the store again by one benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class DuplicateSequence {
+		
+		private TradeDTO[] trades;
+		private int count;
+		
+		@Setup(Level.Trial)
+		public void storeTrades(TradeStoreServiceBenchmark benchmark) throws BarclaysTradeStoreException {
+			
+			trades=new TradeDTO[benchmark.tradeIds];
+			for (int i=0; i<trades.length; i++) {
+				TradeDTO tradeDto=new TradeDTO();
+				tradeDto.setTradeId("D"+i);
+				tradeDto.setVersion(1);
+				tradeDto.setCounterPartyId("CP-1");
+				tradeDto.setBookId("B1");
+				tradeDto.setMaturityDate(benchmark.maturityDate);
+				tradeDto.setCreatedDate(LocalDate.now());
+				tradeDto.setExpired(Expired.N);
+				benchmark.tradeStoreService.processTrade(tradeDto);
+				trades[i]=tradeDto;
+			}
+		}
+		
+		TradeDTO next() {
+			
+			TradeDTO tradeDto=trades[count];
+			count=(count+1)%trades.length;
+			return tradeDto;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.service.TradeStoreService;
+import com.barclays.service.TradeStrategyRegistry;
+import com.barclays.store.TradeVersionIndex;
+
+/** Unit tests for selection of the trade processing strategy.
+ * 
+ * Trade store service is mocked so that only the choice of method is tested.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@ExtendWith(MockitoExtension.class)
+class TradeStrategyRegistryTests {
+	
+	@Mock
+	TradeStoreService tradeStoreService;
+	
+	@Spy
+	TradeVersionIndex tradeVersionIndex;
+	
+	@InjectMocks
+	TradeStrategyRegistry tradeStrategyRegistry;
+	
+	@BeforeEach
+	void registerStrategies() {
+		ReflectionTestUtils.setField(tradeStrategyRegistry, "defaultStrategy", TradeStrategyRegistry.IN_MEMORY);
+		ReflectionTestUtils.setField(tradeStrategyRegistry, "adaptiveVersionThreshold", 2);
+		tradeStrategyRegistry.registerStrategies();
+	}
+	
+	/** Default strategy should be used when a request doesn't pick one, and the
+	 * requested one otherwise.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestRequestedStrategy() throws BarclaysTradeStoreException {
+		
+		TradeDTO tradeDto=createTradeDto("T1", 1);
+		
+		tradeStrategyRegistry.processTrade(tradeDto, null);
+		Mockito.verify(tradeStoreService).processTrade(tradeDto);
+		
+		tradeStrategyRegistry.processTrade(tradeDto, TradeStrategyRegistry.LESS_MEMORY);
+		Mockito.verify(tradeStoreService).processTradeWithLessMemory(tradeDto);
+	}
+	
+	/** Adaptive strategy should load all versions only while a trade id has few versions.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestAdaptive() throws BarclaysTradeStoreException {
+		
+		tradeVersionIndex.record("T1", 2);
+		tradeVersionIndex.record("T2", 3);
+		TradeDTO fewVersions=createTradeDto("T1", 3);
+		TradeDTO manyVersions=createTradeDto("T2", 4);
+		
+		tradeStrategyRegistry.processTrade(fewVersions, TradeStrategyRegistry.ADAPTIVE);
+		tradeStrategyRegistry.processTrade(manyVersions, TradeStrategyRegistry.ADAPTIVE);
+		
+		Mockito.verify(tradeStoreService).processTrade(fewVersions);
+		Mockito.verify(tradeStoreService).processTradeWithLessMemory(manyVersions);
+	}
+	
+	/** Test case for an unknown strategy. Request should be rejected with a
+	 * BarclaysTradeStoreException having "TradeStoreService.UNKNOWN_STRATEGY" message.
+	 */
+	@Test
+	void processTradeTestUnknownStrategy() {
+		
+		BarclaysTradeStoreException ex=Assertions.assertThrows(BarclaysTradeStoreException.class, 
+				()->tradeStrategyRegistry.processTrade(createTradeDto("T1", 1), "fastest"));
+		Assertions.assertEquals("TradeStoreService.UNKNOWN_STRATEGY", ex.getMessage());
+		Mockito.verifyNoInteractions(tradeStoreService);
+	}
+	
+	private TradeDTO createTradeDto(String tradeId, int version) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(version);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setBookId("B1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+}
@@ -0,0 +1,147 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeValidationResult;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.store.TradeVersionIndex;
+import com.barclays.utility.TradeValidator;
+
+/** JMH benchmark of the validation done by processTrade before it takes the lock of a trade.
+ * 
+ * exceptionPath validates the way processTrade used to, reading the clock for every check
+ * and throwing a new BarclaysTradeStoreException for every rejection. resultCodePath uses
+ * TradeValidator and the preallocated exceptions of TradeValidationResult. Both also check
+ * the maturity date once more, like copyTrade does.
+ * 
+ * Trades are built up front, so that only validation is measured. outcome picks whether
+ * they are valid, have matured or have a lower version than the one in TradeVersionIndex.
+ * 
+ * Bytes allocated per trade are reported by the gc profiler as gc.alloc.rate.norm.
+ * 
+ * Tagged as benchmark so that it is excluded from the regular test run. Execute with
+ * mvn test -Dgroups=benchmark -DexcludedGroups=none -Dtest=TradeValidationBenchmark
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=4, time=2)
+@Measurement(iterations=3, time=2)
+@Fork(1)
+public class TradeValidationBenchmark {
+	
+	private static final int TRADES=1024;
+	
+	@Param({"valid", "matured", "lowerVersion"})
+	public String outcome;
+	
+	private TradeVersionIndex tradeVersionIndex;
+	private TradeValidator tradeValidator;
+	private TradeDTO[] trades;
+	private int next;
+	
+	/** Runs the benchmark and reports allocation per trade.
+	 * 
+	 * @throws RunnerException -- thrown when JMH fails to run the benchmark.
+	 */
+	@Test
+	void compareValidation() throws RunnerException {
+		
+		Options options=new OptionsBuilder()
+				.include(TradeValidationBenchmark.class.getName()+"\\.")
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result("target/jmh-validation.json")
+				.build();
+		new Runner(options).run();
+	}
+	
+	@Setup(Level.Trial)
+	public void createTrades() {
+		
+		tradeVersionIndex=new TradeVersionIndex();
+		tradeValidator=new TradeValidator(tradeVersionIndex);
+		trades=new TradeDTO[TRADES];
+		for (int i=0; i<TRADES; i++) {
+			TradeDTO tradeDto=new TradeDTO();
+			tradeDto.setTradeId("T"+i);
+			tradeDto.setVersion(1);
+			tradeDto.setCounterPartyId("CP-1");
+			tradeDto.setBookId("B1");
+			tradeDto.setMaturityDate(outcome.equals("matured") ? LocalDate.now().minusDays(1) : LocalDate.now().plusYears(1));
+			tradeDto.setCreatedDate(LocalDate.now());
+			tradeDto.setExpired(Expired.N);
+			if (outcome.equals("lowerVersion"))
+				tradeVersionIndex.record(tradeDto.getTradeId(), 2);
+			trades[i]=tradeDto;
+		}
+	}
+	
+	@Benchmark
+	public Object exceptionPath() {
+		
+		TradeDTO receivedTrade=nextTrade();
+		try {
+			if (receivedTrade.getMaturityDate().isBefore(LocalDate.now()))
+				throw new BarclaysTradeStoreException("TradeStoreService.INVALID_MATURITY_DATE");
+			if (tradeVersionIndex.isLowerVersion(receivedTrade.getTradeId(), receivedTrade.getVersion()))
+				throw new BarclaysTradeStoreException("TradeStoreService.LOWER_VERSION_TRADE");
+			long contentHash=TradeVersionIndex.contentHash(receivedTrade);
+			if (tradeVersionIndex.isDuplicate(receivedTrade.getTradeId(), receivedTrade.getVersion(), contentHash))
+				return null;
+			return receivedTrade.getMaturityDate().isBefore(LocalDate.now());
+		} catch (BarclaysTradeStoreException exception) {
+			return exception;
+		}
+	}
+	
+	@Benchmark
+	public Object resultCodePath() {
+		
+		TradeDTO receivedTrade=nextTrade();
+		try {
+			long contentHash=TradeVersionIndex.contentHash(receivedTrade);
+			TradeValidationResult validation=tradeValidator.validate(receivedTrade, contentHash);
+			if (validation.isRejected())
+				throw validation.getException();
+			if (validation==TradeValidationResult.DUPLICATE)
+				return null;
+			return receivedTrade.getMaturityDate().isBefore(tradeValidator.today());
+		} catch (BarclaysTradeStoreException exception) {
+			return exception;
+		}
+	}
+	
+	private TradeDTO nextTrade() {
+		return trades[next++ & (TRADES-1)];
+	}
+}
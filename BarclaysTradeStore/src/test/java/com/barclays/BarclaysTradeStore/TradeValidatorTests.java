@@ -0,0 +1,92 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.dto.TradeValidationResult;
+import com.barclays.store.TradeVersionIndex;
+import com.barclays.utility.TradeValidator;
+
+/** Unit tests for validation of trades without the DB.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+class TradeValidatorTests {
+	
+	TradeVersionIndex tradeVersionIndex=new TradeVersionIndex();
+	
+	TradeValidator tradeValidator=new TradeValidator(tradeVersionIndex);
+	
+	/** Cached date should be today's date.
+	 */
+	@Test
+	void todayTestMatchesClock() {
+		Assertions.assertEquals(LocalDate.now(), tradeValidator.today());
+	}
+	
+	/** Test case for a trade of every outcome. Result should be the matching code, and
+	 * the exception of a rejection should carry its message and no stack trace.
+	 */
+	@Test
+	void validateTestResultCodes() {
+		
+		TradeDTO tradeDto=createTradeDto("T1", 2);
+		long contentHash=TradeVersionIndex.contentHash(tradeDto);
+		Assertions.assertEquals(TradeValidationResult.VALID, tradeValidator.validate(tradeDto, contentHash));
+		
+		tradeVersionIndex.record("T1", 2, contentHash);
+		Assertions.assertEquals(TradeValidationResult.DUPLICATE, tradeValidator.validate(tradeDto, contentHash));
+		
+		tradeVersionIndex.record("T1", 3);
+		TradeValidationResult validation=tradeValidator.validate(tradeDto, contentHash);
+		Assertions.assertEquals(TradeValidationResult.LOWER_VERSION_TRADE, validation);
+		Assertions.assertEquals("TradeStoreService.LOWER_VERSION_TRADE", validation.getException().getMessage());
+		Assertions.assertEquals(0, validation.getException().getStackTrace().length);
+		
+		tradeDto.setMaturityDate(LocalDate.now().minusDays(1));
+		Assertions.assertEquals(TradeValidationResult.INVALID_MATURITY_DATE, tradeValidator.validate(tradeDto, contentHash));
+	}
+	
+	/** Test case for a trade submitted for processing later. Trade without a trade id
+	 * or maturity date should be rejected, and the version shouldn't be checked.
+	 * Different rejected trades should get the same exception, without a stack trace.
+	 */
+	@Test
+	void validateRequestTestMissingFields() {
+		
+		TradeDTO tradeDto=createTradeDto("T1", 1);
+		tradeVersionIndex.record("T1", 2);
+		Assertions.assertEquals(TradeValidationResult.VALID, tradeValidator.validateRequest(tradeDto));
+		
+		TradeDTO missingMaturityDate=createTradeDto("T2", 1);
+		missingMaturityDate.setMaturityDate(null);
+		TradeDTO missingTradeId=createTradeDto(null, 1);
+		TradeValidationResult first=tradeValidator.validateRequest(missingMaturityDate);
+		TradeValidationResult second=tradeValidator.validateRequest(missingTradeId);
+		Assertions.assertEquals(TradeValidationResult.INVALID_TRADE, first);
+		Assertions.assertEquals(TradeValidationResult.INVALID_TRADE, second);
+		
+		Assertions.assertSame(first.getException(), second.getException());
+		Assertions.assertEquals("TradeIngestionService.INVALID_TRADE", first.getException().getMessage());
+		Assertions.assertEquals(0, first.getException().getStackTrace().length);
+	}
+	
+	private TradeDTO createTradeDto(String tradeId, int version) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(version);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setBookId("B1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+}
@@ -0,0 +1,221 @@
+package com.barclays.BarclaysTradeStore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.barclays.dto.AcceptedTradeDTO;
+import com.barclays.dto.Expired;
+import com.barclays.dto.TradeDTO;
+import com.barclays.entity.Trade;
+import com.barclays.exception.BarclaysTradeStoreException;
+import com.barclays.repository.TradeStoreRepository;
+import com.barclays.service.TradeStoreService;
+import com.barclays.service.TradeStrategyRegistry;
+import com.barclays.service.TradeWriteBehindService;
+import com.barclays.store.TradeWriteAheadLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Tests for the write-behind mode and its write-ahead log.
+ * 
+ * Executed against the embedded test database with scheduled flushes turned off,
+ * so that trades stay in the log until flushed by the test.
+ * 
+ * 
+ * @author Shashank Singh (shashank9830@gmail.com)
+ *
+ */
+@SpringBootTest(properties={"TradeWriteBehind.ENABLED=true", "TradeStoreService.STRATEGY=writeBehind", 
+		"TradeWriteBehind.FLUSH_INTERVAL=86400000", "BatchService.SLEEP_TIME=86400000"})
+@AutoConfigureTestDatabase
+class TradeWriteBehindTests {
+	
+	@Autowired
+	TradeStrategyRegistry tradeStrategyRegistry;
+	
+	@Autowired
+	TradeWriteBehindService tradeWriteBehindService;
+	
+	@Autowired
+	TradeStoreRepository tradeStoreRepository;
+	
+	@Autowired
+	TradeStoreService tradeStoreService;
+	
+	@Autowired
+	ObjectMapper objectMapper;
+	
+	static Path deadLetterPath;
+	
+	@DynamicPropertySource
+	static void logPath(DynamicPropertyRegistry registry) throws IOException {
+		Path directory=Files.createTempDirectory("trade-wal");
+		directory.toFile().deleteOnExit();
+		deadLetterPath=directory.resolve("trade-wal-rejected.log");
+		registry.add("TradeWriteBehind.LOG_PATH", () -> directory.resolve("trade-wal.log").toString());
+		registry.add("TradeWriteBehind.DEAD_LETTER_PATH", () -> deadLetterPath.toString());
+	}
+	
+	/** Test case for trades received in write-behind mode. Trades should be acknowledged
+	 * before they are written, lower versions of acknowledged trades should be rejected,
+	 * and every acknowledged trade should be in the database after a flush.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestWrittenOnFlush() throws BarclaysTradeStoreException {
+		
+		tradeStrategyRegistry.processTrade(createTradeDto("W1", 1), null);
+		tradeStrategyRegistry.processTrade(createTradeDto("W1", 2), null);
+		Assertions.assertTrue(tradeStoreRepository.findByTradeId("W1").isEmpty());
+		Assertions.assertTrue(tradeWriteBehindService.getPendingBytes()>0);
+		
+		BarclaysTradeStoreException ex=Assertions.assertThrows(BarclaysTradeStoreException.class, 
+				()->tradeStrategyRegistry.processTrade(createTradeDto("W1", 1), null));
+		Assertions.assertEquals("TradeStoreService.LOWER_VERSION_TRADE", ex.getMessage());
+		
+		tradeWriteBehindService.flush();
+		Assertions.assertEquals(2, tradeStoreRepository.findByTradeId("W1").size());
+		Assertions.assertEquals(0, tradeWriteBehindService.getPendingBytes());
+	}
+	
+	/** Test case for a trade received again in write-behind mode after it was written.
+	 * Trade should be reported as a duplicate and left out of the log.
+	 * 
+	 * @throws BarclaysTradeStoreException -- thrown for bad requests.
+	 */
+	@Test
+	void processTradeTestDuplicateNotAppended() throws BarclaysTradeStoreException {
+		
+		Assertions.assertNotNull(tradeWriteBehindService.processTrade(createTradeDto("W4", 1)));
+		tradeWriteBehindService.flush();
+		Assertions.assertEquals(0, tradeWriteBehindService.getPendingBytes());
+		
+		Assertions.assertNull(tradeWriteBehindService.processTrade(createTradeDto("W4", 1)));
+		Assertions.assertEquals(0, tradeWriteBehindService.getPendingBytes());
+		Assertions.assertEquals(1, tradeStoreRepository.findByTradeId("W4").size());
+	}
+	
+	/** Test case for acknowledged trades written on a later day. A trade that matured after
+	 * it was accepted should still be stored, and a trade rejected when written should be
+	 * kept in the dead-letter file instead of being dropped.
+	 * 
+	 * @throws Exception -- thrown for bad requests or when the log can't be used.
+	 */
+	@Test
+	void flushTestAcceptedOnEarlierDay() throws Exception {
+		
+		TradeWriteAheadLog writeAheadLog=(TradeWriteAheadLog)ReflectionTestUtils.getField(tradeWriteBehindService, "writeAheadLog");
+		LocalDate yesterday=LocalDate.now().minusDays(1);
+		TradeDTO matured=createTradeDto("W2", 1);
+		matured.setMaturityDate(yesterday);
+		Assertions.assertTrue(writeAheadLog.append(objectMapper.writeValueAsBytes(new AcceptedTradeDTO(matured, yesterday))));
+		
+		tradeStoreService.processTrade(createTradeDto("W3", 2));
+		Assertions.assertTrue(writeAheadLog.append(objectMapper.writeValueAsBytes(new AcceptedTradeDTO(createTradeDto("W3", 1), LocalDate.now()))));
+		
+		tradeWriteBehindService.flush();
+		List<Trade> trades=tradeStoreRepository.findByTradeId("W2");
+		Assertions.assertEquals(1, trades.size());
+		Assertions.assertEquals(Expired.Y, trades.get(0).getExpired());
+		Assertions.assertEquals(0, tradeWriteBehindService.getPendingBytes());
+		
+		List<String> deadLetters=Files.readAllLines(deadLetterPath);
+		Assertions.assertEquals(1, deadLetters.size());
+		AcceptedTradeDTO rejected=objectMapper.readValue(deadLetters.get(0), AcceptedTradeDTO.class);
+		Assertions.assertEquals("W3", rejected.getTrade().getTradeId());
+		Assertions.assertEquals(1, rejected.getTrade().getVersion());
+		Assertions.assertEquals("TradeStoreService.LOWER_VERSION_TRADE", rejected.getMessage());
+	}
+	
+	/** Records after the checkpoint should be read back when the log is opened again,
+	 * and the log should start over once every record is applied.
+	 * 
+	 * @param directory -- temporary directory for the log file.
+	 * @throws IOException -- thrown when the log file can't be used.
+	 */
+	@Test
+	void writeAheadLogTestReplayAfterReopen(@TempDir Path directory) throws IOException {
+		
+		Path path=directory.resolve("test-wal.log");
+		try (TradeWriteAheadLog writeAheadLog=new TradeWriteAheadLog(path, 64, false)) {
+			Assertions.assertTrue(writeAheadLog.append(bytes("first")));
+			Assertions.assertTrue(writeAheadLog.append(bytes("second")));
+			List<byte[]> records=new ArrayList<>();
+			writeAheadLog.checkpoint(writeAheadLog.read(1, records));
+			Assertions.assertEquals("first", new String(records.get(0), StandardCharsets.UTF_8));
+		}
+		
+		try (TradeWriteAheadLog writeAheadLog=new TradeWriteAheadLog(path, 64, false)) {
+			List<byte[]> records=writeAheadLog.readPending();
+			Assertions.assertEquals(1, records.size());
+			Assertions.assertEquals("second", new String(records.get(0), StandardCharsets.UTF_8));
+			
+			Assertions.assertFalse(writeAheadLog.append(new byte[64]));
+			writeAheadLog.checkpoint(writeAheadLog.read(1, new ArrayList<>()));
+			Assertions.assertEquals(0, writeAheadLog.getPendingBytes());
+			Assertions.assertTrue(writeAheadLog.append(bytes("third")));
+		}
+		
+		try (TradeWriteAheadLog writeAheadLog=new TradeWriteAheadLog(path, 64, false)) {
+			List<byte[]> records=writeAheadLog.readPending();
+			Assertions.assertEquals(1, records.size());
+			Assertions.assertEquals("third", new String(records.get(0), StandardCharsets.UTF_8));
+		}
+	}
+	
+	@Test
+	void writeAheadLogTestAppendWhileApplyingPastLogSize(@TempDir Path directory) throws IOException {
+		
+		// Every checkpoint leaves the record appended while applying, so the log never drains
+		Path path=directory.resolve("test-wal.log");
+		try (TradeWriteAheadLog writeAheadLog=new TradeWriteAheadLog(path, 64, false)) {
+			Assertions.assertTrue(writeAheadLog.append(bytes("record-0")));
+			for (int i=1; i<=100; i++) {
+				List<byte[]> records=new ArrayList<>();
+				int position=writeAheadLog.read(Integer.MAX_VALUE, records);
+				Assertions.assertTrue(writeAheadLog.append(bytes("record-"+i)));
+				writeAheadLog.checkpoint(position);
+				Assertions.assertEquals(1, records.size());
+				Assertions.assertEquals("record-"+(i-1), new String(records.get(0), StandardCharsets.UTF_8));
+			}
+		}
+		
+		try (TradeWriteAheadLog writeAheadLog=new TradeWriteAheadLog(path, 64, false)) {
+			List<byte[]> records=writeAheadLog.readPending();
+			Assertions.assertEquals(1, records.size());
+			Assertions.assertEquals("record-100", new String(records.get(0), StandardCharsets.UTF_8));
+		}
+	}
+	
+	private byte[] bytes(String record) {
+		return record.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private TradeDTO createTradeDto(String tradeId, int version) {
+		
+		TradeDTO tradeDto=new TradeDTO();
+		tradeDto.setTradeId(tradeId);
+		tradeDto.setVersion(version);
+		tradeDto.setCounterPartyId("CP-1");
+		tradeDto.setBookId("B1");
+		tradeDto.setMaturityDate(LocalDate.now().plusYears(1));
+		tradeDto.setCreatedDate(LocalDate.now());
+		tradeDto.setExpired(Expired.N);
+		return tradeDto;
+	}
+}
@@ -0,0 +1,13 @@
+-- Embedded test database counterpart of db/migration/mysql, H2 supports real sequences
+create table trade (
+	id int primary key,
+	trade_id VARCHAR(10) NOT NULL,
+	version int NOT NULL,
+	counter_party_id VARCHAR(10) NOT NULL,
+	book_id VARCHAR(10) NOT NULL,
+	maturity_date Date NOT NULL,
+	created_date Date NOT NULL,
+	expired CHAR(1) NOT NULL CHECK (expired IN ('N', 'Y'))
+);
+
+create sequence trade_sequence start with 1 increment by 50;
@@ -0,0 +1,5 @@
+-- Version checks look up trades by trade id and version. Also stops two rows with the same version.
+create unique index uk_trade_trade_id_version on trade (trade_id, version);
+
+-- Expiry job looks up trades by expired flag and maturity date.
+create index idx_trade_expired_maturity_date on trade (expired, maturity_date);
@@ -0,0 +1,15 @@
+create table trade_history (
+	id int primary key,
+	trade_id VARCHAR(10) NOT NULL,
+	version int NOT NULL,
+	counter_party_id VARCHAR(10) NOT NULL,
+	book_id VARCHAR(10) NOT NULL,
+	maturity_date Date NOT NULL,
+	created_date Date NOT NULL,
+	expired CHAR(1) NOT NULL CHECK (expired IN ('N', 'Y')),
+	superseded_at TIMESTAMP NOT NULL
+);
+
+create index idx_trade_history_trade_id_version on trade_history (trade_id, version);
+
+create sequence trade_history_sequence start with 1 increment by 50;
@@ -0,0 +1,14 @@
+-- Expired trades moved out of the trade table by the archive job once past the retention window
+create table trade_archive (
+	id int primary key,
+	trade_id VARCHAR(10) NOT NULL,
+	version int NOT NULL,
+	counter_party_id VARCHAR(10) NOT NULL,
+	book_id VARCHAR(10) NOT NULL,
+	maturity_date Date NOT NULL,
+	created_date Date NOT NULL,
+	expired CHAR(1) NOT NULL CHECK (expired IN ('N', 'Y')),
+	archived_at TIMESTAMP NOT NULL
+);
+
+create index idx_trade_archive_trade_id_version on trade_archive (trade_id, version);